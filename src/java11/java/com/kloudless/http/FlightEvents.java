@@ -0,0 +1,160 @@
+package com.kloudless.http;
+
+/**
+ * FlightEvents emits the Java Flight Recorder events of this library, kloudless.Request,
+ * kloudless.ResponseParse and kloudless.PageFetch. This is the Java 11 version of the class in
+ * the multi-release jar. An event is only allocated to check whether it is enabled, which the
+ * JIT compiler eliminates, so the events cost nothing while no recording enables them.
+ * <p>
+ * The begin methods return a handle which is passed to the matching commit method, it is null
+ * when the event is disabled, and the commit methods ignore a null handle.
+ */
+public final class FlightEvents {
+
+    private FlightEvents() {
+
+    }
+
+    /**
+     * Whether any event of this library is enabled in a running recording
+     *
+     * @return boolean true if an event is enabled
+     */
+    public static boolean isEnabled() {
+        return new RequestFlightEvent().isEnabled() || new ResponseParseFlightEvent().isEnabled()
+                || new PageFetchFlightEvent().isEnabled();
+    }
+
+    /**
+     * Begin the event of an http transaction
+     *
+     * @return Object the handle of the event, null if it is disabled
+     */
+    public static Object beginRequest() {
+        RequestFlightEvent flightEvent = new RequestFlightEvent();
+        if (!flightEvent.isEnabled()) {
+            return null;
+        }
+        flightEvent.begin();
+        return flightEvent;
+    }
+
+    /**
+     * Commit the event of an http transaction once it finished
+     *
+     * @param handle the handle returned by beginRequest, or null
+     * @param event  the finished transaction
+     */
+    public static void commitRequest(Object handle, RequestEvent event) {
+        if (handle == null) {
+            return;
+        }
+        RequestFlightEvent flightEvent = (RequestFlightEvent) handle;
+        flightEvent.end();
+        if (!flightEvent.shouldCommit()) {
+            return;
+        }
+        flightEvent.method = event.getMethod();
+        flightEvent.endpoint = event.getEndpoint();
+        flightEvent.account = event.getAccount();
+        flightEvent.statusCode = event.getStatusCode();
+        flightEvent.attempts = event.getAttempts();
+        flightEvent.requestBytes = event.getRequestBytes();
+        flightEvent.responseBytes = event.getResponseBytes();
+        flightEvent.queueTime = timespan(event.getQueueTime());
+        flightEvent.timeToFirstByte = timespan(event.getTimeToFirstByte());
+        flightEvent.bodyTime = timespan(event.getBodyTime());
+        flightEvent.parseTime = timespan(event.getParseTime());
+        flightEvent.error = event.getError() == null ? null : event.getError().toString();
+        flightEvent.commit();
+    }
+
+    /**
+     * Begin the event of parsing a response
+     *
+     * @return Object the handle of the event, null if it is disabled
+     */
+    public static Object beginParse() {
+        ResponseParseFlightEvent flightEvent = new ResponseParseFlightEvent();
+        if (!flightEvent.isEnabled()) {
+            return null;
+        }
+        flightEvent.begin();
+        return flightEvent;
+    }
+
+    /**
+     * Commit the event of parsing a response once it is parsed
+     *
+     * @param handle the handle returned by beginParse, or null
+     * @param event  the finished transaction of the response
+     */
+    public static void commitParse(Object handle, RequestEvent event) {
+        if (handle == null) {
+            return;
+        }
+        ResponseParseFlightEvent flightEvent = (ResponseParseFlightEvent) handle;
+        flightEvent.end();
+        if (!flightEvent.shouldCommit()) {
+            return;
+        }
+        flightEvent.method = event.getMethod();
+        flightEvent.endpoint = event.getEndpoint();
+        flightEvent.account = event.getAccount();
+        flightEvent.statusCode = event.getStatusCode();
+        flightEvent.responseBytes = event.getResponseBytes();
+        flightEvent.commit();
+    }
+
+    /**
+     * Begin the event of fetching a page of a list
+     *
+     * @return Object the handle of the event, null if it is disabled
+     */
+    public static Object beginPageFetch() {
+        PageFetchFlightEvent flightEvent = new PageFetchFlightEvent();
+        if (!flightEvent.isEnabled()) {
+            return null;
+        }
+        flightEvent.begin();
+        return flightEvent;
+    }
+
+    /**
+     * Commit the event of fetching a page of a list
+     *
+     * @param handle the handle returned by beginPageFetch, or null
+     * @param url    the url of the list
+     * @param page   the page or cursor which was requested
+     * @param items  the number of items of the page, -1 if it could not be fetched
+     * @param async  whether the page was fetched in the background
+     */
+    public static void commitPageFetch(Object handle, String url, String page, int items,
+            boolean async) {
+        if (handle == null) {
+            return;
+        }
+        PageFetchFlightEvent flightEvent = (PageFetchFlightEvent) handle;
+        flightEvent.end();
+        if (!flightEvent.shouldCommit()) {
+            return;
+        }
+        flightEvent.endpoint = RequestEvent.endpointOf(url);
+        flightEvent.account = RequestEvent.accountOf(url);
+        flightEvent.page = page;
+        flightEvent.items = items;
+        flightEvent.async = async;
+        flightEvent.commit();
+    }
+
+    /**
+     * Convert a duration of a RequestEvent to a timespan of an event, an unknown duration is
+     * shown as N/A by the flight recorder tools
+     *
+     * @param nanos the duration in nanoseconds, -1 if it is unknown
+     * @return long the timespan
+     */
+    private static long timespan(long nanos) {
+        return nanos < 0 ? Long.MIN_VALUE : nanos;
+    }
+}
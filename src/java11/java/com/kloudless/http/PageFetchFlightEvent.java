@@ -0,0 +1,36 @@
+package com.kloudless.http;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * PageFetchFlightEvent is the flight recorder event of fetching the next page of a ResourceList,
+ * by the caller or in the background by a prefetching iterator.
+ */
+@Name("kloudless.PageFetch")
+@Label("Kloudless Page Fetch")
+@Category({"Kloudless", "HTTP"})
+@Description("Fetching the next page of a list of the Kloudless API")
+@StackTrace(false)
+class PageFetchFlightEvent extends jdk.jfr.Event {
+    @Label("Endpoint")
+    @Description("The url of the list with the ids replaced by {id}")
+    String endpoint;
+
+    @Label("Account")
+    String account;
+
+    @Label("Page")
+    @Description("The page number or cursor which was requested")
+    String page;
+
+    @Label("Items")
+    @Description("The number of items of the page, -1 if it could not be fetched")
+    int items;
+
+    @Label("Asynchronous")
+    boolean async;
+}
@@ -0,0 +1,68 @@
+package com.kloudless.http;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * RequestFlightEvent is the flight recorder event of an http transaction, from the moment it is
+ * handed to the transport until its response is parsed, including retries.
+ */
+@Name("kloudless.Request")
+@Label("Kloudless Request")
+@Category({"Kloudless", "HTTP"})
+@Description("An http transaction of the Kloudless client, including retries and parsing")
+@StackTrace(false)
+class RequestFlightEvent extends jdk.jfr.Event {
+    @Label("Method")
+    String method;
+
+    @Label("Endpoint")
+    @Description("The url with the ids replaced by {id}")
+    String endpoint;
+
+    @Label("Account")
+    String account;
+
+    @Label("Status Code")
+    int statusCode;
+
+    @Label("Attempts")
+    int attempts;
+
+    @Label("Request Bytes")
+    @DataAmount
+    long requestBytes;
+
+    @Label("Response Bytes")
+    @DataAmount
+    long responseBytes;
+
+    @Label("Queue Time")
+    @Description("Time waited for the rate limits and the concurrency limit")
+    @Timespan
+    long queueTime;
+
+    @Label("Time to First Byte")
+    @Description("Time from sending the last attempt until its response headers arrived, "
+            + "including the connection setup")
+    @Timespan
+    long timeToFirstByte;
+
+    @Label("Body Time")
+    @Description("Time receiving the body before parsing, blocking requests read it while "
+            + "parsing")
+    @Timespan
+    long bodyTime;
+
+    @Label("Parse Time")
+    @Timespan
+    long parseTime;
+
+    @Label("Error")
+    String error;
+}
@@ -0,0 +1,36 @@
+package com.kloudless.http;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * ResponseParseFlightEvent is the flight recorder event of parsing the body of a response into
+ * Resource, ResourceList or ResponseJson objects.
+ */
+@Name("kloudless.ResponseParse")
+@Label("Kloudless Response Parse")
+@Category({"Kloudless", "HTTP"})
+@Description("Parsing the body of a response of the Kloudless API")
+@StackTrace(false)
+class ResponseParseFlightEvent extends jdk.jfr.Event {
+    @Label("Method")
+    String method;
+
+    @Label("Endpoint")
+    @Description("The url with the ids replaced by {id}")
+    String endpoint;
+
+    @Label("Account")
+    String account;
+
+    @Label("Status Code")
+    int statusCode;
+
+    @Label("Response Bytes")
+    @DataAmount
+    long responseBytes;
+}
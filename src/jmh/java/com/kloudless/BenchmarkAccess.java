@@ -0,0 +1,94 @@
+package com.kloudless;
+
+import java.net.URISyntaxException;
+import java.util.Map;
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import com.kloudless.exceptions.ApiException;
+import com.kloudless.models.ResponseBase;
+import org.apache.http.HttpResponse;
+
+/**
+ * BenchmarkAccess exposes the internal request assembly and response parsing steps of a client to
+ * the benchmarks, which live in another package.
+ */
+public final class BenchmarkAccess {
+    private final BaseHttpClient client;
+
+    /**
+     * Constructor of BenchmarkAccess
+     *
+     * @param client the client whose steps are measured
+     */
+    public BenchmarkAccess(BaseHttpClient client) {
+        this.client = client;
+    }
+
+    /**
+     * Turn a response into a Resource, ResourceList or ResponseRaw object
+     *
+     * @param response the response
+     * @param url      the url of the request
+     * @param headers  the headers of the request
+     * @return ResponseBase the parsed response
+     * @throws ApiException Error when the body is not valid JSON
+     */
+    public ResponseBase responseFactory(HttpResponse response, String url,
+            Map<String, Object> headers) throws ApiException {
+        return this.client.responseFactory(response, url, headers, "GET", true);
+    }
+
+    /**
+     * Assemble the whole url of a request
+     *
+     * @param url the relative url
+     * @return String the url with prefix and query string
+     */
+    public String assembleUrl(String url) {
+        return this.client.assembleUrl(url);
+    }
+
+    /**
+     * Merge the default query parameters into the query string of a url
+     *
+     * @param url the relative url
+     * @return String the url with the merged query string
+     */
+    public String appendDefaultQueryParameters(String url) {
+        return this.client.appendDefaultQueryParameters(url);
+    }
+
+    /**
+     * Merge the headers of a request with the default headers
+     *
+     * @param headers the headers of the request
+     * @return Map the merged headers
+     */
+    public Map<String, Object> mergeHeaders(Map<String, Object> headers) {
+        return this.client.mergeHeaders(headers);
+    }
+
+    /**
+     * Generate the url of a resource from the url it was listed or retrieved with
+     *
+     * @param url       the url of the request
+     * @param data      the data of the resource
+     * @param method    the http method
+     * @param isListUrl whether the url lists resources
+     * @return String the url of the resource
+     * @throws URISyntaxException Error when the url is invalid
+     */
+    public static String generateResourceUrl(String url, JsonObject data, String method,
+            boolean isListUrl) throws URISyntaxException {
+        return BaseHttpClient.generateResourceUrl(url, data, method, isListUrl);
+    }
+
+    /**
+     * Get the Gson instance request bodies are serialized with
+     *
+     * @return Gson the Gson instance
+     */
+    public static Gson gson() {
+        return BaseHttpClient.gson;
+    }
+}
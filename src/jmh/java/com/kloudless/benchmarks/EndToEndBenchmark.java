@@ -0,0 +1,95 @@
+package com.kloudless.benchmarks;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+import com.kloudless.Account;
+import com.kloudless.Application;
+import com.kloudless.exceptions.ApiException;
+import com.kloudless.models.Resource;
+import com.kloudless.models.ResourceList;
+import com.kloudless.models.ResponseBase;
+import com.kloudless.stub.StubConfig;
+import com.kloudless.stub.StubServer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures whole requests through the transport against an in-process StubServer: a blocking
+ * and a non-blocking get of a resource, and iterating a list of 10 pages of 100 files with and
+ * without prefetching.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Dsun.net.httpserver.nodelay=true")
+@State(Scope.Benchmark)
+public class EndToEndBenchmark {
+    private static final int PAGES = 10;
+    private static final int PAGE_SIZE = 100;
+    private static final String FILE_URL = "/storage/files/F1";
+    private static final String LIST_URL = "/storage/folders/root/contents";
+
+    private StubServer server;
+    private Account account;
+
+    @Setup
+    public void setUp() throws Exception {
+        StubConfig config = new StubConfig();
+        config.setListSize(PAGES * PAGE_SIZE);
+        config.setPageSize(PAGE_SIZE);
+        this.server = new StubServer(config);
+        this.server.start();
+        Application.setBaseUrl(this.server.getBaseUrl());
+        this.account = new Account("benchmark-token");
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        this.server.close();
+        Application.shutdown();
+    }
+
+    @Benchmark
+    public ResponseBase get() throws ApiException {
+        return this.account.get(FILE_URL);
+    }
+
+    @Benchmark
+    public ResponseBase getAsync() {
+        return this.account.getAsync(FILE_URL).join();
+    }
+
+    @Benchmark
+    public int iteratePages() throws ApiException {
+        return count(((ResourceList) this.account.get(LIST_URL)).getPageIterator());
+    }
+
+    @Benchmark
+    public int iteratePagesPrefetched() throws ApiException {
+        return count(((ResourceList) this.account.get(LIST_URL))
+                .getPageIterator(Long.MAX_VALUE, 2));
+    }
+
+    private static int count(Iterator<Resource> iterator) {
+        int count = 0;
+        while (iterator.hasNext()) {
+            iterator.next();
+            count++;
+        }
+        if (count != PAGES * PAGE_SIZE) {
+            throw new IllegalStateException("iterated " + count + " resources");
+        }
+        return count;
+    }
+}
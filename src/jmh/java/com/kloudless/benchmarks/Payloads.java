@@ -0,0 +1,49 @@
+package com.kloudless.benchmarks;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Payloads builds the JSON bodies the benchmarks parse and the stub servers answer with.
+ */
+final class Payloads {
+
+    /**
+     * Build an object_list page of file resources
+     *
+     * @param items    the number of files on the page
+     * @param page     the number of the page
+     * @param nextPage the number of the next page, or 0 if it is the last page
+     * @return byte[] the UTF-8 encoded body
+     */
+    static byte[] objectList(int items, int page, int nextPage) {
+        StringBuilder builder = new StringBuilder("{\"type\": \"object_list\", \"page\": ")
+                .append(page).append(", \"next_page\": ")
+                .append(nextPage > 0 ? Integer.toString(nextPage) : "null")
+                .append(", \"objects\": [");
+        for (int i = 0; i < items; i++) {
+            if (i > 0) {
+                builder.append(',');
+            }
+            builder.append("{\"id\": \"F").append(i).append("\", \"name\": \"file-").append(i)
+                    .append(".txt\", \"type\": \"file\", \"api\": \"storage\", \"size\": ")
+                    .append(i * 31).append(", \"parent\": {\"id\": \"root\", \"name\": \"\"}}");
+        }
+        return builder.append("]}").toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Build a single file resource
+     *
+     * @param id the id of the file
+     * @return byte[] the UTF-8 encoded body
+     */
+    static byte[] file(String id) {
+        return ("{\"id\": \"" + id + "\", \"name\": \"report.pdf\", \"type\": \"file\", "
+                + "\"api\": \"storage\", \"size\": 48213, \"mime_type\": \"application/pdf\", "
+                + "\"modified\": \"2019-03-01T10:00:00Z\", \"parent\": {\"id\": \"root\", "
+                + "\"name\": \"\"}}").getBytes(StandardCharsets.UTF_8);
+    }
+
+    private Payloads() {
+    }
+}
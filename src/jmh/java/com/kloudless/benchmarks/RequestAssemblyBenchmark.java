@@ -0,0 +1,85 @@
+package com.kloudless.benchmarks;
+
+import java.net.URISyntaxException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.kloudless.Account;
+import com.kloudless.BenchmarkAccess;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the per request steps before anything is sent: assembling the url, merging the
+ * default query parameters and headers, and generating the url of a listed resource.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RequestAssemblyBenchmark {
+    private static final String PLAIN_URL = "/storage/files/F1";
+    private static final String QUERY_URL =
+            "/storage/folders/root/contents?page_size=100&recursive=true";
+    private static final String LIST_URL = "/v1/accounts/me/storage/folders/root/contents";
+    private static final Map<String, Object> QUERY_PARAMETERS =
+            Collections.<String, Object>singletonMap("fields", "id,name,size");
+
+    private BenchmarkAccess access;
+    private Map<String, Object> headers;
+    private JsonObject resource;
+
+    @Setup
+    public void setUp() throws Exception {
+        Map<String, Object> defaultHeaders = new HashMap<String, Object>();
+        defaultHeaders.put("X-Kloudless-Raw-Data", "false");
+        Account account = new Account("benchmark-token", defaultHeaders) {
+            @Override
+            public Map<String, Object> getDefaultQueryParameters() {
+                return QUERY_PARAMETERS;
+            }
+        };
+        this.access = new BenchmarkAccess(account);
+        this.headers = Collections.<String, Object>singletonMap("X-Request-Id", "benchmark");
+        this.resource = new JsonParser().parse(new String(Payloads.file("F1"), "UTF-8"))
+                .getAsJsonObject();
+    }
+
+    @Benchmark
+    public String assembleUrl() {
+        return this.access.assembleUrl(PLAIN_URL);
+    }
+
+    @Benchmark
+    public String assembleUrlWithQuery() {
+        return this.access.assembleUrl(QUERY_URL);
+    }
+
+    @Benchmark
+    public String appendDefaultQueryParameters() {
+        return this.access.appendDefaultQueryParameters(QUERY_URL);
+    }
+
+    @Benchmark
+    public Map<String, Object> mergeHeaders() {
+        return this.access.mergeHeaders(this.headers);
+    }
+
+    @Benchmark
+    public String generateResourceUrl() throws URISyntaxException {
+        return BenchmarkAccess.generateResourceUrl(LIST_URL, this.resource, "GET", true);
+    }
+}
@@ -0,0 +1,119 @@
+package com.kloudless.benchmarks;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.kloudless.Account;
+import com.kloudless.Application;
+import com.kloudless.models.Resource;
+import com.kloudless.models.ResourceList;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Measures the retained heap and the allocation per item of a parsed object_list page. The JSON
+ * data of each element is measured separately, so the per-item overhead of the Resource wrapper
+ * can be compared between versions.
+ *
+ * Usage: gradle footprint [-Pitems=1000] [-Ppages=50]
+ */
+public class ResourceFootprint {
+
+    public static void main(String[] args) throws Exception {
+        int items = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        int pages = args.length > 1 ? Integer.parseInt(args[1]) : 50;
+        byte[] body = Payloads.objectList(items, 1, 0);
+
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", exchange -> {
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+        try {
+            Application.setBaseUrl("http://127.0.0.1:" + server.getAddress().getPort());
+            Account account = new Account("footprint-token");
+            String url = "/storage/folders/root/contents?page_size=" + items;
+
+            // warm up the parsing path and the connection pool
+            for (int i = 0; i < 20; i++) {
+                account.get(url);
+            }
+
+            long dataOnly = retainedDataBytes(body, pages);
+            List<ResourceList> retained = new ArrayList<ResourceList>();
+            long before = usedHeap();
+            long allocatedBefore = allocatedBytes();
+            for (int i = 0; i < pages; i++) {
+                retained.add((ResourceList) account.get(url));
+            }
+            long allocated = allocatedBytes() - allocatedBefore;
+            long after = usedHeap();
+            long total = (long) items * pages;
+
+            long resolved = 0;
+            for (ResourceList list : retained) {
+                for (Resource resource : list.getResources()) {
+                    resolved += resource.getUrl().length();
+                }
+            }
+
+            System.out.printf("items per page          %d%n", items);
+            System.out.printf("pages retained          %d (%d url chars)%n", pages, resolved);
+            System.out.printf("retained bytes/item     %d%n", (after - before) / total);
+            System.out.printf("  json data bytes/item  %d%n", dataOnly / total);
+            System.out.printf("  wrapper bytes/item    %d%n", (after - before - dataOnly) / total);
+            System.out.printf("allocated bytes/item    %d%n", allocated / total);
+        } finally {
+            server.stop(0);
+            Application.shutdown();
+        }
+    }
+
+    /**
+     * Retained heap of the parsed JSON elements alone.
+     */
+    private static long retainedDataBytes(byte[] body, int pages) {
+        List<Object> retained = new ArrayList<Object>();
+        long before = usedHeap();
+        for (int i = 0; i < pages; i++) {
+            JsonObject page = new JsonParser()
+                    .parse(new String(body, StandardCharsets.UTF_8)).getAsJsonObject();
+            retained.add(page.get("objects"));
+        }
+        long after = usedHeap();
+        if (retained.isEmpty()) {
+            throw new IllegalStateException();
+        }
+        return after - before;
+    }
+
+    private static long usedHeap() {
+        for (int i = 0; i < 4; i++) {
+            System.gc();
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static long allocatedBytes() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean())
+                .getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    private ResourceFootprint() {
+    }
+}
@@ -0,0 +1,70 @@
+package com.kloudless.benchmarks;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import com.kloudless.Account;
+import com.kloudless.BenchmarkAccess;
+import com.kloudless.exceptions.ApiException;
+import com.kloudless.models.ResponseBase;
+import org.apache.http.HttpVersion;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.ContentType;
+import org.apache.http.message.BasicHttpResponse;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures turning a buffered JSON response into Resource objects, for a single resource and for
+ * object_list pages of 10, 500 and 20000 items. No network is involved.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ResponseParsingBenchmark {
+    private static final String URL = "/v1/accounts/me/storage/folders/root/contents";
+    private static final ContentType JSON = ContentType.create("application/json");
+
+    @Param({"10", "500", "20000"})
+    public int items;
+
+    private BenchmarkAccess access;
+    private Map<String, Object> headers;
+    private byte[] list;
+    private byte[] file;
+
+    @Setup
+    public void setUp() throws Exception {
+        this.access = new BenchmarkAccess(new Account("benchmark-token"));
+        this.headers = this.access.mergeHeaders(null);
+        this.list = Payloads.objectList(this.items, 1, 2);
+        this.file = Payloads.file("F1");
+    }
+
+    @Benchmark
+    public ResponseBase objectList() throws ApiException {
+        return this.access.responseFactory(response(this.list), URL, this.headers);
+    }
+
+    @Benchmark
+    public ResponseBase resource() throws ApiException {
+        return this.access.responseFactory(response(this.file), URL, this.headers);
+    }
+
+    private static BasicHttpResponse response(byte[] body) {
+        BasicHttpResponse response = new BasicHttpResponse(HttpVersion.HTTP_1_1, 200, "OK");
+        response.setEntity(new ByteArrayEntity(body, JSON));
+        return response;
+    }
+}
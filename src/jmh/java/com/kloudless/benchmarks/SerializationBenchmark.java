@@ -0,0 +1,66 @@
+package com.kloudless.benchmarks;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import com.kloudless.BenchmarkAccess;
+import com.kloudless.http.JsonEntity;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures serializing a JSON request body the way it is streamed to the connection, for the
+ * body of a rename with 1 property and of a metadata update with 200 properties.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SerializationBenchmark {
+    private static final OutputStream DISCARD = new OutputStream() {
+        @Override
+        public void write(int b) {
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+        }
+    };
+
+    @Param({"1", "200"})
+    public int properties;
+
+    private Map<String, Object> content;
+
+    @Setup
+    public void setUp() {
+        this.content = new HashMap<String, Object>();
+        this.content.put("name", "renamed report.pdf");
+        for (int i = 1; i < this.properties; i++) {
+            Map<String, Object> property = new HashMap<String, Object>();
+            property.put("key", "property-" + i);
+            property.put("value", "value of property " + i);
+            this.content.put("property_" + i, property);
+        }
+    }
+
+    @Benchmark
+    public long jsonEntity() throws IOException {
+        JsonEntity entity = new JsonEntity(this.content, BenchmarkAccess.gson());
+        entity.writeTo(DISCARD);
+        return entity.getBytesWritten();
+    }
+}
@@ -1,10 +1,13 @@
 package com.kloudless;
 
+import java.io.File;
+import java.nio.file.Path;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
 import com.kloudless.exceptions.ApiException;
 import com.kloudless.exceptions.InvalidArgumentException;
+import com.kloudless.models.Resource;
 import org.apache.http.HttpResponse;
 
 /**
@@ -144,7 +147,9 @@ public class Account extends Client {
      * @param url        url should be up stream service name, and could limit
      * @param headers    Additional header parameters in this request.
      * @param content    Any information for post, put and patch.
-     * @return HttpResponse
+     * @return HttpResponse the response. It is a CloseableHttpResponse unless rawJsonExecute is
+     *         overridden, close it if it is {@code instanceof Closeable} to release its pooled
+     *         connection
      * @throws ApiException An error if any data other than 2xx from Kloudless API server or
      *                      upstream services.
      */
@@ -160,6 +165,41 @@ public class Account extends Client {
         return this.rawJsonExecute("POST", url, headers, content);
     }
 
+    /**
+     * Upload a large file with the multipart upload endpoints, several parts of the file are
+     * uploaded at the same time. Use MultipartUpload directly to change the part size or the
+     * concurrency.
+     *
+     * @param file     the local file to upload
+     * @param parentId the id of the folder to upload the file to
+     * @return Resource the uploaded file
+     * @throws InvalidArgumentException Error when the file could not be read
+     * @throws ApiException             An error if any data other than 2xx from Kloudless API
+     *                                  server or upstream services.
+     */
+    public Resource uploadMultipart(File file, String parentId)
+            throws InvalidArgumentException, ApiException {
+        return new MultipartUpload(this, file, parentId).upload();
+    }
+
+    /**
+     * Download a file of the Storage API with several concurrent Range requests, falling back to
+     * a single stream if the upstream service does not honor ranges. Use ParallelDownload
+     * directly to change the segment size or the retries.
+     *
+     * @param fileId      the id of the file to download
+     * @param target      the local path to write the file to, an existing file is overwritten
+     * @param parallelism the number of concurrent segment downloads
+     * @return long the number of bytes downloaded
+     * @throws ApiException An error if any data other than 2xx from Kloudless API server or
+     *                      upstream services.
+     */
+    public long downloadTo(String fileId, Path target, int parallelism) throws ApiException {
+        ParallelDownload download = new ParallelDownload(this, fileId, target);
+        download.setParallelism(parallelism);
+        return download.download();
+    }
+
     /**
      * Set apiVersion of current Client uses
      * 
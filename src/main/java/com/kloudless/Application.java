@@ -19,6 +19,7 @@ import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.kloudless.exceptions.ApiException;
 import com.kloudless.exceptions.InvalidArgumentException;
+import com.kloudless.http.HttpTransport;
 import org.apache.http.HttpResponse;
 import org.apache.http.ParseException;
 import org.apache.http.client.ClientProtocolException;
@@ -36,6 +37,8 @@ public class Application {
     private static int defaultAuthPathVersion = 1;
     private static SimpleClient simpleClient = new SimpleClient();
     private static Gson gson = new GsonBuilder().setPrettyPrinting().create();
+    private static volatile HttpTransport transport;
+    private static boolean prettyPrintJson = false;
 
     /**
      * static To get version number from app.properties file
@@ -120,6 +123,96 @@ public class Application {
         Application.defaultAuthPathVersion = defaultAuthPathVersion;
     }
 
+    /**
+     * Whether JSON request bodies are pretty printed
+     * 
+     * @return boolean true if JSON request bodies are pretty printed
+     */
+    public static boolean isPrettyPrintJson() {
+        return Application.prettyPrintJson;
+    }
+
+    /**
+     * Pretty print JSON request bodies, which is easier to read when debugging but sends more
+     * bytes. The default is compact JSON.
+     * 
+     * @param prettyPrintJson true to pretty print JSON request bodies
+     */
+    public static void setPrettyPrintJson(boolean prettyPrintJson) {
+        Application.prettyPrintJson = prettyPrintJson;
+    }
+
+    /**
+     * Get the shared http transport used by all clients, it is created with the default settings
+     * on first use.
+     * 
+     * @return HttpTransport the shared transport
+     */
+    public static HttpTransport getTransport() {
+        HttpTransport current = Application.transport;
+        if (current == null) {
+            synchronized (Application.class) {
+                current = Application.transport;
+                if (current == null) {
+                    current = new HttpTransport();
+                    Application.transport = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Take a lease on the shared http transport for one transaction. The transaction uses this
+     * transport throughout, even if it is replaced meanwhile, and has to release the lease when
+     * it is done.
+     * 
+     * @return HttpTransport the shared transport, leased
+     */
+    static HttpTransport leaseTransport() {
+        while (true) {
+            HttpTransport current = getTransport();
+            if (current.acquire()) {
+                return current;
+            }
+            // the transport was closed directly, a new one is created like after shutdown
+            synchronized (Application.class) {
+                if (Application.transport == current) {
+                    Application.transport = null;
+                }
+            }
+        }
+    }
+
+    /**
+     * Replace the shared http transport, e.g. to use different pool limits. Requests still using
+     * the previous transport complete on it, it is closed once they are done and their
+     * connections have been released.
+     * 
+     * @param transport the new shared transport
+     * @throws IOException Error when closing the previous transport failed
+     */
+    public static void setTransport(HttpTransport transport) throws IOException {
+        HttpTransport previous;
+        synchronized (Application.class) {
+            previous = Application.transport;
+            Application.transport = transport;
+        }
+        if (previous != null && previous != transport) {
+            previous.retire();
+        }
+    }
+
+    /**
+     * Close the shared http transport and release all pooled connections once the requests
+     * still using it are done. A new transport is created if any request is made afterwards.
+     * 
+     * @throws IOException Error when closing the transport failed
+     */
+    public static void shutdown() throws IOException {
+        setTransport(null);
+    }
+
     /**
      * Returns a authorization url to allow user login via Kloudless API server..
      *
@@ -3,9 +3,16 @@ package com.kloudless;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.io.UnsupportedEncodingException;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.nio.charset.Charset;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
@@ -13,27 +20,52 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Optional;
-import java.util.stream.Collectors;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
-import com.google.gson.JsonSyntaxException;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
 import com.kloudless.exceptions.ApiException;
+import com.kloudless.http.ByteBufferEntity;
+import com.kloudless.http.ConcurrencyLimiter;
+import com.kloudless.http.DecodingEntity;
+import com.kloudless.http.FileRegionEntity;
+import com.kloudless.http.FlightEvents;
+import com.kloudless.http.HttpTransport;
+import com.kloudless.http.JsonCopies;
+import com.kloudless.http.JsonEntity;
+import com.kloudless.http.MetadataCache;
+import com.kloudless.http.RequestCoalescer;
+import com.kloudless.http.RequestEvent;
+import com.kloudless.http.RequestListener;
+import com.kloudless.http.ResponseCache;
+import com.kloudless.http.RetryPolicy;
+import com.kloudless.http.TimingResponseConsumer;
+import com.kloudless.http.TransferBuffers;
+import com.kloudless.http.TransportConfig;
+import com.kloudless.models.RequestContext;
 import com.kloudless.models.Resource;
 import com.kloudless.models.ResourceList;
 import com.kloudless.models.ResponseBase;
 import com.kloudless.models.ResponseJson;
 import com.kloudless.models.ResponseRaw;
+import org.apache.http.Header;
 import org.apache.http.HttpEntity;
 import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
 import org.apache.http.NameValuePair;
 import org.apache.http.ParseException;
 import org.apache.http.client.ClientProtocolException;
-import org.apache.http.client.HttpClient;
-import org.apache.http.client.entity.EntityBuilder;
 import org.apache.http.client.entity.UrlEncodedFormEntity;
+import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpDelete;
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpPatch;
@@ -41,18 +73,20 @@ import org.apache.http.client.methods.HttpPost;
 import org.apache.http.client.methods.HttpPut;
 import org.apache.http.client.methods.HttpRequestBase;
 import org.apache.http.client.utils.URIBuilder;
+import org.apache.http.concurrent.FutureCallback;
 import org.apache.http.entity.ContentType;
-import org.apache.http.entity.StringEntity;
-import org.apache.http.impl.client.HttpClients;
+import org.apache.http.entity.InputStreamEntity;
 import org.apache.http.message.BasicNameValuePair;
-import org.apache.http.util.EntityUtils;
+import org.apache.http.nio.client.methods.HttpAsyncMethods;
+import org.apache.http.nio.protocol.HttpAsyncResponseConsumer;
 
 /**
  * Client object is a useful tool to handle any http interaction between client and Kloudless API
  * Server.
  */
 public abstract class BaseHttpClient {
-    static Gson gson = new GsonBuilder().setPrettyPrinting().create();
+    static Gson gson = new Gson();
+    static Gson prettyGson = new GsonBuilder().setPrettyPrinting().create();
 
     /**
      * Get the prefix of URL
@@ -76,6 +110,27 @@ public abstract class BaseHttpClient {
      */
     abstract public Map<String, Object> getDefaultQueryParameters();
 
+    /**
+     * Get the retry policy of the requests made by this object, the default is the retry policy
+     * of the transport
+     * 
+     * @return RetryPolicy the retry policy
+     */
+    public RetryPolicy getRetryPolicy() {
+        return getRetryPolicy(Application.getTransport());
+    }
+
+    /**
+     * Get the retry policy of the requests made by this object on the given transport, the
+     * default is the retry policy of the transport
+     * 
+     * @param transport the transport of the request
+     * @return RetryPolicy the retry policy
+     */
+    protected RetryPolicy getRetryPolicy(HttpTransport transport) {
+        return transport.getConfig().getRetryPolicy();
+    }
+
     /**
      * Http GET method
      * 
@@ -169,6 +224,71 @@ public abstract class BaseHttpClient {
         return runHttpTransaction("POST", url, "File", headers, uploadFile);
     }
 
+    /**
+     * Http POST method, the stream is sent with chunked transfer encoding as its length is
+     * unknown. The stream is read until its end but not closed.
+     * 
+     * @param url     URL of API supported by Kloudless API server.
+     * @param headers Addition header parameter in this request.
+     * @param content The stream of the content to upload.
+     * @return ResponseBase Class and list of data or JsonObject is inside the data attribute.
+     * @throws ApiException An error if any data other than 2xx from Kloudless API server or
+     *                      upstream services.
+     */
+    public ResponseBase post(String url, Map<String, Object> headers, InputStream content)
+            throws ApiException {
+        return post(url, headers, content, -1);
+    }
+
+    /**
+     * Http POST method, the stream is read until its end but not closed.
+     * 
+     * @param url     URL of API supported by Kloudless API server.
+     * @param headers Addition header parameter in this request.
+     * @param content The stream of the content to upload.
+     * @param length  The number of bytes in the stream, or -1 if it is unknown.
+     * @return ResponseBase Class and list of data or JsonObject is inside the data attribute.
+     * @throws ApiException An error if any data other than 2xx from Kloudless API server or
+     *                      upstream services.
+     */
+    public ResponseBase post(String url, Map<String, Object> headers, InputStream content,
+            long length) throws ApiException {
+        return runHttpTransaction("POST", url, "File", headers,
+                new InputStreamEntity(content, length, ContentType.APPLICATION_OCTET_STREAM));
+    }
+
+    /**
+     * Http POST method, the remaining bytes of the buffer are uploaded. The position of the buffer
+     * is not changed.
+     * 
+     * @param url     URL of API supported by Kloudless API server.
+     * @param headers Addition header parameter in this request.
+     * @param content The buffer of the content to upload.
+     * @return ResponseBase Class and list of data or JsonObject is inside the data attribute.
+     * @throws ApiException An error if any data other than 2xx from Kloudless API server or
+     *                      upstream services.
+     */
+    public ResponseBase post(String url, Map<String, Object> headers, ByteBuffer content)
+            throws ApiException {
+        return runHttpTransaction("POST", url, "File", headers, new ByteBufferEntity(content));
+    }
+
+    /**
+     * Http POST method, the file is sent on the non-blocking http client, which transfers it from
+     * the file channel to the socket without copying it through the Java heap.
+     * 
+     * @param url        URL of API supported by Kloudless API server.
+     * @param headers    Addition header parameter in this request.
+     * @param uploadFile The path of the file to upload.
+     * @return ResponseBase Class and list of data or JsonObject is inside the data attribute.
+     * @throws ApiException An error if any data other than 2xx from Kloudless API server or
+     *                      upstream services.
+     */
+    public ResponseBase post(String url, Map<String, Object> headers, Path uploadFile)
+            throws ApiException {
+        return awaitResponse(postAsync(url, headers, uploadFile));
+    }
+
     /**
      * Http PATCH method
      * 
@@ -212,6 +332,71 @@ public abstract class BaseHttpClient {
         return runHttpTransaction("PATCH", url, "File", headers, uploadFile);
     }
 
+    /**
+     * Http PATCH method, the stream is sent with chunked transfer encoding as its length is
+     * unknown. The stream is read until its end but not closed.
+     * 
+     * @param url     URL of API supported by Kloudless API server.
+     * @param headers Addition header parameter in this request.
+     * @param content The stream of the content to upload.
+     * @return ResponseBase Class and list of data or JsonObject is inside the data attribute.
+     * @throws ApiException An error if any data other than 2xx from Kloudless API server or
+     *                      upstream services.
+     */
+    public ResponseBase patch(String url, Map<String, Object> headers, InputStream content)
+            throws ApiException {
+        return patch(url, headers, content, -1);
+    }
+
+    /**
+     * Http PATCH method, the stream is read until its end but not closed.
+     * 
+     * @param url     URL of API supported by Kloudless API server.
+     * @param headers Addition header parameter in this request.
+     * @param content The stream of the content to upload.
+     * @param length  The number of bytes in the stream, or -1 if it is unknown.
+     * @return ResponseBase Class and list of data or JsonObject is inside the data attribute.
+     * @throws ApiException An error if any data other than 2xx from Kloudless API server or
+     *                      upstream services.
+     */
+    public ResponseBase patch(String url, Map<String, Object> headers, InputStream content,
+            long length) throws ApiException {
+        return runHttpTransaction("PATCH", url, "File", headers,
+                new InputStreamEntity(content, length, ContentType.APPLICATION_OCTET_STREAM));
+    }
+
+    /**
+     * Http PATCH method, the remaining bytes of the buffer are uploaded. The position of the buffer
+     * is not changed.
+     * 
+     * @param url     URL of API supported by Kloudless API server.
+     * @param headers Addition header parameter in this request.
+     * @param content The buffer of the content to upload.
+     * @return ResponseBase Class and list of data or JsonObject is inside the data attribute.
+     * @throws ApiException An error if any data other than 2xx from Kloudless API server or
+     *                      upstream services.
+     */
+    public ResponseBase patch(String url, Map<String, Object> headers, ByteBuffer content)
+            throws ApiException {
+        return runHttpTransaction("PATCH", url, "File", headers, new ByteBufferEntity(content));
+    }
+
+    /**
+     * Http PATCH method, the file is sent on the non-blocking http client, which transfers it from
+     * the file channel to the socket without copying it through the Java heap.
+     * 
+     * @param url        URL of API supported by Kloudless API server.
+     * @param headers    Addition header parameter in this request.
+     * @param uploadFile The path of the file to upload.
+     * @return ResponseBase Class and list of data or JsonObject is inside the data attribute.
+     * @throws ApiException An error if any data other than 2xx from Kloudless API server or
+     *                      upstream services.
+     */
+    public ResponseBase patch(String url, Map<String, Object> headers, Path uploadFile)
+            throws ApiException {
+        return awaitResponse(patchAsync(url, headers, uploadFile));
+    }
+
     /**
      * Http PUT method
      * 
@@ -256,308 +441,1731 @@ public abstract class BaseHttpClient {
     }
 
     /**
-     * Http DELETE method
+     * Http PUT method, the stream is sent with chunked transfer encoding as its length is
+     * unknown. The stream is read until its end but not closed.
      * 
-     * @param url URL of API supported by Kloudless API server.
-     * @return ResponseBase object but might be empty content
+     * @param url     URL of API supported by Kloudless API server.
+     * @param headers Addition header parameter in this request.
+     * @param content The stream of the content to upload.
+     * @return ResponseBase Class and list of data or JsonObject is inside the data attribute.
      * @throws ApiException An error if any data other than 2xx from Kloudless API server or
      *                      upstream services.
      */
-    public ResponseBase delete(String url) throws ApiException {
-        return delete(url, null);
+    public ResponseBase put(String url, Map<String, Object> headers, InputStream content)
+            throws ApiException {
+        return put(url, headers, content, -1);
     }
 
     /**
-     * Http DELETE method
+     * Http PUT method, the stream is read until its end but not closed.
      * 
      * @param url     URL of API supported by Kloudless API server.
      * @param headers Addition header parameter in this request.
-     * @return ResponseBase object but might be empty content
+     * @param content The stream of the content to upload.
+     * @param length  The number of bytes in the stream, or -1 if it is unknown.
+     * @return ResponseBase Class and list of data or JsonObject is inside the data attribute.
      * @throws ApiException An error if any data other than 2xx from Kloudless API server or
      *                      upstream services.
      */
-    public ResponseBase delete(String url, Map<String, Object> headers) throws ApiException {
-        return runHttpTransaction("DELETE", url, "Json", headers, null);
-    }
-
-    /**
-     * This method finds the proper rawExecute method and dispatches the request
-     *
-     * @param method  the HTTP method
-     * @param url     the URL string
-     * @param format  String should be one of Json, File or Form
-     * @param headers the key-value pairs of the request headers
-     * @param content the key-value pairs of the request body
-     * @return ResponseBase A ResponseBase instance
-     * @throws ApiException Error if the request failed
-     */
-    private ResponseBase runHttpTransaction(
-            String method, String url, String format, Map<String, Object> headers,
-            Object content) throws ApiException {
-        return runHttpTransaction(method, url, format, headers, content, true);
+    public ResponseBase put(String url, Map<String, Object> headers, InputStream content,
+            long length) throws ApiException {
+        return runHttpTransaction("PUT", url, "File", headers,
+                new InputStreamEntity(content, length, ContentType.APPLICATION_OCTET_STREAM));
     }
 
     /**
-     * This method finds the proper rawExecute method and dispatches the request
-     *
-     * @param method  the HTTP method
-     * @param url     the URL string
-     * @param format  String should be one of Json, File or Form
-     * @param headers the key-value pairs of the request headers
-     * @param content the key-value pairs of the request body
-     * @param tryJson whether to try parsing the response body as a JSON object
-     * @return ResponseBase A ResponseBase instance
-     * @throws ApiException Error if the request failed
+     * Http PUT method, the remaining bytes of the buffer are uploaded. The position of the buffer
+     * is not changed.
+     * 
+     * @param url     URL of API supported by Kloudless API server.
+     * @param headers Addition header parameter in this request.
+     * @param content The buffer of the content to upload.
+     * @return ResponseBase Class and list of data or JsonObject is inside the data attribute.
+     * @throws ApiException An error if any data other than 2xx from Kloudless API server or
+     *                      upstream services.
      */
-    private ResponseBase runHttpTransaction(
-            String method, String url, String format, Map<String, Object> headers,
-            Object content, Boolean tryJson) throws ApiException {
-        url = assembleUrl(url);
-        headers = mergeHeaders(headers);
-        format = format.toUpperCase();
-        HttpResponse httpResponse;
-        switch (format) {
-            case "JSON":
-                httpResponse = rawJsonExecute(method, url, headers, content);
-                break;
-            case "FORM":
-                httpResponse = rawFormExecute(method, url, headers, content);
-                break;
-            case "FILE":
-                httpResponse = rawFileExecute(method, url, headers, content);
-                break;
-            default:
-                throw new IllegalArgumentException("Invalid HTTP method: " + format);
-        }
-        return responseFactory(httpResponse, url, headers, method, tryJson);
+    public ResponseBase put(String url, Map<String, Object> headers, ByteBuffer content)
+            throws ApiException {
+        return runHttpTransaction("PUT", url, "File", headers, new ByteBufferEntity(content));
     }
 
     /**
-     * The method of execute the http request and supports form data content
+     * Http PUT method, the file is sent on the non-blocking http client, which transfers it from
+     * the file channel to the socket without copying it through the Java heap.
      * 
-     * @param method  the Http method
-     * @param url     the url string
-     * @param headers the key, value pairs of http headers
-     * @param content the key, value pairs of http body
-     * @return HttpResponse the httpResponse object
+     * @param url        URL of API supported by Kloudless API server.
+     * @param headers    Addition header parameter in this request.
+     * @param uploadFile The path of the file to upload.
+     * @return ResponseBase Class and list of data or JsonObject is inside the data attribute.
      * @throws ApiException An error if any data other than 2xx from Kloudless API server or
      *                      upstream services.
      */
-    protected HttpResponse rawFormExecute(String method, String url, Map<String, Object> headers,
-            Object content) throws ApiException {
-
-        try {
-            content = Optional.ofNullable(content).orElse(new HashMap<String, Object>());
-            List<NameValuePair> requestContent = new ArrayList<NameValuePair>();
-            for (Entry entry : ((Map<String, Object>) content).entrySet()) {
-                requestContent.add(
-                        new BasicNameValuePair((String) entry.getKey(), (String) entry.getValue()));
-            }
-            HttpEntity entity = new UrlEncodedFormEntity(requestContent);
-            return handleResponse(assembleHttpRequest(method, url, entity, headers,
-                    ContentType.APPLICATION_FORM_URLENCODED.getMimeType()));
-        } catch (ApiException | ParseException | IOException e) {
-            throw new ApiException(
-                    "Run http " + method + " to " + url + " failed, " + e.getMessage(), e);
-        }
+    public ResponseBase put(String url, Map<String, Object> headers, Path uploadFile)
+            throws ApiException {
+        return awaitResponse(putAsync(url, headers, uploadFile));
     }
 
     /**
-     * The method of execute the http request and supports json data content
+     * Http DELETE method
      * 
-     * @param method  the Http method
-     * @param url     the url string
-     * @param headers the key, value pairs of http headers
-     * @param content the key, value pairs of http body
-     * @return HttpResponse the httpResponse object
+     * @param url URL of API supported by Kloudless API server.
+     * @return ResponseBase object but might be empty content
      * @throws ApiException An error if any data other than 2xx from Kloudless API server or
      *                      upstream services.
      */
-    protected HttpResponse rawJsonExecute(String method, String url, Map<String, Object> headers,
-            Object content) throws ApiException {
-        try {
-            content = (Map<String, Object>) Optional.ofNullable(content)
-                    .orElse(new HashMap<String, Object>());
-            HttpEntity entity = new StringEntity(gson.toJson(content).toString());
-            return handleResponse(assembleHttpRequest(method, url, entity, headers,
-                    ContentType.APPLICATION_JSON.getMimeType()));
-        } catch (ApiException | ParseException | IOException e) {
-            throw new ApiException(
-                    "Run http " + method + " to " + url + " failed, " + e.getMessage(), e);
-        }
+    public ResponseBase delete(String url) throws ApiException {
+        return delete(url, null);
     }
 
     /**
-     * The method of execute the http request and supports file uploading
+     * Http DELETE method
      * 
-     * @param method     the Http method
-     * @param url        the url string
-     * @param headers    the key, value pairs of http headers
-     * @param uploadFile the file object to upload
-     * @return HttpResponse the httpResponse object
+     * @param url     URL of API supported by Kloudless API server.
+     * @param headers Addition header parameter in this request.
+     * @return ResponseBase object but might be empty content
      * @throws ApiException An error if any data other than 2xx from Kloudless API server or
      *                      upstream services.
      */
-    protected HttpResponse rawFileExecute(String method, String url, Map<String, Object> headers,
-            Object uploadFile) throws ApiException {
-        try {
-            HttpEntity entity = EntityBuilder.create().setFile((File) uploadFile).build();
-            return handleResponse(assembleHttpRequest(method, url, entity, headers,
-                    ContentType.APPLICATION_OCTET_STREAM.getMimeType()));
-        } catch (ApiException | ParseException | IOException e) {
-            throw new ApiException(
-                    "Run http " + method + " to " + url + " failed, " + e.getMessage(), e);
-        }
+    public ResponseBase delete(String url, Map<String, Object> headers) throws ApiException {
+        return runHttpTransaction("DELETE", url, "Json", headers, null);
     }
 
     /**
-     * This method is assemble HttpReques object
-     * 
-     * @param method      the Http method
-     * @param url         the url string
-     * @param entity      the object of HttpEntity
-     * @param headers     the key, value pairs of http headers
-     * @param contentType the contentType of this http rquest header
-     * @return HttpRequestBase The HttpRequest object
-     * @throws UnsupportedEncodingException Error when the unsupport method is inputed
+     * Asynchronous http GET method
+     *
+     * @param url URL of API supported by Kloudless API server.
+     * @return CompletableFuture completed with the ResponseBase, or completed exceptionally with
+     *         an ApiException if any data other than 2xx is returned.
      */
-    private static HttpRequestBase assembleHttpRequest(String method, String url, HttpEntity entity,
-            Map<String, Object> headers, String contentType) throws UnsupportedEncodingException {
-        HttpRequestBase request = requestFactory(method, Application.getBaseUrl() + url, entity);
-        request = assembleHeaders(request, headers, contentType);
-        return request;
+    public CompletableFuture<ResponseBase> getAsync(String url) {
+        return getAsync(url, null);
     }
 
     /**
-     * The method of receving the httpResponse and check the status of httpResponse
-     * 
-     * @param request A HttpRequest object which has populated all essential data
-     * @return HttpResponse the HttpResponse object
-     * @throws ApiException            An error if any data other than 2xx from Kloudless API server
-     *                                 or upstream services.
-     * @throws ClientProtocolException Error when http call failed
-     * @throws IOException             Error when http call failed
-     * @throws ParseException          Error when parse the JsonObject failed
+     * Asynchronous http GET method
+     *
+     * @param url     URL of API supported by Kloudless API server.
+     * @param headers Addition header parameter in this request.
+     * @return CompletableFuture completed with the ResponseBase, or completed exceptionally with
+     *         an ApiException if any data other than 2xx is returned.
      */
-    private static HttpResponse handleResponse(HttpRequestBase request)
-            throws ClientProtocolException, IOException, ApiException, ParseException {
-        HttpClient httpClient = HttpClients.createDefault();
-        HttpResponse response = httpClient.execute(request);
-        if (response.getStatusLine().getStatusCode() < 200
-                || response.getStatusLine().getStatusCode() >= 300) {
-            throw new ApiException("Get error response from API server, status code:"
-                    + response.getStatusLine().getStatusCode() + ", and its message"
-                    + EntityUtils.toString(response.getEntity()), null);
-        }
-        return response;
+    public CompletableFuture<ResponseBase> getAsync(String url, Map<String, Object> headers) {
+        return runHttpTransactionAsync("GET", url, "Json", headers, null, true);
     }
 
     /**
-     * This method merge header from API call and default Headers in the Client object and
-     * attributes of default headers will be overwrite if duplicated
-     * 
-     * @param headers the key value in headers from API call.
-     * @return mergedHeaders the final key value of headers
+     * Asynchronous http GET method for download, the response body is buffered in memory
+     *
+     * @param url URL of a Kloudless API endpoint
+     * @return CompletableFuture completed with the ResponseRaw
      */
-    protected Map<String, Object> mergeHeaders(Map<String, Object> headers) {
-        headers = Optional.ofNullable(headers).orElse(new HashMap<String, Object>());
-        Map<String, Object> mergedMap = new HashMap<String, Object>();
-
-        mergedMap.putAll(this.getDefaultHeaders());
-        // overwrited by additional headers
-        mergedMap.putAll(headers);
+    public CompletableFuture<ResponseRaw> getBinaryAsync(String url) {
+        return getBinaryAsync(url, null);
+    }
 
-        return mergedMap;
+    /**
+     * Asynchronous http GET method for download, the response body is buffered in memory
+     *
+     * @param url     URL of a Kloudless API endpoint
+     * @param headers Additional headers for the request
+     * @return CompletableFuture completed with the ResponseRaw
+     */
+    public CompletableFuture<ResponseRaw> getBinaryAsync(String url,
+            Map<String, Object> headers) {
+        return runHttpTransactionAsync("GET", url, "Json", headers, null, false)
+                .thenApply(response -> (ResponseRaw) response);
     }
 
     /**
-     * Add headers from key value map to request object
+     * Asynchronous http POST method
+     *
+     * @param url     URL of API supported by Kloudless API server.
+     * @param content The post data will be in the request body
+     * @return CompletableFuture completed with the ResponseBase, or completed exceptionally with
+     *         an ApiException if any data other than 2xx is returned.
+     */
+    public CompletableFuture<ResponseBase> postAsync(String url,
+            Map<String, Object> content) {
+        return postAsync(url, null, content);
+    }
+
+    /**
+     * Asynchronous http POST method
+     *
+     * @param url     URL of API supported by Kloudless API server.
+     * @param headers Addition header parameter in this request.
+     * @param content The post data will be in the request body
+     * @return CompletableFuture completed with the ResponseBase, or completed exceptionally with
+     *         an ApiException if any data other than 2xx is returned.
+     */
+    public CompletableFuture<ResponseBase> postAsync(String url, Map<String, Object> headers,
+            Map<String, Object> content) {
+        return runHttpTransactionAsync("POST", url, "Json", headers, content, true);
+    }
+
+    /**
+     * Asynchronous http POST method
+     *
+     * @param url        URL of API supported by Kloudless API server.
+     * @param headers    Addition header parameter in this request.
+     * @param uploadFile File object will be uploaded to the server.
+     * @return CompletableFuture completed with the ResponseBase, or completed exceptionally with
+     *         an ApiException if any data other than 2xx is returned.
+     */
+    public CompletableFuture<ResponseBase> postAsync(String url, Map<String, Object> headers,
+            File uploadFile) {
+        return runHttpTransactionAsync("POST", url, "File", headers, uploadFile, true);
+    }
+
+    /**
+     * Asynchronous http POST method, the remaining bytes of the buffer are uploaded. The buffer
+     * must not be modified until the returned future is completed.
+     *
+     * @param url     URL of API supported by Kloudless API server.
+     * @param headers Addition header parameter in this request.
+     * @param content The buffer of the content to upload.
+     * @return CompletableFuture completed with the ResponseBase, or completed exceptionally with
+     *         an ApiException if any data other than 2xx is returned.
+     */
+    public CompletableFuture<ResponseBase> postAsync(String url, Map<String, Object> headers,
+            ByteBuffer content) {
+        return runHttpTransactionAsync("POST", url, "File", headers,
+                new ByteBufferEntity(content), true);
+    }
+
+    /**
+     * Asynchronous http POST method, the file is transferred from the file channel to the socket
+     * without copying it through the Java heap.
+     *
+     * @param url        URL of API supported by Kloudless API server.
+     * @param headers    Addition header parameter in this request.
+     * @param uploadFile The path of the file to upload.
+     * @return CompletableFuture completed with the ResponseBase, or completed exceptionally with
+     *         an ApiException if any data other than 2xx is returned.
+     */
+    public CompletableFuture<ResponseBase> postAsync(String url, Map<String, Object> headers,
+            Path uploadFile) {
+        return runHttpTransactionAsync("POST", url, "File", headers, uploadFile, true);
+    }
+
+    /**
+     * Asynchronous http PATCH method
+     *
+     * @param url     URL of API supported by Kloudless API server.
+     * @param content The patch data will be in the request body
+     * @return CompletableFuture completed with the ResponseBase, or completed exceptionally with
+     *         an ApiException if any data other than 2xx is returned.
+     */
+    public CompletableFuture<ResponseBase> patchAsync(String url,
+            Map<String, Object> content) {
+        return patchAsync(url, null, content);
+    }
+
+    /**
+     * Asynchronous http PATCH method
+     *
+     * @param url     URL of API supported by Kloudless API server.
+     * @param headers Addition header parameter in this request.
+     * @param content The patch data will be in the request body
+     * @return CompletableFuture completed with the ResponseBase, or completed exceptionally with
+     *         an ApiException if any data other than 2xx is returned.
+     */
+    public CompletableFuture<ResponseBase> patchAsync(String url, Map<String, Object> headers,
+            Map<String, Object> content) {
+        return runHttpTransactionAsync("PATCH", url, "Json", headers, content, true);
+    }
+
+    /**
+     * Asynchronous http PATCH method
+     *
+     * @param url        URL of API supported by Kloudless API server.
+     * @param headers    Addition header parameter in this request.
+     * @param uploadFile File object will be uploaded to the server.
+     * @return CompletableFuture completed with the ResponseBase, or completed exceptionally with
+     *         an ApiException if any data other than 2xx is returned.
+     */
+    public CompletableFuture<ResponseBase> patchAsync(String url, Map<String, Object> headers,
+            File uploadFile) {
+        return runHttpTransactionAsync("PATCH", url, "File", headers, uploadFile, true);
+    }
+
+    /**
+     * Asynchronous http PATCH method, the remaining bytes of the buffer are uploaded. The buffer
+     * must not be modified until the returned future is completed.
+     *
+     * @param url     URL of API supported by Kloudless API server.
+     * @param headers Addition header parameter in this request.
+     * @param content The buffer of the content to upload.
+     * @return CompletableFuture completed with the ResponseBase, or completed exceptionally with
+     *         an ApiException if any data other than 2xx is returned.
+     */
+    public CompletableFuture<ResponseBase> patchAsync(String url, Map<String, Object> headers,
+            ByteBuffer content) {
+        return runHttpTransactionAsync("PATCH", url, "File", headers,
+                new ByteBufferEntity(content), true);
+    }
+
+    /**
+     * Asynchronous http PATCH method, the file is transferred from the file channel to the socket
+     * without copying it through the Java heap.
+     *
+     * @param url        URL of API supported by Kloudless API server.
+     * @param headers    Addition header parameter in this request.
+     * @param uploadFile The path of the file to upload.
+     * @return CompletableFuture completed with the ResponseBase, or completed exceptionally with
+     *         an ApiException if any data other than 2xx is returned.
+     */
+    public CompletableFuture<ResponseBase> patchAsync(String url, Map<String, Object> headers,
+            Path uploadFile) {
+        return runHttpTransactionAsync("PATCH", url, "File", headers, uploadFile, true);
+    }
+
+    /**
+     * Asynchronous http PUT method
+     *
+     * @param url     URL of API supported by Kloudless API server.
+     * @param content The put data will be in the request body
+     * @return CompletableFuture completed with the ResponseBase, or completed exceptionally with
+     *         an ApiException if any data other than 2xx is returned.
+     */
+    public CompletableFuture<ResponseBase> putAsync(String url,
+            Map<String, Object> content) {
+        return putAsync(url, null, content);
+    }
+
+    /**
+     * Asynchronous http PUT method
+     *
+     * @param url     URL of API supported by Kloudless API server.
+     * @param headers Addition header parameter in this request.
+     * @param content The put data will be in the request body
+     * @return CompletableFuture completed with the ResponseBase, or completed exceptionally with
+     *         an ApiException if any data other than 2xx is returned.
+     */
+    public CompletableFuture<ResponseBase> putAsync(String url, Map<String, Object> headers,
+            Map<String, Object> content) {
+        return runHttpTransactionAsync("PUT", url, "Json", headers, content, true);
+    }
+
+    /**
+     * Asynchronous http PUT method
+     *
+     * @param url        URL of API supported by Kloudless API server.
+     * @param headers    Addition header parameter in this request.
+     * @param uploadFile File object will be uploaded to the server.
+     * @return CompletableFuture completed with the ResponseBase, or completed exceptionally with
+     *         an ApiException if any data other than 2xx is returned.
+     */
+    public CompletableFuture<ResponseBase> putAsync(String url, Map<String, Object> headers,
+            File uploadFile) {
+        return runHttpTransactionAsync("PUT", url, "File", headers, uploadFile, true);
+    }
+
+    /**
+     * Asynchronous http PUT method, the remaining bytes of the buffer are uploaded. The buffer
+     * must not be modified until the returned future is completed.
+     *
+     * @param url     URL of API supported by Kloudless API server.
+     * @param headers Addition header parameter in this request.
+     * @param content The buffer of the content to upload.
+     * @return CompletableFuture completed with the ResponseBase, or completed exceptionally with
+     *         an ApiException if any data other than 2xx is returned.
+     */
+    public CompletableFuture<ResponseBase> putAsync(String url, Map<String, Object> headers,
+            ByteBuffer content) {
+        return runHttpTransactionAsync("PUT", url, "File", headers,
+                new ByteBufferEntity(content), true);
+    }
+
+    /**
+     * Asynchronous http PUT method, the file is transferred from the file channel to the socket
+     * without copying it through the Java heap.
+     *
+     * @param url        URL of API supported by Kloudless API server.
+     * @param headers    Addition header parameter in this request.
+     * @param uploadFile The path of the file to upload.
+     * @return CompletableFuture completed with the ResponseBase, or completed exceptionally with
+     *         an ApiException if any data other than 2xx is returned.
+     */
+    public CompletableFuture<ResponseBase> putAsync(String url, Map<String, Object> headers,
+            Path uploadFile) {
+        return runHttpTransactionAsync("PUT", url, "File", headers, uploadFile, true);
+    }
+
+    /**
+     * Asynchronous http DELETE method
+     *
+     * @param url URL of API supported by Kloudless API server.
+     * @return CompletableFuture completed with the ResponseBase, or completed exceptionally with
+     *         an ApiException if any data other than 2xx is returned.
+     */
+    public CompletableFuture<ResponseBase> deleteAsync(String url) {
+        return deleteAsync(url, null);
+    }
+
+    /**
+     * Asynchronous http DELETE method
+     *
+     * @param url     URL of API supported by Kloudless API server.
+     * @param headers Addition header parameter in this request.
+     * @return CompletableFuture completed with the ResponseBase, or completed exceptionally with
+     *         an ApiException if any data other than 2xx is returned.
+     */
+    public CompletableFuture<ResponseBase> deleteAsync(String url, Map<String, Object> headers) {
+        return runHttpTransactionAsync("DELETE", url, "Json", headers, null, true);
+    }
+
+    /**
+     * This method finds the proper rawExecute method and dispatches the request
+     *
+     * @param method  the HTTP method
+     * @param url     the URL string
+     * @param format  String should be one of Json, File or Form
+     * @param headers the key-value pairs of the request headers
+     * @param content the key-value pairs of the request body
+     * @return ResponseBase A ResponseBase instance
+     * @throws ApiException Error if the request failed
+     */
+    private ResponseBase runHttpTransaction(
+            String method, String url, String format, Map<String, Object> headers,
+            Object content) throws ApiException {
+        return runHttpTransaction(method, url, format, headers, content, true);
+    }
+
+    /**
+     * This method finds the proper rawExecute method and dispatches the request
+     *
+     * @param method  the HTTP method
+     * @param url     the URL string
+     * @param format  String should be one of Json, File or Form
+     * @param headers the key-value pairs of the request headers
+     * @param content the key-value pairs of the request body
+     * @param tryJson whether to try parsing the response body as a JSON object
+     * @return ResponseBase A ResponseBase instance
+     * @throws ApiException Error if the request failed
+     */
+    private ResponseBase runHttpTransaction(
+            String method, String url, String format, Map<String, Object> headers,
+            Object content, Boolean tryJson) throws ApiException {
+        HttpTransport transport = Application.leaseTransport();
+        try {
+            return runHttpTransaction(transport, method, url, format, headers, content, tryJson);
+        } finally {
+            transport.release();
+        }
+    }
+
+    /**
+     * This method finds the proper rawExecute method and dispatches the request on the given
+     * transport
+     *
+     * @param transport the transport leased for this transaction
+     * @param method    the HTTP method
+     * @param url       the URL string
+     * @param format    String should be one of Json, File or Form
+     * @param headers   the key-value pairs of the request headers
+     * @param content   the key-value pairs of the request body
+     * @param tryJson   whether to try parsing the response body as a JSON object
+     * @return ResponseBase A ResponseBase instance
+     * @throws ApiException Error if the request failed
+     */
+    private ResponseBase runHttpTransaction(HttpTransport transport,
+            String method, String url, String format, Map<String, Object> headers,
+            Object content, Boolean tryJson) throws ApiException {
+        url = assembleUrl(url);
+        headers = mergeHeaders(headers);
+        MetadataCache metadata = transport.getMetadataCache();
+        if (metadata != null) {
+            ResponseBase cachedResource = lookupMetadata(metadata, method, url, headers, tryJson);
+            if (cachedResource != null) {
+                return cachedResource;
+            }
+            invalidateMetadata(metadata, method, url, headers);
+        }
+        RequestCoalescer<ResponseBase> coalescer =
+                getRequestCoalescer(transport, method, url, tryJson);
+        if (coalescer == null) {
+            return executeTransaction(transport, method, url, format, headers, content, tryJson);
+        }
+        String key = RequestCoalescer.key(url, headers);
+        CompletableFuture<ResponseBase> call = new CompletableFuture<ResponseBase>();
+        CompletableFuture<ResponseBase> shared = coalescer.join(key, call);
+        if (shared != null) {
+            ResponseBase result = awaitResponse(shared);
+            if (result instanceof ResponseRaw) {
+                // a raw body can only be read once
+                return executeTransaction(transport, method, url, format, headers, content,
+                        tryJson);
+            }
+            return copyResponse(result, new RequestContext(url, headers));
+        }
+        ResponseBase result = null;
+        Throwable error = null;
+        try {
+            result = executeTransaction(transport, method, url, format, headers, content,
+                    tryJson);
+            return result;
+        } catch (ApiException | RuntimeException | Error e) {
+            error = e;
+            throw e;
+        } finally {
+            coalescer.leave(key, call);
+            if (error == null) {
+                // the waiters copy a snapshot, the caller may modify the result meanwhile
+                call.complete(result instanceof ResponseRaw ? result
+                        : copyResponse(result, new RequestContext(url, headers)));
+            } else {
+                call.completeExceptionally(error);
+            }
+        }
+    }
+
+    /**
+     * This method sends the request with the proper rawExecute method and parses the response
+     *
+     * @param transport the transport leased for this transaction
+     * @param method    the HTTP method
+     * @param url       the assembled URL string
+     * @param format    String should be one of Json, File or Form
+     * @param headers   the merged key-value pairs of the request headers
+     * @param content   the key-value pairs of the request body
+     * @param tryJson   whether to try parsing the response body as a JSON object
+     * @return ResponseBase A ResponseBase instance
+     * @throws ApiException Error if the request failed
+     */
+    private ResponseBase executeTransaction(HttpTransport transport,
+            String method, String url, String format, Map<String, Object> headers,
+            Object content, Boolean tryJson) throws ApiException {
+        MetadataCache metadata = transport.getMetadataCache();
+        RequestListener listener = transport.getConfig().getRequestListener();
+        RequestEvent event = listener == null && !FlightEvents.isEnabled() ? null
+                : new RequestEvent(method, url);
+        Map<String, Object> requestHeaders =
+                negotiateEncoding(transport.getConfig(), headers, tryJson);
+        ResponseCache<ResponseBase> cache = getResponseCache(transport, method, tryJson);
+        String cacheKey = null;
+        ResponseCache.Entry<ResponseBase> cached = null;
+        if (cache != null) {
+            cacheKey = ResponseCache.key(url, headers.get("Authorization"));
+            cached = cache.get(cacheKey);
+            requestHeaders = addValidators(requestHeaders, cached);
+        }
+        HttpResponse httpResponse = null;
+        ResponseBase result;
+        try {
+            httpResponse = rawExecute(transport, method, url, format.toUpperCase(),
+                    requestHeaders, content, event);
+            if (event != null) {
+                event.parseStarted();
+            }
+            result = cache == null
+                    ? responseFactory(httpResponse, url, headers, method, tryJson)
+                    : cachedResponseFactory(cache, cacheKey, cached, httpResponse, url, headers);
+        } catch (ApiException | RuntimeException e) {
+            reportRequest(listener, event, httpResponse, e);
+            throw e;
+        }
+        reportRequest(listener, event, httpResponse, null);
+        if (metadata != null) {
+            updateMetadata(metadata, method, url, headers, result);
+        }
+        return result;
+    }
+
+    /**
+     * This method dispatches the request on the non-blocking http client. The response is parsed
+     * on the callback executor of the transport, never on the I/O threads.
+     *
+     * @param method  the HTTP method
+     * @param url     the URL string
+     * @param format  String should be one of Json, File or Form
+     * @param headers the key-value pairs of the request headers
+     * @param content the request body
+     * @param tryJson whether to try parsing the response body as a JSON object
+     * @return CompletableFuture completed with the ResponseBase instance
+     */
+    CompletableFuture<ResponseBase> runHttpTransactionAsync(
+            String method, String url, String format, Map<String, Object> headers,
+            Object content, Boolean tryJson) {
+        HttpTransport transport = Application.leaseTransport();
+        try {
+            return releaseWhenDone(transport, runHttpTransactionAsync(transport, method, url,
+                    format, headers, content, tryJson));
+        } catch (RuntimeException | Error e) {
+            transport.release();
+            throw e;
+        }
+    }
+
+    /**
+     * This method dispatches the request on the non-blocking http client of the given transport,
+     * e.g. one leased for all parts of a multipart upload
+     *
+     * @param transport the transport leased for this transaction
+     * @param method    the HTTP method
+     * @param url       the URL string
+     * @param format    String should be one of Json, File or Form
+     * @param headers   the key-value pairs of the request headers
+     * @param content   the request body
+     * @param tryJson   whether to try parsing the response body as a JSON object
+     * @return CompletableFuture completed with the ResponseBase instance
+     */
+    CompletableFuture<ResponseBase> runHttpTransactionAsync(HttpTransport transport,
+            String method, String url, String format, Map<String, Object> headers,
+            Object content, Boolean tryJson) {
+        String assembledUrl = assembleUrl(url);
+        Map<String, Object> mergedHeaders = mergeHeaders(headers);
+        MetadataCache metadata = transport.getMetadataCache();
+        if (metadata != null) {
+            ResponseBase cachedResource =
+                    lookupMetadata(metadata, method, assembledUrl, mergedHeaders, tryJson);
+            if (cachedResource != null) {
+                return CompletableFuture.completedFuture(cachedResource);
+            }
+            invalidateMetadata(metadata, method, assembledUrl, mergedHeaders);
+        }
+        RequestCoalescer<ResponseBase> coalescer =
+                getRequestCoalescer(transport, method, assembledUrl, tryJson);
+        if (coalescer == null) {
+            return executeTransactionAsync(transport, method, assembledUrl, format,
+                    mergedHeaders, content, tryJson);
+        }
+        String key = RequestCoalescer.key(assembledUrl, mergedHeaders);
+        CompletableFuture<ResponseBase> call = new CompletableFuture<ResponseBase>();
+        CompletableFuture<ResponseBase> shared = coalescer.join(key, call);
+        if (shared != null) {
+            return shared.thenCompose(result -> result instanceof ResponseRaw
+                    ? executeTransactionAsync(transport, method, assembledUrl, format,
+                            mergedHeaders, content, tryJson)
+                    : CompletableFuture.completedFuture(copyResponse(result,
+                            new RequestContext(assembledUrl, mergedHeaders))));
+        }
+        CompletableFuture<ResponseBase> own = new CompletableFuture<ResponseBase>();
+        executeTransactionAsync(transport, method, assembledUrl, format, mergedHeaders, content,
+                tryJson).whenComplete((result, e) -> {
+                    coalescer.leave(key, call);
+                    if (e != null) {
+                        call.completeExceptionally(e);
+                        own.completeExceptionally(e);
+                    } else {
+                        // the waiters copy a snapshot, the caller may modify the result meanwhile
+                        call.complete(result instanceof ResponseRaw ? result
+                                : copyResponse(result,
+                                        new RequestContext(assembledUrl, mergedHeaders)));
+                        own.complete(result);
+                    }
+                });
+        return own;
+    }
+
+    /**
+     * This method sends the request on the non-blocking http client and parses the response on
+     * the callback executor of the transport
+     *
+     * @param transport     the transport leased for this transaction
+     * @param method        the HTTP method
+     * @param assembledUrl  the assembled URL string
+     * @param format        String should be one of Json, File or Form
+     * @param mergedHeaders the merged key-value pairs of the request headers
+     * @param content       the request body
+     * @param tryJson       whether to try parsing the response body as a JSON object
+     * @return CompletableFuture completed with the ResponseBase instance
+     */
+    private CompletableFuture<ResponseBase> executeTransactionAsync(HttpTransport transport,
+            String method, String assembledUrl, String format, Map<String, Object> mergedHeaders,
+            Object content, Boolean tryJson) {
+        MetadataCache metadata = transport.getMetadataCache();
+        RequestListener listener = transport.getConfig().getRequestListener();
+        RequestEvent event = listener == null && !FlightEvents.isEnabled() ? null
+                : new RequestEvent(method, assembledUrl);
+        Map<String, Object> requestHeaders =
+                negotiateEncoding(transport.getConfig(), mergedHeaders, tryJson);
+        ResponseCache<ResponseBase> cache = getResponseCache(transport, method, tryJson);
+        String cacheKey = cache == null ? null
+                : ResponseCache.key(assembledUrl, mergedHeaders.get("Authorization"));
+        ResponseCache.Entry<ResponseBase> cached = cache == null ? null : cache.get(cacheKey);
+        if (cached != null) {
+            requestHeaders = addValidators(requestHeaders, cached);
+        }
+        HttpRequestBase request;
+        CompletableFuture<HttpResponse> future;
+        try {
+            request = assembleRequest(method, assembledUrl, format.toUpperCase(), requestHeaders,
+                    content);
+            if (event != null) {
+                event.requestAssembled(request);
+            }
+            RetryPolicy policy = getRetryPolicy(transport);
+            policy.recordRequest();
+            future = executeWithRetries(transport, request, method, assembledUrl, policy, 1,
+                    event);
+        } catch (IOException | RuntimeException e) {
+            ApiException error = new ApiException(
+                    "Run http " + method + " to " + assembledUrl + " failed, " + e.getMessage(),
+                    e);
+            reportRequest(listener, event, null, error);
+            CompletableFuture<ResponseBase> failed = new CompletableFuture<ResponseBase>();
+            failed.completeExceptionally(error);
+            return failed;
+        }
+        if (event != null) {
+            future.whenComplete((response, e) -> {
+                if (e != null) {
+                    reportRequest(listener, event, null,
+                            e instanceof CompletionException ? e.getCause() : e);
+                }
+            });
+        }
+        return future.thenApplyAsync(response -> {
+            if (event != null) {
+                event.parseStarted();
+            }
+            ResponseBase result;
+            try {
+                DecodingEntity.decode(response, transport.getStatistics());
+                if (!isNotModified(response) || !isConditional(request)) {
+                    checkStatus(response);
+                }
+                result = cache == null
+                        ? responseFactory(response, assembledUrl, mergedHeaders, method, tryJson)
+                        : cachedResponseFactory(cache, cacheKey, cached, response, assembledUrl,
+                                mergedHeaders);
+            } catch (ApiException e) {
+                reportRequest(listener, event, response, e);
+                throw new CompletionException(e);
+            } catch (ParseException | IOException e) {
+                ApiException error = new ApiException("Run http " + method + " to "
+                        + assembledUrl + " failed, " + e.getMessage(), e);
+                reportRequest(listener, event, response, error);
+                throw new CompletionException(error);
+            } catch (RuntimeException e) {
+                reportRequest(listener, event, response, e);
+                throw e;
+            }
+            reportRequest(listener, event, response, null);
+            if (metadata != null) {
+                updateMetadata(metadata, method, assembledUrl, mergedHeaders, result);
+            }
+            return result;
+        }, transport.getConfig().getCallbackExecutor());
+    }
+
+    /**
+     * This method dispatches a request on the non-blocking http client once and hands the
+     * response to the given consumer, e.g. to write a download straight to a file. The status of
+     * the response is not checked and the request is not retried, the caller decides about both.
+     *
+     * @param transport the transport leased for this transaction
+     * @param method    the HTTP method
+     * @param url       the URL string
+     * @param format    String should be one of Json, File or Form
+     * @param headers   the key-value pairs of the request headers
+     * @param content   the request body, or null
+     * @param consumer  the consumer of the response
+     * @param <T>       the type of the result of the consumer
+     * @return CompletableFuture completed with the result of the consumer
+     */
+    <T> CompletableFuture<T> runHttpTransactionAsync(HttpTransport transport, String method,
+            String url, String format, Map<String, Object> headers, Object content,
+            HttpAsyncResponseConsumer<T> consumer) {
+        String assembledUrl = assembleUrl(url);
+        RequestListener listener = transport.getConfig().getRequestListener();
+        RequestEvent event = listener == null && !FlightEvents.isEnabled() ? null
+                : new RequestEvent(method, assembledUrl);
+        try {
+            HttpRequestBase request = assembleRequest(method, assembledUrl, format.toUpperCase(),
+                    mergeHeaders(headers), content);
+            if (event != null) {
+                event.requestAssembled(request);
+            }
+            CompletableFuture<T> future = executeAsync(transport, request, consumer, method,
+                    assembledUrl, event);
+            if (event != null) {
+                future.whenComplete((result, e) -> reportRequest(listener, event, null,
+                        e instanceof CompletionException ? e.getCause() : e));
+            }
+            return future;
+        } catch (IOException | RuntimeException e) {
+            ApiException error = new ApiException(
+                    "Run http " + method + " to " + assembledUrl + " failed, " + e.getMessage(),
+                    e);
+            reportRequest(listener, event, null, error);
+            CompletableFuture<T> future = new CompletableFuture<T>();
+            future.completeExceptionally(error);
+            return future;
+        }
+    }
+
+    /**
+     * Execute the request on the non-blocking http client and retry it according to the retry
+     * policy. Retries are scheduled on the scheduler of the transport, no thread waits for them.
+     *
+     * @param transport the transport leased for this transaction
+     * @param request   the assembled request
+     * @param method    the HTTP method, used in error messages
+     * @param url       the URL string, used in error messages
+     * @param policy    the retry policy
+     * @param attempt   the number of this attempt, starting from 1
+     * @param event     the event recording the timings of the request, or null
+     * @return CompletableFuture completed with the response of the last attempt
+     * @throws IOException Error when the non-blocking client could not be started
+     */
+    private static CompletableFuture<HttpResponse> executeWithRetries(HttpTransport transport,
+            HttpRequestBase request, String method, String url, RetryPolicy policy, int attempt,
+            RequestEvent event) throws IOException {
+        return executeAsync(transport, request, HttpAsyncMethods.createConsumer(), method, url,
+                event)
+                .handle((response, e) -> {
+                    long delay;
+                    if (e == null) {
+                        delay = isSuccess(response) ? -1
+                                : policy.nextRetryDelay(request, attempt, response, null);
+                    } else {
+                        Throwable cause = e instanceof CompletionException ? e.getCause() : e;
+                        delay = cause instanceof ApiException && cause.getCause() != null
+                                ? policy.nextRetryDelay(request, attempt, null,
+                                        (Exception) cause.getCause())
+                                : -1;
+                    }
+                    CompletableFuture<HttpResponse> next = new CompletableFuture<HttpResponse>();
+                    if (delay < 0) {
+                        if (e == null) {
+                            next.complete(response);
+                        } else {
+                            next.completeExceptionally(e);
+                        }
+                        return next;
+                    }
+                    transport.getScheduler().schedule(() -> {
+                        try {
+                            executeWithRetries(transport, request, method, url, policy,
+                                    attempt + 1, event)
+                                    .whenComplete((retried, error) -> {
+                                        if (error != null) {
+                                            next.completeExceptionally(error);
+                                        } else {
+                                            next.complete(retried);
+                                        }
+                                    });
+                        } catch (IOException | RuntimeException error) {
+                            next.completeExceptionally(new ApiException("Run http " + method
+                                    + " to " + url + " failed, " + error.getMessage(), error));
+                        }
+                    }, delay, TimeUnit.MILLISECONDS);
+                    return next;
+                }).thenCompose(next -> next);
+    }
+
+    /**
+     * Execute the request on the non-blocking http client once the rate limits of its account
+     * and API key and the concurrency limit of its service type allow it, without blocking the
+     * caller. Cancelling the returned future cancels the request.
+     *
+     * @param transport the transport leased for this transaction
+     * @param request   the assembled request
+     * @param consumer  the consumer of the response
+     * @param method    the HTTP method, used in error messages
+     * @param url       the URL string, used in error messages
+     * @param event     the event recording the timings of the request, or null
+     * @param <T>       the type of the result of the consumer
+     * @return CompletableFuture completed with the result of the consumer
+     * @throws IOException Error when the non-blocking client could not be started
+     */
+    private static <T> CompletableFuture<T> executeAsync(HttpTransport transport,
+            HttpRequestBase request, HttpAsyncResponseConsumer<T> consumer, String method,
+            String url, RequestEvent event) throws IOException {
+        long queued = event == null ? 0 : System.nanoTime();
+        HttpAsyncResponseConsumer<T> timedConsumer =
+                event == null ? consumer : new TimingResponseConsumer<T>(consumer, event);
+        long wait = transport.getRateLimits().reserve(request);
+        ConcurrencyLimiter limiter = transport.getConcurrencyLimits().getLimiter(request);
+        if (wait <= 0 && (limiter == null || limiter.tryAcquire())) {
+            if (event != null) {
+                event.requestSent(System.nanoTime() - queued);
+            }
+            return executeAsyncNow(transport, request, timedConsumer, method, url, limiter);
+        }
+        CompletableFuture<Void> ready = new CompletableFuture<Void>();
+        if (wait <= 0) {
+            ready.complete(null);
+        } else {
+            transport.getScheduler().schedule(() -> ready.complete(null), wait,
+                    TimeUnit.NANOSECONDS);
+        }
+        CompletableFuture<Void> slot = limiter == null ? ready
+                : ready.thenCompose(ignored -> limiter.acquireAsync());
+        CompletableFuture<T> future = new CompletableFuture<T>();
+        slot.thenRun(() -> {
+            if (future.isDone()) {
+                releaseSlot(limiter, -1, false);
+                return;
+            }
+            try {
+                if (event != null) {
+                    event.requestSent(System.nanoTime() - queued);
+                }
+                CompletableFuture<T> execution =
+                        executeAsyncNow(transport, request, timedConsumer, method, url, limiter);
+                execution.whenComplete((result, e) -> {
+                    if (e != null) {
+                        future.completeExceptionally(e);
+                    } else {
+                        future.complete(result);
+                    }
+                });
+                future.whenComplete((result, e) -> {
+                    if (future.isCancelled()) {
+                        execution.cancel(false);
+                    }
+                });
+            } catch (IOException | RuntimeException e) {
+                future.completeExceptionally(new ApiException(
+                        "Run http " + method + " to " + url + " failed, " + e.getMessage(), e));
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Execute the request on the non-blocking http client right away
+     *
+     * @param transport the transport leased for this transaction
+     * @param request   the assembled request
+     * @param consumer  the consumer of the response
+     * @param method    the HTTP method, used in error messages
+     * @param url       the URL string, used in error messages
+     * @param limiter   the concurrency limiter whose slot the request holds, or null
+     * @param <T>       the type of the result of the consumer
+     * @return CompletableFuture completed with the result of the consumer
+     * @throws IOException Error when the non-blocking client could not be started
+     */
+    private static <T> CompletableFuture<T> executeAsyncNow(HttpTransport transport,
+            HttpRequestBase request, HttpAsyncResponseConsumer<T> consumer, String method,
+            String url, ConcurrencyLimiter limiter) throws IOException {
+        CompletableFuture<T> future = new CompletableFuture<T>();
+        long start = System.nanoTime();
+        Future<T> httpFuture;
+        try {
+            httpFuture = transport.getAsyncClient().execute(
+                    HttpAsyncMethods.create(request), consumer, new FutureCallback<T>() {
+                        @Override
+                        public void completed(T result) {
+                            releaseSlot(limiter, start, result instanceof HttpResponse
+                                    && isThrottled((HttpResponse) result));
+                            future.complete(result);
+                        }
+
+                        @Override
+                        public void failed(Exception e) {
+                            releaseSlot(limiter, future.isCancelled() ? -1 : start, true);
+                            future.completeExceptionally(new ApiException(
+                                    "Run http " + method + " to " + url + " failed, "
+                                            + e.getMessage(), e));
+                        }
+
+                        @Override
+                        public void cancelled() {
+                            releaseSlot(limiter, -1, false);
+                            future.cancel(false);
+                        }
+                    });
+        } catch (IOException | RuntimeException e) {
+            releaseSlot(limiter, -1, false);
+            throw e;
+        }
+        future.whenComplete((result, e) -> {
+            if (future.isCancelled()) {
+                httpFuture.cancel(true);
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Finish the event of a transaction and notify the request listener
+     *
+     * @param listener the request listener, or null
+     * @param event    the event of the transaction, or null if requests are not measured
+     * @param response the last response, or null if there is none
+     * @param error    the error the transaction failed with, or null
+     */
+    private static void reportRequest(RequestListener listener, RequestEvent event,
+            HttpResponse response, Throwable error) {
+        if (event != null) {
+            event.finish(response, error);
+            if (listener != null) {
+                listener.onRequest(event);
+            }
+        }
+    }
+
+    /**
+     * Release the lease of an asynchronous transaction once it is done
+     *
+     * @param transport the transport leased for the transaction
+     * @param future    the future of the transaction
+     * @param <T>       the type of the result
+     * @return CompletableFuture the future of the transaction
+     */
+    static <T> CompletableFuture<T> releaseWhenDone(HttpTransport transport,
+            CompletableFuture<T> future) {
+        future.whenComplete((result, e) -> transport.release());
+        return future;
+    }
+
+    /**
+     * Wait for an asynchronous request, so blocking methods can use the non-blocking client
+     *
+     * @param future the future returned by runHttpTransactionAsync
+     * @return ResponseBase the response
+     * @throws ApiException Error if the request failed
+     */
+    private static ResponseBase awaitResponse(CompletableFuture<ResponseBase> future)
+            throws ApiException {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof ApiException) {
+                throw (ApiException) e.getCause();
+            }
+            throw new ApiException("Request failed, " + e.getCause().getMessage(), e);
+        }
+    }
+
+    /**
+     * Add the Accept-Encoding header unless the caller has set it. Compression is requested for
+     * JSON responses, and for binary responses only if enabled in the TransportConfig.
+     *
+     * @param config  the settings of the transport
+     * @param headers the key-value pairs of the request headers
+     * @param tryJson whether the response body is expected to be a JSON object
+     * @return Map the headers to send
+     */
+    private static Map<String, Object> negotiateEncoding(TransportConfig config,
+            Map<String, Object> headers, boolean tryJson) {
+        boolean compress =
+                tryJson ? config.isResponseCompression() : config.isBinaryCompression();
+        if (!compress || headers.containsKey("Accept-Encoding")) {
+            return headers;
+        }
+        return RequestTemplate.withHeader(headers, "Accept-Encoding", "gzip, deflate");
+    }
+
+    /**
+     * The method of execute the http request and supports form data content
      * 
-     * @param request     the HttpRequest object
-     * @param headers     the key value pair of headers
-     * @param contentType the content type in the headers
-     * @return HttpRequest object
+     * @param method  the Http method
+     * @param url     the url string
+     * @param headers the key, value pairs of http headers
+     * @param content the key, value pairs of http body
+     * @return HttpResponse the httpResponse object
+     * @throws ApiException An error if any data other than 2xx from Kloudless API server or
+     *                      upstream services.
+     */
+    protected HttpResponse rawFormExecute(String method, String url, Map<String, Object> headers,
+            Object content) throws ApiException {
+        return rawExecute(method, url, "FORM", headers, content);
+    }
+
+    /**
+     * The method of execute the http request and supports json data content
+     * 
+     * @param method  the Http method
+     * @param url     the url string
+     * @param headers the key, value pairs of http headers
+     * @param content the key, value pairs of http body
+     * @return HttpResponse the httpResponse object
+     * @throws ApiException An error if any data other than 2xx from Kloudless API server or
+     *                      upstream services.
+     */
+    protected HttpResponse rawJsonExecute(String method, String url, Map<String, Object> headers,
+            Object content) throws ApiException {
+        return rawExecute(method, url, "JSON", headers, content);
+    }
+
+    /**
+     * The method of execute the http request and supports file uploading
+     * 
+     * @param method     the Http method
+     * @param url        the url string
+     * @param headers    the key, value pairs of http headers
+     * @param uploadFile the file object to upload
+     * @return HttpResponse the httpResponse object
+     * @throws ApiException An error if any data other than 2xx from Kloudless API server or
+     *                      upstream services.
+     */
+    protected HttpResponse rawFileExecute(String method, String url, Map<String, Object> headers,
+            Object uploadFile) throws ApiException {
+        return rawExecute(method, url, "FILE", headers, uploadFile);
+    }
+
+    /**
+     * The method of execute the http request with the given format of http body, and report it
+     * to the request listener
+     *
+     * @param method  the Http method
+     * @param url     the url string
+     * @param format  String should be one of JSON, FILE or FORM
+     * @param headers the key, value pairs of http headers
+     * @param content the http body
+     * @return HttpResponse the httpResponse object
+     * @throws ApiException An error if any data other than 2xx from Kloudless API server or
+     *                      upstream services.
+     */
+    private HttpResponse rawExecute(String method, String url, String format,
+            Map<String, Object> headers, Object content) throws ApiException {
+        HttpTransport transport = Application.leaseTransport();
+        try {
+            RequestListener listener = transport.getConfig().getRequestListener();
+            if (listener == null && !FlightEvents.isEnabled()) {
+                return rawExecute(transport, method, url, format, headers, content, null);
+            }
+            RequestEvent event = new RequestEvent(method, url);
+            HttpResponse response;
+            try {
+                response = rawExecute(transport, method, url, format, headers, content, event);
+            } catch (ApiException | RuntimeException e) {
+                reportRequest(listener, event, null, e);
+                throw e;
+            }
+            reportRequest(listener, event, response, null);
+            return response;
+        } finally {
+            transport.release();
+        }
+    }
+
+    /**
+     * The method of execute the http request with the given format of http body
+     *
+     * @param transport the transport leased for this transaction
+     * @param method    the Http method
+     * @param url       the url string
+     * @param format    String should be one of JSON, FILE or FORM
+     * @param headers   the key, value pairs of http headers
+     * @param content   the http body
+     * @param event     the event recording the timings of the request, or null
+     * @return HttpResponse the httpResponse object
+     * @throws ApiException An error if any data other than 2xx from Kloudless API server or
+     *                      upstream services.
+     */
+    private HttpResponse rawExecute(HttpTransport transport, String method, String url,
+            String format, Map<String, Object> headers, Object content, RequestEvent event)
+            throws ApiException {
+        try {
+            return handleResponse(transport,
+                    assembleRequest(method, url, format, headers, content), event);
+        } catch (ApiException | ParseException | IOException e) {
+            throw new ApiException(
+                    "Run http " + method + " to " + url + " failed, " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Assemble the HttpRequest object for the given format of http body
+     *
+     * @param method  the Http method
+     * @param url     the url string
+     * @param format  String should be one of JSON, FILE or FORM
+     * @param headers the key, value pairs of http headers
+     * @param content the http body
+     * @return HttpRequestBase The HttpRequest object
+     * @throws IOException Error when the http body could not be assembled
+     */
+    private static HttpRequestBase assembleRequest(String method, String url, String format,
+            Map<String, Object> headers, Object content) throws IOException {
+        switch (format) {
+            case "JSON":
+                return assembleJsonRequest(method, url, headers, content);
+            case "FORM":
+                return assembleFormRequest(method, url, headers, content);
+            case "FILE":
+                return assembleFileRequest(method, url, headers, content);
+            default:
+                throw new IllegalArgumentException("Invalid HTTP method: " + format);
+        }
+    }
+
+    /**
+     * Assemble the HttpRequest object with form data content
+     *
+     * @param method  the Http method
+     * @param url     the url string
+     * @param headers the key, value pairs of http headers
+     * @param content the key, value pairs of http body
+     * @return HttpRequestBase The HttpRequest object
+     * @throws UnsupportedEncodingException Error when the content could not be encoded
      */
-    private static HttpRequestBase assembleHeaders(HttpRequestBase request,
-            Map<String, Object> headers, String contentType) {
-        for (Entry entry : headers.entrySet()) {
-            request.addHeader((String) entry.getKey(), (String) entry.getValue());
+    private static HttpRequestBase assembleFormRequest(String method, String url,
+            Map<String, Object> headers, Object content) throws UnsupportedEncodingException {
+        content = Optional.ofNullable(content).orElse(new HashMap<String, Object>());
+        List<NameValuePair> requestContent = new ArrayList<NameValuePair>();
+        for (Entry entry : ((Map<String, Object>) content).entrySet()) {
+            requestContent.add(
+                    new BasicNameValuePair((String) entry.getKey(), (String) entry.getValue()));
         }
-        request.addHeader("User-Agent", "kloudless-java/" + Application.getSDKVersion());
-        request.addHeader("Content-Type", contentType);
-        return request;
+        HttpEntity entity = new UrlEncodedFormEntity(requestContent);
+        return assembleHttpRequest(method, url, entity, headers,
+                ContentType.APPLICATION_FORM_URLENCODED.getMimeType());
+    }
+
+    /**
+     * Assemble the HttpRequest object with json data content
+     *
+     * @param method  the Http method
+     * @param url     the url string
+     * @param headers the key, value pairs of http headers
+     * @param content the key, value pairs of http body
+     * @return HttpRequestBase The HttpRequest object
+     * @throws UnsupportedEncodingException Error when the content could not be encoded
+     */
+    private static HttpRequestBase assembleJsonRequest(String method, String url,
+            Map<String, Object> headers, Object content) throws UnsupportedEncodingException {
+        content = (Map<String, Object>) Optional.ofNullable(content)
+                .orElse(new HashMap<String, Object>());
+        HttpEntity entity =
+                new JsonEntity(content, Application.isPrettyPrintJson() ? prettyGson : gson);
+        return assembleHttpRequest(method, url, entity, headers,
+                ContentType.APPLICATION_JSON.getMimeType());
+    }
+
+    /**
+     * Assemble the HttpRequest object with a file to upload
+     *
+     * @param method     the Http method
+     * @param url        the url string
+     * @param headers    the key, value pairs of http headers
+     * @param uploadFile the File or Path to upload, or an HttpEntity with the binary content
+     * @return HttpRequestBase The HttpRequest object
+     * @throws IOException Error when the size of the file could not be read
+     */
+    private static HttpRequestBase assembleFileRequest(String method, String url,
+            Map<String, Object> headers, Object uploadFile) throws IOException {
+        HttpEntity entity;
+        if (uploadFile instanceof HttpEntity) {
+            entity = (HttpEntity) uploadFile;
+        } else if (uploadFile instanceof File) {
+            File file = (File) uploadFile;
+            entity = new FileRegionEntity(file, 0, file.length());
+        } else if (uploadFile instanceof Path) {
+            Path file = (Path) uploadFile;
+            entity = new FileRegionEntity(file, 0, Files.size(file));
+        } else {
+            throw new IllegalArgumentException("Unsupported upload content: " + uploadFile);
+        }
+        return assembleHttpRequest(method, url, entity, headers,
+                ContentType.APPLICATION_OCTET_STREAM.getMimeType());
     }
 
     /**
-     * Assemble the whole Url for http request
+     * This method is assemble HttpReques object
      * 
-     * @param url relative url path from parameters of API call
-     * @return String URL with baseUrl , prefix , paths and query string.
+     * @param method      the Http method
+     * @param url         the url string
+     * @param entity      the object of HttpEntity
+     * @param headers     the key, value pairs of http headers
+     * @param contentType the contentType of this http rquest header
+     * @return HttpRequestBase The HttpRequest object
+     * @throws UnsupportedEncodingException Error when the unsupport method is inputed
      */
-    protected String assembleUrl(String url) {
-        return this.getUrlPrefix() + appendDefaultQueryParameters(url);
+    private static HttpRequestBase assembleHttpRequest(String method, String url, HttpEntity entity,
+            Map<String, Object> headers, String contentType) throws UnsupportedEncodingException {
+        HttpRequestBase request = requestFactory(method, Application.getBaseUrl() + url, entity);
+        request = assembleHeaders(request, headers, contentType);
+        return request;
     }
 
     /**
-     * This method is merge query parameters from API call and existed query parameters which might
-     * from Client object or generated and populated to Resource object.
+     * The method of receving the httpResponse and check the status of httpResponse
      * 
-     * @param url relative url path from parameters of API call
-     * @return String the handled query string
+     * @param transport the transport leased for this transaction
+     * @param request   A HttpRequest object which has populated all essential data
+     * @param event     the event recording the timings of the request, or null
+     * @return HttpResponse the HttpResponse object
+     * @throws ApiException            An error if any data other than 2xx from Kloudless API server
+     *                                 or upstream services.
+     * @throws ClientProtocolException Error when http call failed
+     * @throws IOException             Error when http call failed
+     * @throws ParseException          Error when parse the JsonObject failed
      */
-    private String appendDefaultQueryParameters(String url) {
-        if (url.indexOf("?") != -1) {
-            String[] urls = url.split("\\?");
-            url = urls[0] + "?" + toQueryString(mergeDeaultQueryParameters(getQueryParams(url)));
+    private HttpResponse handleResponse(HttpTransport transport, HttpRequestBase request,
+            RequestEvent event)
+            throws ClientProtocolException, IOException, ApiException, ParseException {
+        RetryPolicy policy = getRetryPolicy(transport);
+        policy.recordRequest();
+        if (event != null) {
+            event.requestAssembled(request);
+        }
+        CloseableHttpResponse response;
+        for (int attempt = 1;; attempt++) {
+            long delay;
+            try {
+                long queued = event == null ? 0 : System.nanoTime();
+                waitForRateLimits(transport, request);
+                ConcurrencyLimiter limiter = acquireSlot(transport, request);
+                long start = System.nanoTime();
+                if (event != null) {
+                    event.requestSent(start - queued);
+                }
+                try {
+                    response = transport.getHttpClient().execute(request);
+                } catch (IOException e) {
+                    releaseSlot(limiter, start, true);
+                    throw e;
+                }
+                releaseSlot(limiter, start, isThrottled(response));
+                if (event != null) {
+                    event.responseReceived(response);
+                }
+                if (isSuccess(response)) {
+                    break;
+                }
+                delay = policy.nextRetryDelay(request, attempt, response, null);
+                if (delay < 0) {
+                    break;
+                }
+                response.close();
+            } catch (IOException e) {
+                delay = policy.nextRetryDelay(request, attempt, null, e);
+                if (delay < 0) {
+                    throw e;
+                }
+            }
+            try {
+                Thread.sleep(delay);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ApiException("Interrupted while waiting to retry " + request, e);
+            }
+        }
+        boolean success = false;
+        try {
+            DecodingEntity.decode(response, transport.getStatistics());
+            if (!isNotModified(response) || !isConditional(request)) {
+                checkStatus(response);
+            }
+            success = isSuccess(response);
+        } finally {
+            // a failed response never reaches the caller, its connection goes back to the pool
+            if (!success) {
+                response.close();
+            }
+        }
+        return response;
+    }
+
+    /**
+     * Wait until the rate limits of the account and the API key of the request allow to send it
+     *
+     * @param transport the transport leased for this transaction
+     * @param request   the request about to be sent
+     * @throws ApiException Error when the thread is interrupted while waiting
+     */
+    private static void waitForRateLimits(HttpTransport transport, HttpRequestBase request)
+            throws ApiException {
+        long wait = transport.getRateLimits().reserve(request);
+        if (wait > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(wait);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ApiException("Interrupted while waiting for the rate limit " + request,
+                        e);
+            }
+        }
+    }
+
+    /**
+     * Wait for a slot of the adaptive concurrency limit of the service type of the request
+     *
+     * @param transport the transport leased for this transaction
+     * @param request   the request about to be sent
+     * @return ConcurrencyLimiter the limiter whose slot was taken, or null if adaptive
+     *         concurrency is disabled
+     * @throws ApiException Error when the thread is interrupted while waiting
+     */
+    private static ConcurrencyLimiter acquireSlot(HttpTransport transport,
+            HttpRequestBase request) throws ApiException {
+        ConcurrencyLimiter limiter = transport.getConcurrencyLimits().getLimiter(request);
+        if (limiter != null) {
+            try {
+                limiter.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ApiException("Interrupted while waiting for the concurrency limit "
+                        + request, e);
+            }
+        }
+        return limiter;
+    }
+
+    /**
+     * Give a slot back to the concurrency limiter, a dropped request cuts the limit
+     *
+     * @param limiter the limiter whose slot the request holds, or null
+     * @param start   the time the request was sent as System.nanoTime, -1 if it was not sent
+     * @param dropped whether the request failed or was throttled by the server
+     */
+    private static void releaseSlot(ConcurrencyLimiter limiter, long start, boolean dropped) {
+        if (limiter != null) {
+            limiter.release(start < 0 ? -1 : System.nanoTime() - start, dropped);
+        }
+    }
+
+    /**
+     * Whether the server is overloaded or throttling, i.e. it answered with 429 or 503
+     *
+     * @param response the response
+     * @return boolean true if the response is 429 or 503
+     */
+    private static boolean isThrottled(HttpResponse response) {
+        int statusCode = response.getStatusLine().getStatusCode();
+        return statusCode == 429 || statusCode == HttpStatus.SC_SERVICE_UNAVAILABLE;
+    }
+
+    /**
+     * Check the status of httpResponse, at most TransferBuffers.ERROR_BODY_LIMIT bytes of an
+     * error body are read into the exception message
+     *
+     * @param response the HttpResponse object
+     * @throws ApiException   An error if any data other than 2xx from Kloudless API server or
+     *                        upstream services.
+     * @throws IOException    Error when reading the error message failed
+     * @throws ParseException Error when reading the error message failed
+     */
+    static void checkStatus(HttpResponse response)
+            throws ApiException, IOException, ParseException {
+        if (!isSuccess(response)) {
+            throw new ApiException("Get error response from API server, status code:"
+                    + response.getStatusLine().getStatusCode() + ", and its message"
+                    + (response.getEntity() == null ? ""
+                            : TransferBuffers.readErrorBody(response.getEntity())),
+                    null, response.getStatusLine().getStatusCode());
+        }
+    }
+
+    /**
+     * Whether the status of httpResponse is 2xx
+     *
+     * @param response the HttpResponse object
+     * @return boolean true if the status code is 2xx
+     */
+    static boolean isSuccess(HttpResponse response) {
+        int statusCode = response.getStatusLine().getStatusCode();
+        return statusCode >= 200 && statusCode < 300;
+    }
+
+    /**
+     * Whether the server answered 304 Not Modified
+     *
+     * @param response the HttpResponse object
+     * @return boolean true if the status code is 304
+     */
+    private static boolean isNotModified(HttpResponse response) {
+        return response.getStatusLine().getStatusCode() == HttpStatus.SC_NOT_MODIFIED;
+    }
+
+    /**
+     * Whether the request carries a validator, so a 304 Not Modified is an expected answer
+     *
+     * @param request the request
+     * @return boolean true if the request has an If-None-Match or If-Modified-Since header
+     */
+    private static boolean isConditional(HttpRequestBase request) {
+        return request.containsHeader("If-None-Match")
+                || request.containsHeader("If-Modified-Since");
+    }
+
+    /**
+     * Get the response cache if the response of this request can be cached, which is the case
+     * for GET requests of JSON responses
+     *
+     * @param transport the transport leased for this transaction
+     * @param method    the http method
+     * @param tryJson   whether the response body is parsed as a JSON object
+     * @return ResponseCache the response cache, or null if the response is not cached
+     */
+    private static ResponseCache<ResponseBase> getResponseCache(HttpTransport transport,
+            String method, Boolean tryJson) {
+        ResponseCache<ResponseBase> cache = transport.getResponseCache();
+        return cache != null && tryJson && "GET".equals(method) ? cache : null;
+    }
+
+    /**
+     * Add the validators of a cached response to the request headers, unless the caller has set
+     * them
+     *
+     * @param headers the key value pairs of the request headers
+     * @param cached  the cached response, or null
+     * @return Map the request headers with the validators
+     */
+    private static Map<String, Object> addValidators(Map<String, Object> headers,
+            ResponseCache.Entry<ResponseBase> cached) {
+        if (cached == null) {
+            return headers;
+        }
+        Map<String, Object> conditional = new HashMap<String, Object>(headers);
+        if (cached.getETag() != null) {
+            conditional.putIfAbsent("If-None-Match", cached.getETag());
+        }
+        if (cached.getLastModified() != null) {
+            conditional.putIfAbsent("If-Modified-Since", cached.getLastModified());
+        }
+        return conditional;
+    }
+
+    /**
+     * Turn the response of a cacheable request into a ResponseBase object. A 304 Not Modified
+     * reuses the cached response, any other response is parsed and a copy of it is stored with
+     * its validators.
+     *
+     * @param cache    the response cache
+     * @param cacheKey the cache key of the request
+     * @param cached   the cached response the request was revalidated with, or null
+     * @param response the http response
+     * @param url      the url string of current http request
+     * @param headers  the key value pairs of current http headers
+     * @return ResponseBase the cached or parsed response
+     * @throws ApiException Errors when transfer to ResponseBase object
+     */
+    private ResponseBase cachedResponseFactory(ResponseCache<ResponseBase> cache, String cacheKey,
+            ResponseCache.Entry<ResponseBase> cached, HttpResponse response, String url,
+            Map<String, Object> headers) throws ApiException {
+        if (cached != null && isNotModified(response)) {
+            cache.recordHit();
+            return copyResponse(cached.getValue(), new RequestContext(url, headers));
+        }
+        cache.recordMiss();
+        ResponseBase result = responseFactory(response, url, headers, "GET", true);
+        if (result instanceof ResponseRaw) {
+            cache.remove(cacheKey);
         } else {
-            String queryString =
-                    toQueryString(mergeDeaultQueryParameters(new HashMap<String, String>()));
-            if (!queryString.isEmpty()) {
-                url = url + "?" + queryString;
+            Header etag = response.getFirstHeader("ETag");
+            Header lastModified = response.getFirstHeader("Last-Modified");
+            cache.put(cacheKey, etag == null ? null : etag.getValue(),
+                    lastModified == null ? null : lastModified.getValue(),
+                    copyResponse(result, new RequestContext(url, headers)));
+        }
+        return result;
+    }
+
+    /**
+     * Create a new response object from a cached or shared one, so neither the state of the
+     * object returned to the caller, e.g. its pagination, nor its JSON data, which the caller may
+     * modify through getData, is shared with the cache or other callers. The JSON data and the
+     * resources of a list are copied.
+     *
+     * @param cached  the response to copy
+     * @param context the context of the current request
+     * @return ResponseBase the new response object
+     */
+    private static ResponseBase copyResponse(ResponseBase cached, RequestContext context) {
+        if (cached instanceof ResourceList) {
+            ResourceList list = (ResourceList) cached;
+            List<Resource> resources = new ArrayList<Resource>(list.getResources().size());
+            for (Resource resource : list.getResources()) {
+                resources.add(new Resource(JsonCopies.deepCopy(resource.getData()), context,
+                        "GET", true));
             }
+            return new ResourceList(context, resources, JsonCopies.deepCopy(list.getData()));
+        }
+        if (cached instanceof Resource) {
+            return new Resource(JsonCopies.deepCopy(((Resource) cached).getData()), context,
+                    "GET", false);
         }
+        return new ResponseJson(JsonCopies.deepCopy(((ResponseJson) cached).getData()), context);
+    }
 
-        return url;
+    /**
+     * Get a resource from the metadata cache. Only GET requests of a single resource without a
+     * query string are answered from the cache, unless they are sent with Cache-Control:
+     * no-cache, e.g. by refresh.
+     *
+     * @param cache   the metadata cache
+     * @param method  the http method
+     * @param url     the url string of current http request
+     * @param headers the key value pairs of current http headers
+     * @param tryJson whether the response body is parsed as a JSON object
+     * @return ResponseBase a new Resource with the cached metadata, or null if it is not cached
+     */
+    private static ResponseBase lookupMetadata(MetadataCache cache, String method, String url,
+            Map<String, Object> headers, Boolean tryJson) {
+        if (!tryJson || !"GET".equals(method) || url.indexOf('?') != -1) {
+            return null;
+        }
+        Object cacheControl = headers.get("Cache-Control");
+        if (cacheControl != null && cacheControl.toString().contains("no-cache")) {
+            return null;
+        }
+        String key = MetadataCache.key(url, headers.get("Authorization"));
+        JsonObject data = key == null ? null : cache.get(key);
+        if (data == null) {
+            return null;
+        }
+        return new Resource(data, new RequestContext(url, headers), "GET", false);
     }
 
     /**
-     * Parse the query string to key, value pair of query parameters
-     * 
-     * @param url relative url path from parameters of API call
-     * @return map the key, value pairs of query parameters
+     * Get the request coalescer if identical concurrent requests may share one call, which is
+     * the case for GET requests of JSON responses. A PATCH, PUT or DELETE request makes later
+     * GET requests of its URL send a new request instead of joining one sent before.
+     *
+     * @param transport the transport leased for this transaction
+     * @param method    the http method
+     * @param url       the url string of current http request
+     * @param tryJson   whether the response body is parsed as a JSON object
+     * @return RequestCoalescer the request coalescer, or null if the request is sent on its own
      */
-    private Map<String, String> getQueryParams(String url) {
-        String[] urls = url.split("\\?");
-        String[] queryString = urls[1].split("&");
-        return Arrays.asList(queryString).stream().map(param -> param.split("=", 2))
-                .collect(Collectors.toMap(a -> a[0], a -> a[1]));
+    private static RequestCoalescer<ResponseBase> getRequestCoalescer(HttpTransport transport,
+            String method, String url, Boolean tryJson) {
+        RequestCoalescer<ResponseBase> coalescer = transport.getRequestCoalescer();
+        if (coalescer == null) {
+            return null;
+        }
+        if ("PATCH".equals(method) || "PUT".equals(method) || "DELETE".equals(method)) {
+            int query = url.indexOf('?');
+            coalescer.forget(query == -1 ? url : url.substring(0, query));
+        }
+        return tryJson && "GET".equals(method) ? coalescer : null;
     }
 
     /**
-     * Merge the query parameters with defaultQueryParameters
-     * 
-     * @param querys Key value pairs of query parameters from API call
-     * @return map A merged key value pair of query parameters
+     * Remove the resource a PATCH, PUT or DELETE request is sent to from the metadata cache,
+     * together with the resources it belongs to, e.g. a PUT of storage/files/abc/contents
+     * removes storage/files/abc. A POST request only removes the resources it belongs to.
+     *
+     * @param cache   the metadata cache
+     * @param method  the http method
+     * @param url     the url string of current http request
+     * @param headers the key value pairs of current http headers
+     */
+    private static void invalidateMetadata(MetadataCache cache, String method, String url,
+            Map<String, Object> headers) {
+        boolean modified =
+                "PATCH".equals(method) || "PUT".equals(method) || "DELETE".equals(method);
+        if (!modified && !"POST".equals(method)) {
+            return;
+        }
+        String key = MetadataCache.key(url, headers.get("Authorization"));
+        if (key != null && !modified) {
+            key = MetadataCache.parentKey(key);
+        }
+        for (; key != null; key = MetadataCache.parentKey(key)) {
+            cache.invalidate(key);
+        }
+    }
+
+    /**
+     * Update the metadata cache with a response. The resource of a PATCH, PUT or DELETE request
+     * is removed again, in case a concurrent GET has cached it meanwhile. Single resources
+     * returned by GET, PATCH and PUT requests and every element of a list are stored.
+     *
+     * @param cache   the metadata cache
+     * @param method  the http method
+     * @param url     the url string of current http request
+     * @param headers the key value pairs of current http headers
+     * @param result  the parsed response
+     */
+    private static void updateMetadata(MetadataCache cache, String method, String url,
+            Map<String, Object> headers, ResponseBase result) {
+        invalidateMetadata(cache, method, url, headers);
+        Object authorization = headers.get("Authorization");
+        if (result instanceof ResourceList && "GET".equals(method)) {
+            for (Resource resource : ((ResourceList) result).getResources()) {
+                storeMetadata(cache, resource, authorization);
+            }
+        } else if (result instanceof Resource && ("GET".equals(method)
+                || "PATCH".equals(method) || "PUT".equals(method))) {
+            storeMetadata(cache, (Resource) result, authorization);
+        }
+    }
+
+    /**
+     * Store a resource in the metadata cache under the URL it is accessed with
+     *
+     * @param cache         the metadata cache
+     * @param resource      the resource
+     * @param authorization the Authorization header the resource was read with
      */
-    private Map<String, String> mergeDeaultQueryParameters(Map<String, String> querys) {
-        for (Entry entry : this.getDefaultQueryParameters().entrySet()) {
-            if (!querys.containsKey(entry.getKey())) {
-                querys.put((String) entry.getKey(), (String) entry.getValue());
+    private static void storeMetadata(MetadataCache cache, Resource resource,
+            Object authorization) {
+        String id = resource.getId();
+        if (id.isEmpty()) {
+            return;
+        }
+        String url;
+        try {
+            url = resource.getUrl();
+        } catch (IllegalStateException e) {
+            return;
+        }
+        if (url.indexOf('?') == -1 && url.endsWith("/" + id)) {
+            String key = MetadataCache.key(url, authorization);
+            if (key != null) {
+                cache.put(key, resource.getData());
             }
         }
-        return querys;
     }
 
     /**
-     * Transfer key value pair of query parameters to query string
+     * Get the template of the requests made by this object, which holds the default headers and
+     * query parameters prepared for assembling requests. It is fetched by assembleUrl and
+     * mergeHeaders, which every transaction calls and subclasses may override. Subclasses whose
+     * defaults rarely change keep the template instead of preparing it for every request.
+     *
+     * @return RequestTemplate the template prepared from the default headers and query parameters
+     */
+    protected RequestTemplate getRequestTemplate() {
+        return new RequestTemplate(this.getDefaultHeaders(), this.getDefaultQueryParameters());
+    }
+
+    /**
+     * This method merge header from API call and default Headers in the Client object and
+     * attributes of default headers will be overwrite if duplicated. Every transaction calls it,
+     * so subclasses may override it to add headers.
+     * 
+     * @param headers the key value in headers from API call.
+     * @return mergedHeaders the final key value of headers, the prepared default headers which
+     *         cannot be modified if the call has no headers of its own, so copy them to modify
+     */
+    protected Map<String, Object> mergeHeaders(Map<String, Object> headers) {
+        return getRequestTemplate().mergeHeaders(headers);
+    }
+
+    /**
+     * Add headers from key value map to request object
+     * 
+     * @param request     the HttpRequest object
+     * @param headers     the key value pair of headers
+     * @param contentType the content type in the headers
+     * @return HttpRequest object
+     */
+    private static HttpRequestBase assembleHeaders(HttpRequestBase request,
+            Map<String, Object> headers, String contentType) {
+        request.setHeaders(RequestTemplate.toHeaderArray(headers, contentType));
+        return request;
+    }
+
+    /**
+     * Assemble the whole Url for http request. Every transaction calls it, so subclasses may
+     * override it to change the url.
+     * 
+     * @param url relative url path from parameters of API call
+     * @return String URL with baseUrl , prefix , paths and query string.
+     */
+    protected String assembleUrl(String url) {
+        return this.getUrlPrefix() + appendDefaultQueryParameters(url);
+    }
+
+    /**
+     * This method is merge query parameters from API call and existed query parameters which might
+     * from Client object or generated and populated to Resource object.
      * 
-     * @param queryParameters Key value pairs of query parameters
-     * @return String queryString
+     * @param url relative url path from parameters of API call
+     * @return String the handled query string
      */
-    private static String toQueryString(Map<String, String> queryParameters) {
-        return queryParameters.entrySet().stream()
-                .map(element -> element.getKey() + "=" + element.getValue())
-                .collect(Collectors.joining("&"));
+    String appendDefaultQueryParameters(String url) {
+        return getRequestTemplate().appendQuery(url);
     }
 
     /**
@@ -605,42 +2213,80 @@ public abstract class BaseHttpClient {
      *         JsonObject type from API Server
      * @throws ApiException Errors when trandfer to ResponseBase object
      */
-    private ResponseBase responseFactory(
+    ResponseBase responseFactory(
             HttpResponse response, String url, Map<String, Object> headers, String method,
             Boolean tryJson) throws ApiException {
         if (response != null && response.getEntity() != null
                 && tryJson
                 && ContentType.get(response.getEntity()).toString()
                         .equals(ContentType.APPLICATION_JSON.getMimeType())) {
-            try {
-                JsonObject data =
-                        gson.fromJson(EntityUtils.toString(response.getEntity()), JsonObject.class);
-                if (data.has("type") && "object_list".equals(data.get("type").getAsString())) {
-                    List<Resource> tmpList = new ArrayList<Resource>();
-                    JsonArray array = data.get("objects").getAsJsonArray();
-                    for (int i = 0; i < array.size(); i++) {
-                        JsonObject element = array.get(i).getAsJsonObject();
-                        Resource one = new Resource(element,
-                                generateResourceUrl(url, element, method, true), headers);
-                        tmpList.add(one);
-                    }
+            HttpEntity entity = response.getEntity();
+            Charset charset = Optional.ofNullable(ContentType.get(entity).getCharset())
+                    .orElse(StandardCharsets.UTF_8);
+            try (JsonReader reader =
+                    new JsonReader(new InputStreamReader(entity.getContent(), charset))) {
+                return readJsonResponse(reader, url, headers, method);
+            } catch (JsonParseException | IllegalStateException | ParseException
+                    | IOException e) {
+                throw new ApiException("Generate Resource object failed, " + e.getMessage(), e);
+            }
+
+        } else {
+            return new ResponseRaw(response, new RequestContext(url, headers));
+        }
+    }
 
-                    ResourceList rList = new ResourceList(url, headers, tmpList, data);
-                    return rList;
+    /**
+     * Read the JSON response body incrementally. Elements of the objects array are turned into
+     * Resource objects one at a time, so a list response is never held as a whole JsonObject tree.
+     * Pagination attributes are read wherever they appear in the body.
+     *
+     * @param reader  JsonReader of the response body
+     * @param url     the url string of current http request
+     * @param headers the key value pairs of current http headers
+     * @param method  the http method
+     * @return ResponseBase object, could be Resource, ResourceList or ResponseJson
+     * @throws IOException Errors when reading the response body
+     */
+    private static ResponseBase readJsonResponse(JsonReader reader, String url,
+            Map<String, Object> headers, String method) throws IOException {
+        RequestContext context = new RequestContext(url, headers);
+        JsonParser parser = new JsonParser();
+        JsonObject data = new JsonObject();
+        List<Resource> tmpList = null;
 
-                } else if (data.has("id")) {
-                    return new Resource(data, generateResourceUrl(url, data, method, false),
-                            headers);
-                } else {
-                    return new ResponseJson(data, url, headers);
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if ("objects".equals(name) && reader.peek() == JsonToken.BEGIN_ARRAY) {
+                tmpList = new ArrayList<Resource>();
+                reader.beginArray();
+                while (reader.hasNext()) {
+                    JsonObject element = parser.parse(reader).getAsJsonObject();
+                    tmpList.add(new Resource(element, context, method, true));
                 }
-            } catch (JsonSyntaxException | ParseException | IOException | URISyntaxException e) {
-                throw new ApiException("Generate Resource object failed, " + e.getMessage(), e);
+                reader.endArray();
+            } else {
+                data.add(name, parser.parse(reader));
             }
+        }
+        reader.endObject();
 
-        } else {
-            return new ResponseRaw(response, url, headers);
+        if (tmpList != null && data.has("type")
+                && "object_list".equals(data.get("type").getAsString())) {
+            return new ResourceList(context, tmpList, data);
+        }
+        if (tmpList != null) {
+            JsonArray array = new JsonArray();
+            for (Resource one : tmpList) {
+                array.add(one.getData());
+            }
+            data.add("objects", array);
+        }
+        if (data.has("id")) {
+            return new Resource(data, context, method, false);
         }
+        return new ResponseJson(data, context);
     }
 
     /**
@@ -653,7 +2299,7 @@ public abstract class BaseHttpClient {
      * @return String of handled url
      * @throws URISyntaxException the error occurs when url format is invalid
      */
-    private static String generateResourceUrl(String url, JsonObject data, String method,
+    protected static String generateResourceUrl(String url, JsonObject data, String method,
             boolean isListUrl) throws URISyntaxException {
         if (url.indexOf("?") != -1) {
             String[] unhandledUrl = url.split("\\?");
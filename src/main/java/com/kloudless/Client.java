@@ -1,9 +1,12 @@
 package com.kloudless;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
 import com.kloudless.exceptions.InvalidArgumentException;
+import com.kloudless.http.HttpTransport;
+import com.kloudless.http.RetryPolicy;
 
 /**
  * Client object is a useful tool to handle any http interaction between client and Kloudless API
@@ -15,6 +18,8 @@ public class Client extends BaseHttpClient {
     protected int apiVersion;
     protected String urlPrefix;
     protected Map<String, Object> defaultHeaders;
+    private RetryPolicy retryPolicy;
+    private volatile PreparedTemplate preparedTemplate;
 
 
     /**
@@ -54,7 +59,9 @@ public class Client extends BaseHttpClient {
             throws InvalidArgumentException {
         this.apiKey = apiKey;
         this.token = token;
-        this.defaultHeaders = Optional.ofNullable(headers).orElse(new HashMap<String, Object>());
+        // a copy, so the headers can only be modified through getDefaultHeaders
+        this.defaultHeaders = new VersionedMap<String, Object>(new HashMap<String, Object>(
+                Optional.ofNullable(headers).orElse(Collections.emptyMap())));
         this.apiVersion = apiVersion;
 
         if (this.token != null && !this.token.isEmpty()) {
@@ -69,6 +76,27 @@ public class Client extends BaseHttpClient {
         this.urlPrefix = String.format("/v%s/", this.apiVersion);
     }
 
+    /**
+     * Get the retry policy of this client, the retry policy of the given transport is used if
+     * this client has none of its own
+     * 
+     * @param transport the transport of the request
+     * @return RetryPolicy the retry policy
+     */
+    @Override
+    protected RetryPolicy getRetryPolicy(HttpTransport transport) {
+        return this.retryPolicy != null ? this.retryPolicy : super.getRetryPolicy(transport);
+    }
+
+    /**
+     * Set a retry policy for this client only, so it gets a retry budget of its own
+     * 
+     * @param retryPolicy the retry policy, or null to use the retry policy of the transport
+     */
+    public void setRetryPolicy(RetryPolicy retryPolicy) {
+        this.retryPolicy = retryPolicy;
+    }
+
     /**
      * Get the prefix of URL
      * 
@@ -80,7 +108,8 @@ public class Client extends BaseHttpClient {
     }
 
     /**
-     * Get default http headers
+     * Get default http headers. Modify them through this map, it is a copy of the map given to
+     * the constructor.
      * 
      * @return Map key, value of http headers
      */
@@ -96,7 +125,29 @@ public class Client extends BaseHttpClient {
      */
     @Override
     public Map<String, Object> getDefaultQueryParameters() {
-        return new HashMap<String, Object>();
+        return Collections.emptyMap();
+    }
+
+    /**
+     * Get the template of the requests, it is prepared once and prepared again only when the
+     * default headers have been modified, which is tracked with a modification count instead of
+     * comparing them for every request
+     *
+     * @return RequestTemplate the template prepared from the default headers
+     */
+    @Override
+    protected RequestTemplate getRequestTemplate() {
+        Map<String, Object> headers = this.getDefaultHeaders();
+        Map<String, Object> queryParameters = this.getDefaultQueryParameters();
+        int version = headers instanceof VersionedMap
+                ? ((VersionedMap<String, Object>) headers).getVersion() : -1;
+        PreparedTemplate prepared = this.preparedTemplate;
+        if (prepared == null || !prepared.isFor(headers, queryParameters, version)) {
+            prepared = new PreparedTemplate(new RequestTemplate(headers, queryParameters),
+                    headers, queryParameters, version);
+            this.preparedTemplate = prepared;
+        }
+        return prepared.template;
     }
 
     /**
@@ -118,4 +169,41 @@ public class Client extends BaseHttpClient {
         this.urlPrefix = String.format("/v%s/", this.apiVersion);
     }
 
+    /**
+     * PreparedTemplate is a request template with the defaults and the version of the default
+     * headers it was prepared from
+     */
+    private static final class PreparedTemplate {
+        private final RequestTemplate template;
+        private final Map<String, Object> headers;
+        private final Map<String, Object> queryParameters;
+        private final int version;
+
+        PreparedTemplate(RequestTemplate template, Map<String, Object> headers,
+                Map<String, Object> queryParameters, int version) {
+            this.template = template;
+            this.headers = headers;
+            this.queryParameters = queryParameters;
+            this.version = version;
+        }
+
+        /**
+         * Whether the template can be used for the defaults. The same default headers are
+         * compared by their version, other maps, e.g. of a subclass, by their content.
+         *
+         * @param headers         the default headers
+         * @param queryParameters the default query parameters
+         * @param version         the version of the default headers, -1 if it is unknown
+         * @return boolean true if the template can be used
+         */
+        boolean isFor(Map<String, Object> headers, Map<String, Object> queryParameters,
+                int version) {
+            if (headers == this.headers && version >= 0) {
+                return version == this.version && (queryParameters == this.queryParameters
+                        || this.template.isFor(headers, queryParameters));
+            }
+            return this.template.isFor(headers, queryParameters);
+        }
+    }
+
 }
@@ -0,0 +1,225 @@
+package com.kloudless;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+import com.kloudless.exceptions.ApiException;
+import com.kloudless.http.RetryPolicy;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpResponse;
+
+/**
+ * Helpers to run the parts of a multipart upload or a ranged download on the non-blocking client
+ */
+class ConcurrentParts {
+
+    private ConcurrentParts() {
+
+    }
+
+    /**
+     * Group keeps the state of the parts of one transfer. Once a part has failed the group has
+     * failed, no further parts are started and failed parts are no longer retried.
+     */
+    static final class Group {
+        private final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+
+        /**
+         * Record the failure of a part, only the first failure is kept
+         *
+         * @param error the error the part failed with
+         */
+        void fail(Throwable error) {
+            this.failure.compareAndSet(null, error);
+        }
+
+        /**
+         * Whether a part of the group has failed
+         *
+         * @return boolean true if a part has failed
+         */
+        boolean isFailed() {
+            return this.failure.get() != null;
+        }
+
+        /**
+         * Get the error of the first failed part
+         *
+         * @return Throwable the error, or null if no part has failed
+         */
+        Throwable getFailure() {
+            return this.failure.get();
+        }
+    }
+
+    /**
+     * Run the parts with at most parallel parts in flight. The first failed part fails the group
+     * and no further parts are started. The returned future fails with the error of the first
+     * failed part once all started parts have settled, so nothing uses the resources of the
+     * transfer after it has failed.
+     *
+     * @param count    the number of parts
+     * @param parallel the number of concurrent parts
+     * @param group    the group of the parts
+     * @param part     starts the part of the given index, starting from 0
+     * @return CompletableFuture completed when all parts are done
+     */
+    static CompletableFuture<Void> run(int count, int parallel, Group group,
+            IntFunction<CompletableFuture<?>> part) {
+        CompletableFuture<Void> done = new CompletableFuture<Void>();
+        if (count <= 0) {
+            done.complete(null);
+            return done;
+        }
+        int workers = Math.min(Math.max(1, parallel), count);
+        AtomicInteger next = new AtomicInteger();
+        // every worker runs one part after another and holds one count until it stops
+        AtomicInteger running = new AtomicInteger(workers);
+        Runnable[] startNext = new Runnable[1];
+        startNext[0] = () -> {
+            int index = next.getAndIncrement();
+            if (index >= count || group.isFailed()) {
+                if (running.decrementAndGet() == 0) {
+                    Throwable failure = group.getFailure();
+                    if (failure != null) {
+                        done.completeExceptionally(failure);
+                    } else {
+                        done.complete(null);
+                    }
+                }
+                return;
+            }
+            CompletableFuture<?> future;
+            try {
+                future = part.apply(index);
+            } catch (RuntimeException e) {
+                future = new CompletableFuture<Object>();
+                future.completeExceptionally(e);
+            }
+            future.whenComplete((result, e) -> {
+                if (e != null) {
+                    group.fail(e instanceof CompletionException && e.getCause() != null
+                            ? e.getCause() : e);
+                }
+                startNext[0].run();
+            });
+        };
+        for (int i = 0; i < workers; i++) {
+            startNext[0].run();
+        }
+        return done;
+    }
+
+    /**
+     * Run the action and retry it as the retry policy decides, so a part is retried for an I/O
+     * error or one of the retryable status codes, honors Retry-After and spends the retry budget
+     * of the policy like any other request. The action sends the request once and completes with
+     * the response whatever its status, or fails with an error. The action is not retried once
+     * the group has failed.
+     *
+     * @param scheduler the scheduler of the transport the parts are sent with
+     * @param group     the group of the part
+     * @param policy    the retry policy
+     * @param request   the request the action sends, the policy decides on its method and body
+     * @param action    starts one attempt
+     * @return CompletableFuture completed with the response of the last attempt
+     */
+    static CompletableFuture<HttpResponse> withRetries(ScheduledExecutorService scheduler,
+            Group group, RetryPolicy policy, HttpRequest request,
+            Supplier<CompletableFuture<HttpResponse>> action) {
+        policy.recordRequest();
+        return attempt(scheduler, group, policy, request, action, 1);
+    }
+
+    /**
+     * Run one attempt of the action and schedule the next one if the retry policy retries it
+     *
+     * @param scheduler the scheduler of the transport the parts are sent with
+     * @param group     the group of the part
+     * @param policy    the retry policy
+     * @param request   the request the action sends
+     * @param action    starts one attempt
+     * @param attempt   the number of this attempt, starting from 1
+     * @return CompletableFuture completed with the response of the last attempt
+     */
+    private static CompletableFuture<HttpResponse> attempt(ScheduledExecutorService scheduler,
+            Group group, RetryPolicy policy, HttpRequest request,
+            Supplier<CompletableFuture<HttpResponse>> action, int attempt) {
+        return action.get().handle((response, e) -> {
+            CompletableFuture<HttpResponse> last = new CompletableFuture<HttpResponse>();
+            if (e == null) {
+                last.complete(response);
+            } else {
+                last.completeExceptionally(e);
+            }
+            long delay = group.isFailed() ? -1
+                    : nextRetryDelay(policy, request, attempt, response, e);
+            if (delay < 0) {
+                return last;
+            }
+            CompletableFuture<HttpResponse> next = new CompletableFuture<HttpResponse>();
+            scheduler.schedule(() -> {
+                if (group.isFailed()) {
+                    // another part has failed while this one was waiting
+                    last.whenComplete((result, error) -> complete(next, result, error));
+                    return;
+                }
+                attempt(scheduler, group, policy, request, action, attempt + 1)
+                        .whenComplete((result, error) -> complete(next, result, error));
+            }, delay, TimeUnit.MILLISECONDS);
+            return next;
+        }).thenCompose(next -> next);
+    }
+
+    /**
+     * Ask the retry policy whether a failed attempt is retried. An attempt failed if it returned
+     * a response other than 2xx, or with an I/O error, e.g. a reset connection or an incomplete
+     * segment.
+     *
+     * @param policy   the retry policy
+     * @param request  the request of the attempt
+     * @param attempt  the number of the attempt, starting from 1
+     * @param response the response of the attempt, or null if it failed with an error
+     * @param error    the error of the attempt, or null
+     * @return long the delay in milliseconds before the next attempt, -1 if it is not retried
+     */
+    private static long nextRetryDelay(RetryPolicy policy, HttpRequest request, int attempt,
+            HttpResponse response, Throwable error) {
+        if (error == null) {
+            return BaseHttpClient.isSuccess(response) ? -1
+                    : policy.nextRetryDelay(request, attempt, response, null);
+        }
+        Throwable cause = error;
+        while (cause instanceof CompletionException && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        if (cause instanceof ApiException) {
+            cause = cause.getCause();
+        }
+        return cause instanceof IOException
+                ? policy.nextRetryDelay(request, attempt, null, (IOException) cause)
+                : -1;
+    }
+
+    /**
+     * Complete the future with the result or the error
+     *
+     * @param future the future to complete
+     * @param result the result
+     * @param error  the error, or null
+     * @param <T>    the type of the result
+     */
+    private static <T> void complete(CompletableFuture<T> future, T result, Throwable error) {
+        if (error != null) {
+            future.completeExceptionally(error);
+        } else {
+            future.complete(result);
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package com.kloudless;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Objects;
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+
+/**
+ * DownloadCheckpoint records which segments of a resumable download are complete. It is stored
+ * as a small JSON file next to the target file and removed once the download is complete.
+ */
+class DownloadCheckpoint {
+    private static final Gson gson = new Gson();
+
+    private transient Path path;
+    private String fileId;
+    private long size;
+    private long segmentSize;
+    private String revision;
+    private String etag;
+    private BitSet completed = new BitSet();
+
+    /**
+     * Constructor of DownloadCheckpoint for a new download
+     *
+     * @param path        the path of the checkpoint file
+     * @param fileId      the id of the downloaded file
+     * @param size        the size of the downloaded file
+     * @param segmentSize the size of each segment
+     * @param revision    the modification time or ETag of the downloaded file
+     */
+    DownloadCheckpoint(Path path, String fileId, long size, long segmentSize, String revision) {
+        this.path = path;
+        this.fileId = fileId;
+        this.size = size;
+        this.segmentSize = segmentSize;
+        this.revision = revision;
+    }
+
+    /**
+     * Load the checkpoint of an earlier download
+     *
+     * @param path the path of the checkpoint file
+     * @return DownloadCheckpoint the checkpoint, or null if there is none or it cannot be read
+     */
+    static DownloadCheckpoint load(Path path) {
+        if (!Files.isRegularFile(path)) {
+            return null;
+        }
+        try (Reader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            DownloadCheckpoint checkpoint = gson.fromJson(reader, DownloadCheckpoint.class);
+            if (checkpoint == null || checkpoint.completed == null) {
+                return null;
+            }
+            checkpoint.path = path;
+            return checkpoint;
+        } catch (IOException | JsonParseException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Whether this checkpoint belongs to a download of the same revision of the file with the
+     * same segments
+     *
+     * @param fileId      the id of the downloaded file
+     * @param size        the size of the downloaded file
+     * @param segmentSize the size of each segment
+     * @param revision    the modification time or ETag of the downloaded file
+     * @return boolean true if the download can be resumed
+     */
+    boolean matches(String fileId, long size, long segmentSize, String revision) {
+        return Objects.equals(this.fileId, fileId) && this.size == size
+                && this.segmentSize == segmentSize && Objects.equals(this.revision, revision);
+    }
+
+    /**
+     * Get the ETag returned by the first segment, it is sent as If-Range with later segments
+     *
+     * @return String the ETag, or null if it is unknown
+     */
+    synchronized String getETag() {
+        return this.etag;
+    }
+
+    /**
+     * Set the ETag returned by the first segment
+     *
+     * @param etag the ETag
+     */
+    synchronized void setETag(String etag) {
+        this.etag = etag;
+    }
+
+    /**
+     * Get the indexes of the segments which have not been downloaded yet
+     *
+     * @return List the indexes of the missing segments in ascending order
+     */
+    synchronized List<Integer> getMissingSegments() {
+        int count = (int) ((this.size + this.segmentSize - 1) / this.segmentSize);
+        List<Integer> missing = new ArrayList<Integer>();
+        for (int index = this.completed.nextClearBit(0); index < count;
+                index = this.completed.nextClearBit(index + 1)) {
+            missing.add(index);
+        }
+        return missing;
+    }
+
+    /**
+     * Mark a segment as complete and store the checkpoint
+     *
+     * @param index the index of the segment
+     * @throws IOException Error when the checkpoint file could not be written
+     */
+    synchronized void complete(int index) throws IOException {
+        this.completed.set(index);
+        save();
+    }
+
+    /**
+     * Store the checkpoint. It is written to a temporary file first, so an interrupted write
+     * never leaves a corrupt checkpoint behind.
+     *
+     * @throws IOException Error when the checkpoint file could not be written
+     */
+    synchronized void save() throws IOException {
+        Path temporary = this.path.resolveSibling(this.path.getFileName() + ".tmp");
+        try (Writer writer = Files.newBufferedWriter(temporary, StandardCharsets.UTF_8)) {
+            gson.toJson(this, writer);
+        }
+        Files.move(temporary, this.path, StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Remove the checkpoint file after the download is complete
+     *
+     * @throws IOException Error when the checkpoint file could not be removed
+     */
+    void delete() throws IOException {
+        Files.deleteIfExists(this.path);
+    }
+}
@@ -0,0 +1,194 @@
+package com.kloudless;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.kloudless.exceptions.ApiException;
+import com.kloudless.exceptions.InvalidArgumentException;
+import com.kloudless.http.FileRegionEntity;
+import com.kloudless.http.HttpTransport;
+import com.kloudless.models.Resource;
+import org.apache.http.HttpResponse;
+import org.apache.http.ParseException;
+import org.apache.http.message.BasicHttpEntityEnclosingRequest;
+import org.apache.http.nio.client.methods.HttpAsyncMethods;
+
+/**
+ * MultipartUpload uploads a large file through the multipart upload endpoints of the Storage API.
+ * The file is split into parts which are uploaded concurrently, a failed part is retried on its
+ * own, and the upload session is finalized once every part has been uploaded.
+ */
+public class MultipartUpload {
+    private final Account account;
+    private final File file;
+    private final String parentId;
+    private String name;
+    private long partSize = 16 * 1024 * 1024;
+    private int concurrency = 4;
+    private boolean overwrite = false;
+
+    /**
+     * Constructor of MultipartUpload
+     * 
+     * @param account  the account to upload the file to
+     * @param file     the local file to upload
+     * @param parentId the id of the folder to upload the file to
+     */
+    public MultipartUpload(Account account, File file, String parentId) {
+        this.account = account;
+        this.file = file;
+        this.parentId = parentId;
+        this.name = file.getName();
+    }
+
+    /**
+     * Set the name of the uploaded file, the default is the name of the local file
+     * 
+     * @param name the name of the uploaded file
+     */
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Set the size of each part in bytes. It is only used if the upload session does not specify
+     * the part size itself.
+     * 
+     * @param partSize the size of each part in bytes
+     */
+    public void setPartSize(long partSize) {
+        this.partSize = partSize;
+    }
+
+    /**
+     * Set how many parts are uploaded at the same time, the default is 4
+     * 
+     * @param concurrency the number of concurrent part uploads
+     */
+    public void setConcurrency(int concurrency) {
+        this.concurrency = concurrency;
+    }
+
+    /**
+     * Set whether a file with the same name in the folder is overwritten
+     * 
+     * @param overwrite true to overwrite an existing file
+     */
+    public void setOverwrite(boolean overwrite) {
+        this.overwrite = overwrite;
+    }
+
+    /**
+     * Upload the file, the upload session is aborted if any part fails after its retries. Parts
+     * are only retried for the errors the retry policy of the account retries, and once a part
+     * has failed the other parts are not retried. The session is aborted after the parts still
+     * in flight have settled.
+     * 
+     * @return Resource the uploaded file
+     * @throws InvalidArgumentException Error when the file could not be read
+     * @throws ApiException             Error when any request failed
+     */
+    public Resource upload() throws InvalidArgumentException, ApiException {
+        if (!this.file.isFile() || !this.file.canRead()) {
+            throw new InvalidArgumentException("Cannot read file " + this.file, null);
+        }
+        long size = this.file.length();
+        Map<String, Object> content = new HashMap<String, Object>();
+        content.put("name", this.name);
+        content.put("parent_id", this.parentId);
+        content.put("size", size);
+        Resource session = (Resource) this.account
+                .post("/storage/multipart?overwrite=" + this.overwrite, content);
+        String sessionUrl = "/storage/multipart/" + session.getId();
+
+        JsonObject data = session.getData();
+        long sessionPartSize = getLong(data, "part_size", this.partSize);
+        int parallel = data.has("parallel_uploads")
+                && !data.get("parallel_uploads").getAsBoolean() ? 1
+                        : Math.max(1, this.concurrency);
+        int partCount = (int) Math.max(1, (size + sessionPartSize - 1) / sessionPartSize);
+
+        // all parts are sent with the transport which was shared when the upload started
+        HttpTransport transport = Application.leaseTransport();
+        try {
+            ConcurrentParts.Group group = new ConcurrentParts.Group();
+            ConcurrentParts.run(partCount, parallel, group, index -> {
+                long offset = index * sessionPartSize;
+                return uploadPart(transport, group, sessionUrl, index + 1, offset,
+                        Math.min(sessionPartSize, size - offset));
+            }).join();
+            return (Resource) this.account.post(sessionUrl + "/complete", null);
+        } catch (CompletionException | ApiException e) {
+            abort(sessionUrl);
+            Throwable cause = e instanceof CompletionException ? e.getCause() : e;
+            throw new ApiException("Multipart upload of " + this.file + " failed, "
+                    + cause.getMessage(), cause instanceof Exception ? (Exception) cause : e);
+        } finally {
+            transport.release();
+        }
+    }
+
+    /**
+     * Upload one part, it is retried on its own as the retry policy of the account decides
+     * 
+     * @param transport  the transport leased for the upload
+     * @param group      the group of the parts of the upload
+     * @param sessionUrl the url of the upload session
+     * @param partNumber the number of the part, starting from 1
+     * @param offset     the position of the part in the file
+     * @param length     the size of the part
+     * @return CompletableFuture completed when the part is uploaded
+     */
+    private CompletableFuture<HttpResponse> uploadPart(HttpTransport transport,
+            ConcurrentParts.Group group, String sessionUrl, int partNumber, long offset,
+            long length) {
+        String partUrl = sessionUrl + "?part_number=" + partNumber;
+        FileRegionEntity part = new FileRegionEntity(this.file, offset, length);
+        BasicHttpEntityEnclosingRequest request =
+                new BasicHttpEntityEnclosingRequest("PUT", partUrl);
+        request.setEntity(part);
+        return ConcurrentParts.withRetries(transport.getScheduler(), group,
+                this.account.getRetryPolicy(transport), request,
+                () -> this.account.runHttpTransactionAsync(transport, "PUT", partUrl, "File",
+                        null, part, HttpAsyncMethods.createConsumer()))
+                .thenApply(response -> {
+                    try {
+                        BaseHttpClient.checkStatus(response);
+                    } catch (ApiException | IOException | ParseException e) {
+                        throw new CompletionException(e);
+                    }
+                    return response;
+                });
+    }
+
+    /**
+     * Abort the upload session, errors are ignored as the upload has failed already
+     * 
+     * @param sessionUrl the url of the upload session
+     */
+    private void abort(String sessionUrl) {
+        try {
+            this.account.delete(sessionUrl);
+        } catch (ApiException e) {
+            // the session expires on the server if it cannot be aborted
+        }
+    }
+
+    /**
+     * Get a number from the JsonObject
+     * 
+     * @param data         the JsonObject
+     * @param key          the key of the number
+     * @param defaultValue the value if the key is missing
+     * @return long the number
+     */
+    private static long getLong(JsonObject data, String key, long defaultValue) {
+        JsonElement value = data.get(key);
+        return value == null || value.isJsonNull() ? defaultValue : value.getAsLong();
+    }
+}
@@ -0,0 +1,388 @@
+package com.kloudless;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.kloudless.exceptions.ApiException;
+import com.kloudless.http.FileChannelConsumer;
+import com.kloudless.http.HttpTransport;
+import com.kloudless.models.Resource;
+import org.apache.http.Header;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
+import org.apache.http.ParseException;
+import org.apache.http.message.BasicHttpRequest;
+
+/**
+ * ParallelDownload downloads a file of the Storage API with several concurrent Range requests.
+ * Every segment is written at its offset into the pre-allocated target file as it arrives. If the
+ * upstream service does not honor ranges the whole file is downloaded in one stream instead.
+ * <p>
+ * A resumable download records the completed segments in a checkpoint file next to the target
+ * file, so a failed download can be restarted and only requests the missing segments.
+ */
+public class ParallelDownload {
+    private final Account account;
+    private final String fileId;
+    private final Path target;
+    private long segmentSize = 8 * 1024 * 1024;
+    private int parallelism = 4;
+    private boolean resumable = false;
+
+    /**
+     * Constructor of ParallelDownload
+     *
+     * @param account the account which contains the file
+     * @param fileId  the id of the file to download
+     * @param target  the local path to write the file to, an existing file is overwritten
+     */
+    public ParallelDownload(Account account, String fileId, Path target) {
+        this.account = account;
+        this.fileId = fileId;
+        this.target = target;
+    }
+
+    /**
+     * Set the size of each segment in bytes, the default is 8 MB
+     *
+     * @param segmentSize the size of each segment in bytes
+     */
+    public void setSegmentSize(long segmentSize) {
+        this.segmentSize = segmentSize;
+    }
+
+    /**
+     * Set how many segments are downloaded at the same time, the default is 4
+     *
+     * @param parallelism the number of concurrent segment downloads
+     */
+    public void setParallelism(int parallelism) {
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Set whether the download can be resumed. The completed segments are recorded in a
+     * checkpoint file next to the target file, and the target and checkpoint files are kept if the
+     * download fails. Calling download again only requests the missing segments, unless the file
+     * has been modified in the meantime. The default is false.
+     *
+     * @param resumable true to make the download resumable
+     */
+    public void setResumable(boolean resumable) {
+        this.resumable = resumable;
+    }
+
+    /**
+     * Get the path of the checkpoint file of a resumable download
+     *
+     * @return Path the path of the checkpoint file
+     */
+    public Path getCheckpointPath() {
+        return this.target.resolveSibling(this.target.getFileName() + ".checkpoint");
+    }
+
+    /**
+     * Download the file. The target file is removed if the download fails, unless the download
+     * is resumable. All segments are sent with the transport which was shared when the download
+     * started. Segments are only retried for the errors the retry policy of the account retries,
+     * and once a segment has failed the other segments are not retried and the download fails
+     * when they have settled.
+     *
+     * @return long the number of bytes downloaded
+     * @throws ApiException Error when the metadata or any segment could not be downloaded
+     */
+    public long download() throws ApiException {
+        HttpTransport transport = Application.leaseTransport();
+        try {
+            return download(transport);
+        } finally {
+            transport.release();
+        }
+    }
+
+    /**
+     * Download the file with the given transport
+     *
+     * @param transport the transport leased for the download
+     * @return long the number of bytes downloaded
+     * @throws ApiException Error when the metadata or any segment could not be downloaded
+     */
+    private long download(HttpTransport transport) throws ApiException {
+        Resource metadata = (Resource) this.account.get("/storage/files/" + this.fileId);
+        JsonObject data = metadata.getData();
+        JsonElement sizeElement = data.get("size");
+        long size = sizeElement == null || sizeElement.isJsonNull() ? -1
+                : sizeElement.getAsLong();
+        if (this.resumable && size > 0) {
+            return downloadResumable(transport, size, getRevision(data));
+        }
+        try (FileChannel channel = FileChannel.open(this.target, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            long downloaded;
+            if (size <= this.segmentSize || this.parallelism <= 1) {
+                downloaded = downloadSegment(transport, new ConcurrentParts.Group(), channel, 0,
+                        -1).join();
+            } else {
+                downloaded = downloadSegments(transport, channel, size);
+            }
+            channel.truncate(downloaded);
+            return downloaded;
+        } catch (IOException | CompletionException e) {
+            deleteTarget();
+            Throwable cause = e instanceof CompletionException ? e.getCause() : e;
+            if (cause instanceof ApiException) {
+                throw (ApiException) cause;
+            }
+            throw new ApiException("Download of " + this.fileId + " failed, "
+                    + cause.getMessage(), cause instanceof Exception ? (Exception) cause : e);
+        }
+    }
+
+    /**
+     * Download the missing segments of a resumable download. The checkpoint of an earlier
+     * attempt is only used if it belongs to the same revision of the file and the target file is
+     * still there.
+     *
+     * @param transport the transport leased for the download
+     * @param size      the size of the file
+     * @param revision  the ETag or modification time of the file
+     * @return long the number of bytes of the file
+     * @throws ApiException Error when any segment could not be downloaded
+     */
+    private long downloadResumable(HttpTransport transport, long size, String revision)
+            throws ApiException {
+        Path checkpointPath = getCheckpointPath();
+        DownloadCheckpoint checkpoint = DownloadCheckpoint.load(checkpointPath);
+        try {
+            boolean resume = checkpoint != null
+                    && checkpoint.matches(this.fileId, size, this.segmentSize, revision)
+                    && Files.isRegularFile(this.target) && Files.size(this.target) == size;
+            if (!resume) {
+                checkpoint = new DownloadCheckpoint(checkpointPath, this.fileId, size,
+                        this.segmentSize, revision);
+            }
+            try (FileChannel channel = FileChannel.open(this.target, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE)) {
+                if (!resume) {
+                    channel.truncate(0);
+                    channel.write(ByteBuffer.allocate(1), size - 1);
+                    checkpoint.save();
+                }
+                DownloadCheckpoint current = checkpoint;
+                List<Integer> missing = current.getMissingSegments();
+                long expected = 0;
+                for (int segment : missing) {
+                    expected += Math.min(this.segmentSize, size - segment * this.segmentSize);
+                }
+                AtomicLong downloaded = new AtomicLong();
+                ConcurrentParts.Group group = new ConcurrentParts.Group();
+                ConcurrentParts.run(missing.size(), this.parallelism, group, index -> {
+                    int segment = missing.get(index);
+                    long offset = segment * this.segmentSize;
+                    return downloadSegment(transport, group, channel, offset,
+                            Math.min(this.segmentSize, size - offset), current)
+                                    .thenApply(written -> {
+                                        try {
+                                            // the segment is on disk before it is recorded
+                                            channel.force(false);
+                                            current.complete(segment);
+                                        } catch (IOException e) {
+                                            throw new CompletionException(e);
+                                        }
+                                        downloaded.addAndGet(written);
+                                        return written;
+                                    });
+                }).join();
+                // the file is pre-allocated, so its size alone does not show missing bytes
+                if (downloaded.get() != expected || channel.size() != size) {
+                    throw new ApiException("Download of " + this.fileId + " wrote "
+                            + downloaded.get() + " of " + expected
+                            + " missing bytes into a file of " + channel.size()
+                            + " bytes, expected " + size, null);
+                }
+            }
+            checkpoint.delete();
+            return size;
+        } catch (IOException | CompletionException e) {
+            Throwable cause = e instanceof CompletionException ? e.getCause() : e;
+            if (cause instanceof ApiException) {
+                throw (ApiException) cause;
+            }
+            throw new ApiException("Download of " + this.fileId + " failed, "
+                    + cause.getMessage(), cause instanceof Exception ? (Exception) cause : e);
+        }
+    }
+
+    /**
+     * Download the file in segments. The first segment finds out whether ranges are honored, if
+     * they are not it already contains the whole file.
+     *
+     * @param transport the transport leased for the download
+     * @param channel   the channel of the target file
+     * @param size      the size of the file
+     * @return long the number of bytes downloaded
+     * @throws IOException Error when the target file could not be pre-allocated
+     */
+    private long downloadSegments(HttpTransport transport, FileChannel channel, long size)
+            throws IOException {
+        channel.write(ByteBuffer.allocate(1), size - 1);
+        ConcurrentParts.Group group = new ConcurrentParts.Group();
+        long first = downloadSegment(transport, group, channel, 0, this.segmentSize).join();
+        if (first != this.segmentSize) {
+            return first;
+        }
+        int count = (int) ((size + this.segmentSize - 1) / this.segmentSize);
+        ConcurrentParts.run(count - 1, this.parallelism, group, index -> {
+            long offset = (index + 1) * this.segmentSize;
+            return downloadSegment(transport, group, channel, offset,
+                    Math.min(this.segmentSize, size - offset));
+        }).join();
+        return size;
+    }
+
+    /**
+     * Download one segment, it is retried on its own as the retry policy of the account decides.
+     * Only the first
+     * segment, at offset 0, accepts a full response from a server which ignores ranges.
+     *
+     * @param transport the transport leased for the download
+     * @param group     the group of the segments of the download
+     * @param channel   the channel of the target file
+     * @param offset    the position of the segment in the file
+     * @param length    the size of the segment, -1 to download the whole file without a range
+     * @return CompletableFuture completed with the number of bytes written
+     */
+    private CompletableFuture<Long> downloadSegment(HttpTransport transport,
+            ConcurrentParts.Group group, FileChannel channel, long offset, long length) {
+        return downloadSegment(transport, group, channel, offset, length, null);
+    }
+
+    /**
+     * Download one segment, it is retried on its own as the retry policy of the account decides,
+     * and a truncated segment is retried like an I/O error. Segments of a resumable download are requested with If-Range, so a modified file is never stitched
+     * together with an earlier revision, and a full response is never accepted.
+     *
+     * @param transport  the transport leased for the download
+     * @param group      the group of the segments of the download
+     * @param channel    the channel of the target file
+     * @param offset     the position of the segment in the file
+     * @param length     the size of the segment, -1 to download the whole file without a range
+     * @param checkpoint the checkpoint of a resumable download, or null
+     * @return CompletableFuture completed with the number of bytes written
+     */
+    private CompletableFuture<Long> downloadSegment(HttpTransport transport,
+            ConcurrentParts.Group group, FileChannel channel, long offset, long length,
+            DownloadCheckpoint checkpoint) {
+        String url = "/storage/files/" + this.fileId + "/contents";
+        AtomicReference<FileChannelConsumer> last = new AtomicReference<FileChannelConsumer>();
+        return ConcurrentParts.withRetries(transport.getScheduler(), group,
+                this.account.getRetryPolicy(transport), new BasicHttpRequest("GET", url), () -> {
+            Map<String, Object> headers = new HashMap<String, Object>();
+            headers.put("Accept-Encoding", "identity");
+            if (length >= 0) {
+                headers.put("Range", "bytes=" + offset + "-" + (offset + length - 1));
+            }
+            if (checkpoint != null && checkpoint.getETag() != null) {
+                headers.put("If-Range", checkpoint.getETag());
+            }
+            FileChannelConsumer consumer = new FileChannelConsumer(channel, offset,
+                    offset == 0 && checkpoint == null, transport.getStatistics());
+            last.set(consumer);
+            return this.account
+                    .runHttpTransactionAsync(transport, "GET", url, "Json", headers, null,
+                            consumer)
+                    .thenApply(response -> {
+                        checkComplete(response, length, consumer.getBytesWritten());
+                        return response;
+                    });
+        }).thenApply(response -> {
+            long written = last.get().getBytesWritten();
+            checkSegment(response, checkpoint == null ? offset : -1);
+            Header etag = response.getFirstHeader("ETag");
+            if (checkpoint != null && etag != null && checkpoint.getETag() == null) {
+                checkpoint.setETag(etag.getValue());
+            }
+            return written;
+        });
+    }
+
+    /**
+     * Get the revision of the file from its metadata, so a checkpoint is never used for another
+     * revision of the file
+     *
+     * @param data the metadata of the file
+     * @return String the ETag and modification time of the file
+     */
+    private static String getRevision(JsonObject data) {
+        StringBuilder revision = new StringBuilder();
+        for (String key : new String[] {"etag", "modified"}) {
+            JsonElement value = data.get(key);
+            if (value != null && !value.isJsonNull()) {
+                revision.append(key).append('=').append(value.getAsString()).append(';');
+            }
+        }
+        return revision.toString();
+    }
+
+    /**
+     * Check the status of a segment once its retries are done, checkComplete has checked its
+     * size already
+     *
+     * @param response the response of the segment
+     * @param offset   the position of the segment in the file, -1 if a full response is never
+     *                 accepted
+     */
+    private static void checkSegment(HttpResponse response, long offset) {
+        try {
+            BaseHttpClient.checkStatus(response);
+        } catch (ApiException | IOException | ParseException e) {
+            throw new CompletionException(e);
+        }
+        boolean partial =
+                response.getStatusLine().getStatusCode() == HttpStatus.SC_PARTIAL_CONTENT;
+        if (!partial && offset != 0) {
+            throw new CompletionException(new ApiException(
+                    "The range request was not honored, the file may have been modified", null));
+        }
+    }
+
+    /**
+     * Check that a partial response has filled its segment. A truncated segment is an I/O error,
+     * so the retry policy retries it.
+     *
+     * @param response the response of the segment
+     * @param length   the expected size of the segment, -1 if it is unknown
+     * @param written  the number of bytes written
+     */
+    private static void checkComplete(HttpResponse response, long length, long written) {
+        boolean partial =
+                response.getStatusLine().getStatusCode() == HttpStatus.SC_PARTIAL_CONTENT;
+        if (partial && written != length) {
+            throw new CompletionException(new IOException(
+                    "Incomplete segment, expected " + length + " bytes but got " + written));
+        }
+    }
+
+    /**
+     * Remove the incomplete target file, errors are ignored as the download has failed already
+     */
+    private void deleteTarget() {
+        try {
+            Files.deleteIfExists(this.target);
+        } catch (IOException e) {
+            // the incomplete file is left behind
+        }
+    }
+}
@@ -0,0 +1,260 @@
+package com.kloudless;
+
+import java.util.AbstractMap;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import com.kloudless.http.QueryBuilder;
+import org.apache.http.Header;
+import org.apache.http.message.BasicHeader;
+
+/**
+ * RequestTemplate holds what the requests of a client have in common, prepared once instead of
+ * for every request: the default headers as immutable Header objects, including the
+ * Authorization and User-Agent headers, and the default query parameters joined into a query
+ * string. Requests without headers of their own share its header map and Header arrays, and a
+ * url without query string only has the default query string appended.
+ * <p>
+ * The default query parameters are taken as encoded, as they come from the query string of an
+ * earlier request. Use {@link QueryBuilder} to encode parameters.
+ */
+public final class RequestTemplate {
+    private static final Header USER_AGENT =
+            new BasicHeader("User-Agent", "kloudless-java/" + Application.getSDKVersion());
+
+    private final Headers headers;
+    private final Map<String, Object> queryParameters;
+    private final String[] queryNames;
+    private final String[] queryPairs;
+    private final String query;
+
+    /**
+     * Constructor of RequestTemplate
+     *
+     * @param headers         the default headers of the client
+     * @param queryParameters the default query parameters of the client
+     */
+    public RequestTemplate(Map<String, Object> headers, Map<String, Object> queryParameters) {
+        this.headers = headers instanceof Headers ? (Headers) headers : new Headers(headers);
+        this.queryParameters = queryParameters.isEmpty() ? Collections.<String, Object>emptyMap()
+                : new LinkedHashMap<String, Object>(queryParameters);
+        this.queryNames = new String[queryParameters.size()];
+        this.queryPairs = new String[queryParameters.size()];
+        QueryBuilder query = new QueryBuilder();
+        int index = 0;
+        for (Map.Entry<String, Object> entry : queryParameters.entrySet()) {
+            this.queryNames[index] = entry.getKey();
+            this.queryPairs[index] = entry.getKey() + "=" + entry.getValue();
+            query.addEncoded(this.queryPairs[index]);
+            index++;
+        }
+        this.query = query.toString();
+    }
+
+    /**
+     * Whether this template was prepared from defaults equal to the given ones, the defaults are
+     * compared entry by entry
+     *
+     * @param headers         the default headers of the client
+     * @param queryParameters the default query parameters of the client
+     * @return boolean true if the template can be used for the defaults
+     */
+    public boolean isFor(Map<String, Object> headers, Map<String, Object> queryParameters) {
+        return (headers == this.headers || this.headers.matches(headers))
+                && matches(this.queryParameters, queryParameters);
+    }
+
+    /**
+     * Get the default headers, they cannot be modified
+     *
+     * @return Map the default headers
+     */
+    public Map<String, Object> getHeaders() {
+        return this.headers;
+    }
+
+    /**
+     * Merge the headers of a request with the default headers, headers of the request overwrite
+     * default headers with the same name
+     *
+     * @param requestHeaders the headers of the request, or null
+     * @return Map the merged headers, the default headers themselves if the request has none
+     */
+    public Map<String, Object> mergeHeaders(Map<String, Object> requestHeaders) {
+        if (requestHeaders == null || requestHeaders.isEmpty()) {
+            return this.headers;
+        }
+        Map<String, Object> merged = new HashMap<String, Object>(
+                (this.headers.size() + requestHeaders.size()) * 4 / 3 + 1);
+        merged.putAll(this.headers.map);
+        merged.putAll(requestHeaders);
+        return merged;
+    }
+
+    /**
+     * Append the default query parameters to the query string of a url, unless the url has a
+     * parameter of the same name already
+     *
+     * @param url the relative url, with or without query string
+     * @return String the url with the default query parameters
+     */
+    public String appendQuery(String url) {
+        if (this.queryNames.length == 0) {
+            return url;
+        }
+        int index = url.indexOf('?');
+        if (index < 0) {
+            return url + '?' + this.query;
+        }
+        StringBuilder builder = null;
+        for (int i = 0; i < this.queryNames.length; i++) {
+            if (!QueryBuilder.containsParameter(url, index + 1, this.queryNames[i])) {
+                if (builder == null) {
+                    builder = new StringBuilder(url.length() + this.query.length() + 1)
+                            .append(url);
+                }
+                if (builder.length() > index + 1) {
+                    builder.append('&');
+                }
+                builder.append(this.queryPairs[i]);
+            }
+        }
+        return builder == null ? url : builder.toString();
+    }
+
+    /**
+     * Get the headers to send with a request
+     *
+     * @param headers     the merged headers of the request
+     * @param contentType the content type of the request
+     * @return Header[] the headers followed by the User-Agent and Content-Type headers
+     */
+    static Header[] toHeaderArray(Map<String, Object> headers, String contentType) {
+        if (headers instanceof Headers) {
+            return ((Headers) headers).toHeaderArray(contentType);
+        }
+        Header[] array = new Header[(headers == null ? 0 : headers.size()) + 2];
+        int index = 0;
+        if (headers != null) {
+            for (Map.Entry<String, Object> entry : headers.entrySet()) {
+                array[index++] = new BasicHeader(entry.getKey(), toValue(entry.getValue()));
+            }
+        }
+        array[index++] = USER_AGENT;
+        array[index] = new BasicHeader("Content-Type", contentType);
+        return array;
+    }
+
+    /**
+     * Add a header to the default headers without copying them for every request, e.g. the
+     * Accept-Encoding header
+     *
+     * @param headers the merged headers of a request
+     * @param name    the name of the header
+     * @param value   the value of the header
+     * @return Map the headers with the added header
+     */
+    static Map<String, Object> withHeader(Map<String, Object> headers, String name,
+            String value) {
+        if (headers instanceof Headers) {
+            return ((Headers) headers).with(name, value);
+        }
+        Map<String, Object> requestHeaders = new LinkedHashMap<String, Object>(headers);
+        requestHeaders.put(name, value);
+        return requestHeaders;
+    }
+
+    private static boolean matches(Map<String, Object> expected, Map<String, Object> actual) {
+        if (expected.size() != actual.size()) {
+            return false;
+        }
+        for (Map.Entry<String, Object> entry : expected.entrySet()) {
+            Object value = actual.get(entry.getKey());
+            if (value == null ? entry.getValue() != null || !actual.containsKey(entry.getKey())
+                    : !value.equals(entry.getValue())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String toValue(Object value) {
+        return value == null ? null : value.toString();
+    }
+
+    /**
+     * Headers is an immutable map of headers which keeps them as Header arrays, one for every
+     * content type requests are sent with
+     */
+    static final class Headers extends AbstractMap<String, Object> {
+        private final Map<String, Object> map;
+        private final Set<Map.Entry<String, Object>> entries;
+        private final Header[] array;
+        private final ConcurrentMap<String, Header[]> arrays =
+                new ConcurrentHashMap<String, Header[]>(4);
+        private final ConcurrentMap<String, Headers> extended =
+                new ConcurrentHashMap<String, Headers>(2);
+
+        Headers(Map<String, Object> headers) {
+            this.map = new LinkedHashMap<String, Object>(headers);
+            this.entries = Collections.unmodifiableMap(this.map).entrySet();
+            this.array = new Header[this.map.size()];
+            int index = 0;
+            for (Map.Entry<String, Object> entry : this.map.entrySet()) {
+                this.array[index++] = new BasicHeader(entry.getKey(), toValue(entry.getValue()));
+            }
+        }
+
+        Header[] toHeaderArray(String contentType) {
+            Header[] headers = this.arrays.get(contentType);
+            if (headers == null) {
+                headers = new Header[this.array.length + 2];
+                System.arraycopy(this.array, 0, headers, 0, this.array.length);
+                headers[this.array.length] = USER_AGENT;
+                headers[this.array.length + 1] = new BasicHeader("Content-Type", contentType);
+                Header[] existing = this.arrays.putIfAbsent(contentType, headers);
+                headers = existing != null ? existing : headers;
+            }
+            return headers;
+        }
+
+        boolean matches(Map<String, Object> headers) {
+            return RequestTemplate.matches(this.map, headers);
+        }
+
+        Headers with(String name, String value) {
+            Headers headers = this.extended.get(name);
+            if (headers == null || !value.equals(headers.get(name))) {
+                Map<String, Object> map = new LinkedHashMap<String, Object>(this.map);
+                map.put(name, value);
+                headers = new Headers(map);
+                this.extended.put(name, headers);
+            }
+            return headers;
+        }
+
+        @Override
+        public Object get(Object key) {
+            return this.map.get(key);
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return this.map.containsKey(key);
+        }
+
+        @Override
+        public int size() {
+            return this.map.size();
+        }
+
+        @Override
+        public Set<Map.Entry<String, Object>> entrySet() {
+            return this.entries;
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.kloudless;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -7,6 +8,8 @@ import java.util.Map;
  * SimpleClient is a pure http client without any token infomation
  */
 public class SimpleClient extends BaseHttpClient {
+    private static final RequestTemplate REQUEST_TEMPLATE = new RequestTemplate(
+            Collections.<String, Object>emptyMap(), Collections.<String, Object>emptyMap());
 
     public SimpleClient() {
 
@@ -41,4 +44,15 @@ public class SimpleClient extends BaseHttpClient {
     public Map<String, Object> getDefaultQueryParameters() {
         return new HashMap<String, Object>();
     }
+
+    /**
+     * Get the template of the requests, it is the same for every SimpleClient as there are no
+     * default headers or query parameters
+     * 
+     * @return RequestTemplate the template without default headers and query parameters
+     */
+    @Override
+    protected RequestTemplate getRequestTemplate() {
+        return REQUEST_TEMPLATE;
+    }
 }
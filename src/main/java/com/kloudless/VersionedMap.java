@@ -0,0 +1,145 @@
+package com.kloudless;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * VersionedMap wraps a map and counts the modifications made through it, so an object prepared
+ * from its content, such as the RequestTemplate of a Client, is only prepared again after the map
+ * has been modified instead of comparing the content for every request. Modifications are
+ * written through to the wrapped map.
+ *
+ * @param <K> the type of the keys
+ * @param <V> the type of the values
+ */
+final class VersionedMap<K, V> extends AbstractMap<K, V> {
+    private final Map<K, V> map;
+    private final AtomicInteger version = new AtomicInteger();
+    private final Set<Map.Entry<K, V>> entries = new EntrySet();
+
+    /**
+     * Constructor of VersionedMap
+     *
+     * @param map the map to wrap
+     */
+    VersionedMap(Map<K, V> map) {
+        this.map = map;
+    }
+
+    /**
+     * Get the number of modifications made so far
+     *
+     * @return int the version of the content
+     */
+    int getVersion() {
+        return this.version.get();
+    }
+
+    @Override
+    public int size() {
+        return this.map.size();
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return this.map.containsKey(key);
+    }
+
+    @Override
+    public V get(Object key) {
+        return this.map.get(key);
+    }
+
+    @Override
+    public V put(K key, V value) {
+        try {
+            return this.map.put(key, value);
+        } finally {
+            this.version.incrementAndGet();
+        }
+    }
+
+    @Override
+    public V remove(Object key) {
+        try {
+            return this.map.remove(key);
+        } finally {
+            this.version.incrementAndGet();
+        }
+    }
+
+    @Override
+    public void putAll(Map<? extends K, ? extends V> m) {
+        try {
+            this.map.putAll(m);
+        } finally {
+            this.version.incrementAndGet();
+        }
+    }
+
+    @Override
+    public void clear() {
+        try {
+            this.map.clear();
+        } finally {
+            this.version.incrementAndGet();
+        }
+    }
+
+    @Override
+    public Set<Map.Entry<K, V>> entrySet() {
+        return this.entries;
+    }
+
+    /**
+     * The entries of the wrapped map, removing an entry or setting its value counts as a
+     * modification
+     */
+    private final class EntrySet extends AbstractSet<Map.Entry<K, V>> {
+
+        @Override
+        public int size() {
+            return VersionedMap.this.map.size();
+        }
+
+        @Override
+        public Iterator<Map.Entry<K, V>> iterator() {
+            Iterator<Map.Entry<K, V>> iterator = VersionedMap.this.map.entrySet().iterator();
+            return new Iterator<Map.Entry<K, V>>() {
+
+                @Override
+                public boolean hasNext() {
+                    return iterator.hasNext();
+                }
+
+                @Override
+                public Map.Entry<K, V> next() {
+                    Map.Entry<K, V> entry = iterator.next();
+                    return new SimpleEntry<K, V>(entry) {
+                        private static final long serialVersionUID = 1L;
+
+                        @Override
+                        public V setValue(V value) {
+                            super.setValue(value);
+                            try {
+                                return entry.setValue(value);
+                            } finally {
+                                VersionedMap.this.version.incrementAndGet();
+                            }
+                        }
+                    };
+                }
+
+                @Override
+                public void remove() {
+                    iterator.remove();
+                    VersionedMap.this.version.incrementAndGet();
+                }
+            };
+        }
+    }
+}
@@ -2,8 +2,30 @@ package com.kloudless.exceptions;
 
 public class ApiException extends KloudlessException {
     private static final long serialVersionUID = 1L;
+    private final int statusCode;
 
     public ApiException(String message, Exception e) {
+        this(message, e, -1);
+    }
+
+    /**
+     * Constructor of ApiException for an error response of the API server
+     *
+     * @param message    the message of the error
+     * @param e          the cause of the error, or null
+     * @param statusCode the status code of the error response
+     */
+    public ApiException(String message, Exception e, int statusCode) {
         super(message, e);
+        this.statusCode = statusCode;
+    }
+
+    /**
+     * Get the status code of the error response
+     *
+     * @return int the status code, -1 if the error is not an error response
+     */
+    public int getStatusCode() {
+        return this.statusCode;
     }
 }
@@ -7,7 +7,7 @@ abstract class KloudlessException extends Exception {
     private static final Logger logger = Logger.getLogger(KloudlessException.class.getName());
 
     public KloudlessException(String message, Exception e) {
-        super(message);
+        super(message, e);
         if (e != null) {
             logger.info(message + " : " + e.getMessage());
         } else {
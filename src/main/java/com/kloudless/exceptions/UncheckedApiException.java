@@ -0,0 +1,17 @@
+package com.kloudless.exceptions;
+
+/**
+ * Wraps an ApiException where a checked exception cannot be thrown, such as inside a Stream.
+ */
+public class UncheckedApiException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    public UncheckedApiException(String message, ApiException e) {
+        super(message, e);
+    }
+
+    @Override
+    public ApiException getCause() {
+        return (ApiException) super.getCause();
+    }
+}
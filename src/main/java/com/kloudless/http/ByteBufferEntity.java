@@ -0,0 +1,107 @@
+package com.kloudless.http;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import org.apache.http.entity.AbstractHttpEntity;
+import org.apache.http.entity.ContentType;
+import org.apache.http.nio.ContentEncoder;
+import org.apache.http.nio.IOControl;
+import org.apache.http.nio.entity.HttpAsyncContentProducer;
+
+/**
+ * ByteBufferEntity sends the remaining bytes of a ByteBuffer. The position of the given buffer is
+ * never changed, so the entity is repeatable. Heap buffers are written from their backing array
+ * and direct buffers are written to the non-blocking client without a copy.
+ */
+public class ByteBufferEntity extends AbstractHttpEntity implements HttpAsyncContentProducer {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final ByteBuffer content;
+    private ByteBuffer producerBuffer;
+
+    /**
+     * Constructor of ByteBufferEntity
+     *
+     * @param content the buffer, the bytes between its position and limit are sent
+     */
+    public ByteBufferEntity(ByteBuffer content) {
+        this.content = content.duplicate();
+        setContentType(ContentType.APPLICATION_OCTET_STREAM.toString());
+    }
+
+    @Override
+    public boolean isRepeatable() {
+        return true;
+    }
+
+    @Override
+    public long getContentLength() {
+        return this.content.remaining();
+    }
+
+    @Override
+    public InputStream getContent() throws IOException {
+        ByteBuffer buffer = this.content.duplicate();
+        return new InputStream() {
+            @Override
+            public int read() {
+                return buffer.hasRemaining() ? buffer.get() & 0xff : -1;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) {
+                if (!buffer.hasRemaining()) {
+                    return -1;
+                }
+                int count = Math.min(len, buffer.remaining());
+                buffer.get(b, off, count);
+                return count;
+            }
+
+            @Override
+            public int available() {
+                return buffer.remaining();
+            }
+        };
+    }
+
+    @Override
+    public void writeTo(OutputStream outStream) throws IOException {
+        ByteBuffer buffer = this.content.duplicate();
+        if (buffer.hasArray()) {
+            outStream.write(buffer.array(), buffer.arrayOffset() + buffer.position(),
+                    buffer.remaining());
+            return;
+        }
+        byte[] chunk = new byte[Math.min(BUFFER_SIZE, buffer.remaining())];
+        while (buffer.hasRemaining()) {
+            int count = Math.min(chunk.length, buffer.remaining());
+            buffer.get(chunk, 0, count);
+            outStream.write(chunk, 0, count);
+        }
+    }
+
+    @Override
+    public boolean isStreaming() {
+        return false;
+    }
+
+    @Override
+    public void produceContent(ContentEncoder encoder, IOControl ioControl) throws IOException {
+        if (this.producerBuffer == null) {
+            this.producerBuffer = this.content.duplicate();
+        }
+        encoder.write(this.producerBuffer);
+        if (!this.producerBuffer.hasRemaining()) {
+            encoder.complete();
+            this.producerBuffer = null;
+        }
+    }
+
+    @Override
+    public void close() {
+        this.producerBuffer = null;
+    }
+}
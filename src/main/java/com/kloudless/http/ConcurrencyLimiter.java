@@ -0,0 +1,200 @@
+package com.kloudless.http;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * ConcurrencyLimiter adapts the number of requests in flight to the observed latency. It keeps a
+ * moving average of the latency and a baseline, the lowest average seen, which drifts up slowly
+ * so a permanently slower service is accepted eventually. While the average stays within the
+ * tolerated multiple of the baseline and the limit is being used, the limit grows by about one
+ * per round trip. When the average rises above it, the limit is cut by the ratio of the two, by
+ * at most half. A request throttled with 429 or 503, or failing, cuts the limit by a quarter. The
+ * limit is cut at most once per round trip.
+ */
+public class ConcurrencyLimiter {
+    private static final double LATENCY_BACKOFF = 0.9;
+    private static final double DROP_BACKOFF = 0.75;
+    private static final double LATENCY_WEIGHT = 0.1;
+    private static final double BASELINE_DRIFT = 0.002;
+
+    private final int maxLimit;
+    private final double latencyTolerance;
+    private final Deque<CompletableFuture<Void>> waiters = new ArrayDeque<CompletableFuture<Void>>();
+    private double limit;
+    private int inFlight = 0;
+    private double latency = -1;
+    private double baseline = -1;
+    private long lastDecrease = System.nanoTime();
+
+    /**
+     * Constructor of ConcurrencyLimiter
+     *
+     * @param initialLimit     the limit before any latency has been observed
+     * @param maxLimit         the highest limit
+     * @param latencyTolerance the multiple of the baseline latency above which the limit is cut
+     */
+    public ConcurrencyLimiter(int initialLimit, int maxLimit, double latencyTolerance) {
+        this.limit = Math.max(1, Math.min(initialLimit, maxLimit));
+        this.maxLimit = maxLimit;
+        this.latencyTolerance = latencyTolerance;
+    }
+
+    /**
+     * Get the current limit
+     *
+     * @return int the number of requests allowed in flight
+     */
+    public synchronized int getLimit() {
+        return (int) this.limit;
+    }
+
+    /**
+     * Get the number of requests in flight
+     *
+     * @return int the number of requests in flight
+     */
+    public synchronized int getInFlight() {
+        return this.inFlight;
+    }
+
+    /**
+     * Get the number of asynchronous requests waiting for a slot
+     *
+     * @return int the number of waiting requests
+     */
+    public synchronized int getQueued() {
+        return this.waiters.size();
+    }
+
+    /**
+     * Get the moving average of the latency
+     *
+     * @return long the average latency in nanoseconds, -1 if nothing has been observed yet
+     */
+    public synchronized long getLatency() {
+        return (long) this.latency;
+    }
+
+    /**
+     * Get the baseline latency the average latency is compared with
+     *
+     * @return long the baseline latency in nanoseconds, -1 if nothing has been observed yet
+     */
+    public synchronized long getBaselineLatency() {
+        return (long) this.baseline;
+    }
+
+    /**
+     * Take a slot if one is free right away
+     *
+     * @return boolean true if a slot was taken
+     */
+    public synchronized boolean tryAcquire() {
+        if (this.inFlight < (int) this.limit && this.waiters.isEmpty()) {
+            this.inFlight++;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Take a slot, waiting until one is free
+     *
+     * @throws InterruptedException Error when the thread is interrupted while waiting
+     */
+    public synchronized void acquire() throws InterruptedException {
+        while (this.inFlight >= (int) this.limit) {
+            wait();
+        }
+        this.inFlight++;
+    }
+
+    /**
+     * Take a slot without blocking
+     *
+     * @return CompletableFuture completed once a slot has been taken. Cancel it to stop waiting.
+     */
+    public CompletableFuture<Void> acquireAsync() {
+        CompletableFuture<Void> slot = new CompletableFuture<Void>();
+        synchronized (this) {
+            if (this.inFlight < (int) this.limit && this.waiters.isEmpty()) {
+                this.inFlight++;
+                slot.complete(null);
+            } else {
+                this.waiters.add(slot);
+            }
+        }
+        return slot;
+    }
+
+    /**
+     * Give a slot back and adapt the limit to the outcome of the request
+     *
+     * @param latency the latency of the request in nanoseconds, -1 if it was not sent
+     * @param dropped whether the request was throttled by the server or failed
+     */
+    public void release(long latency, boolean dropped) {
+        List<CompletableFuture<Void>> admitted = new ArrayList<CompletableFuture<Void>>();
+        synchronized (this) {
+            this.inFlight--;
+            if (latency >= 0) {
+                adapt(latency, dropped);
+            }
+            while (this.inFlight < (int) this.limit && !this.waiters.isEmpty()) {
+                CompletableFuture<Void> slot = this.waiters.poll();
+                if (!slot.isDone()) {
+                    this.inFlight++;
+                    admitted.add(slot);
+                }
+            }
+            notifyAll();
+        }
+        for (CompletableFuture<Void> slot : admitted) {
+            if (!slot.complete(null)) {
+                release(-1, false);
+            }
+        }
+    }
+
+    /**
+     * Adapt the limit to one observed request
+     *
+     * @param sample  the latency of the request in nanoseconds
+     * @param dropped whether the request was throttled by the server or failed
+     */
+    private void adapt(long sample, boolean dropped) {
+        long now = System.nanoTime();
+        boolean mayDecrease = now - this.lastDecrease > Math.max(this.latency, 0);
+        if (dropped) {
+            if (mayDecrease) {
+                this.limit = Math.max(1, this.limit * DROP_BACKOFF);
+                this.lastDecrease = now;
+            }
+            return;
+        }
+        if (this.latency < 0) {
+            this.latency = sample;
+            this.baseline = sample;
+            return;
+        }
+        this.latency += (sample - this.latency) * LATENCY_WEIGHT;
+        this.baseline = Math.min(this.latency,
+                this.baseline + (this.latency - this.baseline) * BASELINE_DRIFT);
+        double gradient = this.latencyTolerance * this.baseline / this.latency;
+        if (gradient < 1 && this.limit < 2) {
+            // a single request is slow, so the latency is not caused by the load of this client
+            this.baseline = this.latency;
+        } else if (gradient < 1) {
+            if (mayDecrease) {
+                this.limit = Math.max(1, this.limit * Math.max(0.5, gradient));
+                this.lastDecrease = now;
+            }
+        } else if ((this.inFlight + 1) * 2 >= this.limit) {
+            this.limit = Math.min(this.maxLimit, this.limit + 1 / this.limit);
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.kloudless.http;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.apache.http.HttpRequest;
+
+/**
+ * ConcurrencyLimits keeps one adaptive ConcurrencyLimiter per service type, such as storage, cal
+ * or crm, taken from the path of the request. Requests which are not made for an account, e.g.
+ * to the application endpoints, are limited by the first segment of their path.
+ */
+public class ConcurrencyLimits {
+    private static final Pattern SERVICE_PATTERN =
+            Pattern.compile("/v\\d+/(?:accounts/[^/?]+/)?([^/?]+)");
+
+    private final TransportConfig config;
+    private final ConcurrentMap<String, ConcurrencyLimiter> limiters =
+            new ConcurrentHashMap<String, ConcurrencyLimiter>();
+
+    /**
+     * Constructor of ConcurrencyLimits
+     *
+     * @param config the transport settings with the limits
+     */
+    public ConcurrencyLimits(TransportConfig config) {
+        this.config = config;
+    }
+
+    /**
+     * Get the limiter of a service type
+     *
+     * @param service the service type, e.g. storage
+     * @return ConcurrencyLimiter the limiter, or null if adaptive concurrency is disabled
+     */
+    public ConcurrencyLimiter getLimiter(String service) {
+        if (!this.config.isAdaptiveConcurrency()) {
+            return null;
+        }
+        return this.limiters.computeIfAbsent(service,
+                key -> new ConcurrencyLimiter(this.config.getInitialConcurrencyLimit(),
+                        this.config.getMaxConcurrencyLimit(),
+                        this.config.getLatencyTolerance()));
+    }
+
+    /**
+     * Get the limiter of the service type of a request
+     *
+     * @param request the request about to be sent
+     * @return ConcurrencyLimiter the limiter, or null if adaptive concurrency is disabled
+     */
+    public ConcurrencyLimiter getLimiter(HttpRequest request) {
+        if (!this.config.isAdaptiveConcurrency()) {
+            return null;
+        }
+        Matcher matcher = SERVICE_PATTERN.matcher(request.getRequestLine().getUri());
+        return getLimiter(matcher.find() ? matcher.group(1) : "");
+    }
+
+    /**
+     * Get the current limit of every service type, e.g. to export them to a monitoring system
+     *
+     * @return Map the current limits by service type
+     */
+    public Map<String, Integer> getLimits() {
+        Map<String, Integer> limits = new TreeMap<String, Integer>();
+        for (Map.Entry<String, ConcurrencyLimiter> entry : this.limiters.entrySet()) {
+            limits.put(entry.getKey(), entry.getValue().getLimit());
+        }
+        return limits;
+    }
+
+    /**
+     * Get the limiters of all service types seen so far
+     *
+     * @return Map the limiters by service type
+     */
+    public Map<String, ConcurrencyLimiter> getLimiters() {
+        return new TreeMap<String, ConcurrencyLimiter>(this.limiters);
+    }
+}
@@ -0,0 +1,193 @@
+package com.kloudless.http;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Locale;
+import java.util.zip.GZIPInputStream;
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.entity.DeflateInputStream;
+import org.apache.http.entity.HttpEntityWrapper;
+
+/**
+ * DecodingEntity decompresses a gzip or deflate encoded response body while it is read, and
+ * counts the bytes before and after decompression.
+ */
+public class DecodingEntity extends HttpEntityWrapper {
+    private static final int BUFFER_SIZE = 8192;
+
+    private final String encoding;
+    private final TransferStatistics statistics;
+    private InputStream content;
+    private long wireBytes = 0;
+    private long decodedBytes = 0;
+
+    /**
+     * Constructor of DecodingEntity
+     *
+     * @param wrappedEntity the entity received from the server
+     * @param encoding      the content encoding, gzip, deflate or null to pass the body through
+     * @param statistics    the counters to update, could be null
+     */
+    DecodingEntity(HttpEntity wrappedEntity, String encoding, TransferStatistics statistics) {
+        super(wrappedEntity);
+        this.encoding = encoding;
+        this.statistics = statistics;
+    }
+
+    /**
+     * Replace the entity of the response with a DecodingEntity. The Content-Encoding and
+     * Content-Length headers are removed when the body is decompressed. A body with any other
+     * content encoding, e.g. br, is passed through unchanged like an identity body, the
+     * Content-Encoding header tells the caller how to decode it.
+     *
+     * @param response   the response received from the server
+     * @param statistics the counters to update, could be null
+     * @throws IOException Error when the entity of the response could not be read
+     */
+    public static void decode(HttpResponse response, TransferStatistics statistics)
+            throws IOException {
+        HttpEntity entity = response.getEntity();
+        if (entity == null || entity instanceof DecodingEntity) {
+            return;
+        }
+        Header contentEncoding = entity.getContentEncoding();
+        String encoding = contentEncoding == null ? null
+                : contentEncoding.getValue().trim().toLowerCase(Locale.ROOT);
+        if (!"gzip".equals(encoding) && !"x-gzip".equals(encoding)
+                && !"deflate".equals(encoding)) {
+            response.setEntity(new DecodingEntity(entity, null, statistics));
+            return;
+        }
+        response.setEntity(new DecodingEntity(entity, encoding, statistics));
+        response.removeHeaders("Content-Length");
+        response.removeHeaders("Content-Encoding");
+        response.removeHeaders("Content-MD5");
+        if (statistics != null) {
+            statistics.addCompressedResponse();
+        }
+    }
+
+    /**
+     * Get the number of bytes of this body received on the wire so far
+     *
+     * @return long number of bytes before decompression
+     */
+    public long getWireBytes() {
+        return this.wireBytes;
+    }
+
+    /**
+     * Get the number of bytes of this body read so far
+     *
+     * @return long number of bytes after decompression
+     */
+    public long getDecodedBytes() {
+        return this.decodedBytes;
+    }
+
+    @Override
+    public Header getContentEncoding() {
+        return this.encoding == null ? super.getContentEncoding() : null;
+    }
+
+    @Override
+    public long getContentLength() {
+        return this.encoding == null ? super.getContentLength() : -1;
+    }
+
+    @Override
+    public InputStream getContent() throws IOException {
+        if (this.wrappedEntity.isStreaming()) {
+            if (this.content == null) {
+                this.content = decodedStream();
+            }
+            return this.content;
+        }
+        return decodedStream();
+    }
+
+    @Override
+    public void writeTo(OutputStream outStream) throws IOException {
+        try (InputStream in = getContent()) {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                outStream.write(buffer, 0, read);
+            }
+        }
+    }
+
+    /**
+     * Open the decoded stream of the wrapped entity
+     *
+     * @return InputStream counting the bytes before and after decompression
+     * @throws IOException Error when opening the stream failed
+     */
+    private InputStream decodedStream() throws IOException {
+        InputStream wire = new CountingInputStream(this.wrappedEntity.getContent(), true);
+        if (this.encoding == null) {
+            // identity, the wire bytes are the decoded bytes
+            return new CountingInputStream(wire, false);
+        }
+        InputStream decoded = "deflate".equals(this.encoding) ? new DeflateInputStream(wire)
+                : new GZIPInputStream(wire, BUFFER_SIZE);
+        return new CountingInputStream(decoded, false);
+    }
+
+    /**
+     * Counts the bytes read from the wrapped stream into the entity and the statistics
+     */
+    private class CountingInputStream extends FilterInputStream {
+        private final boolean onWire;
+
+        CountingInputStream(InputStream in, boolean onWire) {
+            super(in);
+            this.onWire = onWire;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int value = super.read();
+            if (value != -1) {
+                count(1);
+            }
+            return value;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int read = super.read(b, off, len);
+            if (read > 0) {
+                count(read);
+            }
+            return read;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            if (skipped > 0) {
+                count(skipped);
+            }
+            return skipped;
+        }
+
+        private void count(long bytes) {
+            if (this.onWire) {
+                wireBytes += bytes;
+                if (statistics != null) {
+                    statistics.addWireBytes(bytes);
+                }
+            } else {
+                decodedBytes += bytes;
+                if (statistics != null) {
+                    statistics.addDecodedBytes(bytes);
+                }
+            }
+        }
+    }
+}
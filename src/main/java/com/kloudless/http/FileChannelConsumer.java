@@ -0,0 +1,135 @@
+package com.kloudless.http;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.ContentType;
+import org.apache.http.nio.ContentDecoder;
+import org.apache.http.nio.FileContentDecoder;
+import org.apache.http.nio.IOControl;
+import org.apache.http.nio.protocol.AbstractAsyncResponseConsumer;
+import org.apache.http.protocol.HttpContext;
+
+/**
+ * FileChannelConsumer writes the body of a download straight into a FileChannel at a given
+ * offset, e.g. one segment of a ranged download. The content is transferred from the socket to
+ * the file without a user-space copy whenever the connection allows it. The body of an error
+ * response is kept, up to a limit, as the entity of the resulting response so its message can be
+ * reported.
+ */
+public class FileChannelConsumer extends AbstractAsyncResponseConsumer<HttpResponse> {
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int ERROR_BODY_LIMIT = 8192;
+
+    private final FileChannel channel;
+    private final long offset;
+    private final boolean acceptFullContent;
+    private final TransferStatistics statistics;
+    private HttpResponse response;
+    private boolean writing;
+    private long position;
+    private ByteBuffer buffer;
+    private ByteArrayOutputStream errorBody;
+
+    /**
+     * Constructor of FileChannelConsumer
+     *
+     * @param channel           the channel to write to, positional writes are used so it can be
+     *                          shared by several consumers
+     * @param offset            the position of the first byte of the response body in the file
+     * @param acceptFullContent whether a 200 response is written as well as a 206 response
+     * @param statistics        the counters of downloaded bytes
+     */
+    public FileChannelConsumer(FileChannel channel, long offset, boolean acceptFullContent,
+            TransferStatistics statistics) {
+        this.channel = channel;
+        this.offset = offset;
+        this.position = offset;
+        this.acceptFullContent = acceptFullContent;
+        this.statistics = statistics;
+    }
+
+    /**
+     * Get the number of bytes written to the file
+     *
+     * @return long the number of bytes written
+     */
+    public long getBytesWritten() {
+        return this.position - this.offset;
+    }
+
+    @Override
+    protected void onResponseReceived(HttpResponse response) throws IOException {
+        this.response = response;
+        int status = response.getStatusLine().getStatusCode();
+        this.writing = status == HttpStatus.SC_PARTIAL_CONTENT
+                || status == HttpStatus.SC_OK && this.acceptFullContent;
+        Header encoding = response.getFirstHeader("Content-Encoding");
+        if (this.writing && encoding != null
+                && !"identity".equalsIgnoreCase(encoding.getValue())) {
+            throw new IOException("Unexpected content encoding " + encoding.getValue());
+        }
+        if (!this.writing) {
+            this.errorBody = new ByteArrayOutputStream();
+        }
+    }
+
+    @Override
+    protected void onEntityEnclosed(HttpEntity entity, ContentType contentType) {
+
+    }
+
+    @Override
+    protected void onContentReceived(ContentDecoder decoder, IOControl ioControl)
+            throws IOException {
+        long count;
+        if (this.writing && decoder instanceof FileContentDecoder) {
+            count = ((FileContentDecoder) decoder).transfer(this.channel, this.position,
+                    Integer.MAX_VALUE);
+        } else {
+            if (this.buffer == null) {
+                this.buffer = ByteBuffer.allocate(this.writing ? BUFFER_SIZE : ERROR_BODY_LIMIT);
+            }
+            count = decoder.read(this.buffer);
+            this.buffer.flip();
+            if (this.writing) {
+                long position = this.position;
+                while (this.buffer.hasRemaining()) {
+                    position += this.channel.write(this.buffer, position);
+                }
+            } else if (this.errorBody.size() < ERROR_BODY_LIMIT) {
+                this.errorBody.write(this.buffer.array(), 0,
+                        Math.min(this.buffer.remaining(), ERROR_BODY_LIMIT - this.errorBody.size()));
+            }
+            this.buffer.clear();
+        }
+        if (count > 0) {
+            if (this.writing) {
+                this.position += count;
+            }
+            this.statistics.addWireBytes(count);
+            this.statistics.addDecodedBytes(count);
+        }
+    }
+
+    @Override
+    protected HttpResponse buildResult(HttpContext context) {
+        if (this.writing) {
+            this.response.setEntity(null);
+        } else {
+            this.response.setEntity(new ByteArrayEntity(this.errorBody.toByteArray()));
+        }
+        return this.response;
+    }
+
+    @Override
+    protected void releaseResources() {
+        this.buffer = null;
+    }
+}
@@ -0,0 +1,187 @@
+package com.kloudless.http;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import org.apache.http.entity.AbstractHttpEntity;
+import org.apache.http.entity.ContentType;
+import org.apache.http.nio.ContentEncoder;
+import org.apache.http.nio.FileContentEncoder;
+import org.apache.http.nio.IOControl;
+import org.apache.http.nio.entity.HttpAsyncContentProducer;
+
+/**
+ * FileRegionEntity sends a region of a local file, e.g. one part of a multipart upload. The file
+ * is opened whenever the entity is written, so the entity is repeatable. On the non-blocking
+ * client the region is handed to {@link FileChannel#transferTo} whenever the connection allows
+ * it, so the bytes do not pass through a user-space buffer.
+ */
+public class FileRegionEntity extends AbstractHttpEntity implements HttpAsyncContentProducer {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Path file;
+    private final long offset;
+    private final long length;
+    private FileChannel producerChannel;
+    private ByteBuffer producerBuffer;
+    private long producerPosition;
+
+    /**
+     * Constructor of FileRegionEntity
+     *
+     * @param file   the file to send
+     * @param offset the position of the first byte to send
+     * @param length the number of bytes to send
+     */
+    public FileRegionEntity(File file, long offset, long length) {
+        this(file.toPath(), offset, length);
+    }
+
+    /**
+     * Constructor of FileRegionEntity
+     *
+     * @param file   the path of the file to send
+     * @param offset the position of the first byte to send
+     * @param length the number of bytes to send
+     */
+    public FileRegionEntity(Path file, long offset, long length) {
+        this.file = file;
+        this.offset = offset;
+        this.length = length;
+        setContentType(ContentType.APPLICATION_OCTET_STREAM.toString());
+    }
+
+    @Override
+    public boolean isRepeatable() {
+        return true;
+    }
+
+    @Override
+    public long getContentLength() {
+        return this.length;
+    }
+
+    @Override
+    public InputStream getContent() throws IOException {
+        FileChannel channel = FileChannel.open(this.file, StandardOpenOption.READ);
+        channel.position(this.offset);
+        return new BoundedInputStream(Channels.newInputStream(channel), this.length);
+    }
+
+    @Override
+    public void writeTo(OutputStream outStream) throws IOException {
+        try (FileChannel channel =
+                FileChannel.open(this.file, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(BUFFER_SIZE, this.length));
+            long position = this.offset;
+            long end = this.offset + this.length;
+            while (position < end) {
+                buffer.clear();
+                buffer.limit((int) Math.min(buffer.capacity(), end - position));
+                int read = channel.read(buffer, position);
+                if (read < 0) {
+                    throw new IOException("Unexpected end of file " + this.file);
+                }
+                outStream.write(buffer.array(), 0, read);
+                position += read;
+            }
+        }
+    }
+
+    @Override
+    public boolean isStreaming() {
+        return false;
+    }
+
+    @Override
+    public void produceContent(ContentEncoder encoder, IOControl ioControl) throws IOException {
+        if (this.producerChannel == null) {
+            this.producerChannel = FileChannel.open(this.file, StandardOpenOption.READ);
+            this.producerPosition = this.offset;
+        }
+        long end = this.offset + this.length;
+        long remaining = end - this.producerPosition;
+        long written;
+        if (encoder instanceof FileContentEncoder) {
+            written = ((FileContentEncoder) encoder).transfer(this.producerChannel,
+                    this.producerPosition, remaining);
+        } else {
+            if (this.producerBuffer == null) {
+                this.producerBuffer = ByteBuffer.allocate(BUFFER_SIZE);
+                this.producerBuffer.flip();
+            }
+            if (!this.producerBuffer.hasRemaining()) {
+                this.producerBuffer.clear();
+                this.producerBuffer.limit((int) Math.min(BUFFER_SIZE, remaining));
+                if (this.producerChannel.read(this.producerBuffer, this.producerPosition) < 0) {
+                    throw new IOException("Unexpected end of file " + this.file);
+                }
+                this.producerBuffer.flip();
+            }
+            written = encoder.write(this.producerBuffer);
+        }
+        this.producerPosition += written;
+        if (this.producerPosition >= end) {
+            encoder.complete();
+            close();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        FileChannel channel = this.producerChannel;
+        this.producerChannel = null;
+        this.producerBuffer = null;
+        if (channel != null) {
+            channel.close();
+        }
+    }
+
+    /**
+     * Reads at most a fixed number of bytes from the wrapped stream
+     */
+    private static class BoundedInputStream extends InputStream {
+        private final InputStream in;
+        private long remaining;
+
+        BoundedInputStream(InputStream in, long remaining) {
+            this.in = in;
+            this.remaining = remaining;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (this.remaining <= 0) {
+                return -1;
+            }
+            int value = this.in.read();
+            if (value != -1) {
+                this.remaining--;
+            }
+            return value;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (this.remaining <= 0) {
+                return -1;
+            }
+            int read = this.in.read(b, off, (int) Math.min(len, this.remaining));
+            if (read > 0) {
+                this.remaining -= read;
+            }
+            return read;
+        }
+
+        @Override
+        public void close() throws IOException {
+            this.in.close();
+        }
+    }
+}
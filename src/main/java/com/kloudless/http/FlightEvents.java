@@ -0,0 +1,87 @@
+package com.kloudless.http;
+
+/**
+ * FlightEvents emits the Java Flight Recorder events of this library, kloudless.Request,
+ * kloudless.ResponseParse and kloudless.PageFetch. The flight recorder API is only available
+ * from Java 11 on, so this Java 8 version does nothing. The jar is a multi-release jar, Java 11
+ * and later load the version compiled from src/java11 instead.
+ * <p>
+ * The begin methods return a handle which is passed to the matching commit method, it is null
+ * when the event is disabled, and the commit methods ignore a null handle.
+ */
+public final class FlightEvents {
+
+    private FlightEvents() {
+
+    }
+
+    /**
+     * Whether any event of this library is enabled in a running recording
+     *
+     * @return boolean always false before Java 11
+     */
+    public static boolean isEnabled() {
+        return false;
+    }
+
+    /**
+     * Begin the event of an http transaction
+     *
+     * @return Object the handle of the event, null if it is disabled
+     */
+    public static Object beginRequest() {
+        return null;
+    }
+
+    /**
+     * Commit the event of an http transaction once it finished
+     *
+     * @param handle the handle returned by beginRequest, or null
+     * @param event  the finished transaction
+     */
+    public static void commitRequest(Object handle, RequestEvent event) {
+
+    }
+
+    /**
+     * Begin the event of parsing a response
+     *
+     * @return Object the handle of the event, null if it is disabled
+     */
+    public static Object beginParse() {
+        return null;
+    }
+
+    /**
+     * Commit the event of parsing a response once it is parsed
+     *
+     * @param handle the handle returned by beginParse, or null
+     * @param event  the finished transaction of the response
+     */
+    public static void commitParse(Object handle, RequestEvent event) {
+
+    }
+
+    /**
+     * Begin the event of fetching a page of a list
+     *
+     * @return Object the handle of the event, null if it is disabled
+     */
+    public static Object beginPageFetch() {
+        return null;
+    }
+
+    /**
+     * Commit the event of fetching a page of a list
+     *
+     * @param handle the handle returned by beginPageFetch, or null
+     * @param url    the url of the list
+     * @param page   the page or cursor which was requested
+     * @param items  the number of items of the page, -1 if it could not be fetched
+     * @param async  whether the page was fetched in the background
+     */
+    public static void commitPageFetch(Object handle, String url, String page, int items,
+            boolean async) {
+
+    }
+}
@@ -0,0 +1,423 @@
+package com.kloudless.http;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import com.kloudless.models.ResponseBase;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.config.Registry;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.conn.DnsResolver;
+import org.apache.http.conn.SchemePortResolver;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.impl.nio.client.HttpAsyncClients;
+import org.apache.http.impl.nio.conn.PoolingNHttpClientConnectionManager;
+import org.apache.http.impl.nio.reactor.DefaultConnectingIOReactor;
+import org.apache.http.impl.nio.reactor.IOReactorConfig;
+import org.apache.http.nio.conn.NoopIOSessionStrategy;
+import org.apache.http.nio.conn.SchemeIOSessionStrategy;
+import org.apache.http.nio.conn.ssl.SSLIOSessionStrategy;
+import org.apache.http.nio.reactor.IOReactorException;
+
+/**
+ * HttpTransport owns the pooled connections used by every client of this library. One instance
+ * is shared by Client, Account, SimpleClient and the response objects, see
+ * {@link com.kloudless.Application#getTransport()}.
+ * <p>
+ * Every transaction holds a lease on the transport it started with, so a transport which is
+ * replaced or shut down is only closed once the transactions still using it have completed and
+ * its connections have been released.
+ */
+public class HttpTransport implements Closeable {
+    /**
+     * The longest time in milliseconds a retired transport waits for its connections to be
+     * released before it is closed anyway
+     */
+    public static final long MAX_RETIRE_WAIT = 10 * 60 * 1000;
+    private static final long RETIRE_CHECK_INTERVAL = 100;
+
+    private final TransportConfig config;
+    private final PoolingHttpClientConnectionManager connectionManager;
+    private final CloseableHttpClient httpClient;
+    private final RequestConfig requestConfig;
+    private final TransferStatistics statistics = new TransferStatistics();
+    private final RateLimits rateLimits;
+    private final ConcurrencyLimits concurrencyLimits;
+    private final ResponseCache<ResponseBase> responseCache;
+    private final MetadataCache metadataCache;
+    private final RequestCoalescer<ResponseBase> requestCoalescer;
+    private PoolingNHttpClientConnectionManager asyncConnectionManager;
+    private CloseableHttpAsyncClient asyncClient;
+    private ScheduledExecutorService scheduler;
+    private boolean closed = false;
+    // the number of transactions using this transport, -1 once it is closed
+    private final AtomicInteger leases = new AtomicInteger();
+    private volatile boolean retired = false;
+    private volatile long retiredAt;
+
+    /**
+     * Constructor of HttpTransport with the default settings
+     */
+    public HttpTransport() {
+        this(new TransportConfig());
+    }
+
+    /**
+     * Constructor of HttpTransport
+     *
+     * @param config settings of the connection pool
+     */
+    public HttpTransport(TransportConfig config) {
+        this.config = config;
+        this.rateLimits = new RateLimits(config);
+        this.concurrencyLimits = new ConcurrencyLimits(config);
+        this.responseCache = config.getResponseCacheSize() > 0
+                ? new ResponseCache<ResponseBase>(config.getResponseCacheSize())
+                : null;
+        this.metadataCache = config.getMetadataCacheSize() > 0
+                ? new MetadataCache(config.getMetadataCacheSize(), config.getMetadataCacheTtl())
+                : null;
+        this.requestCoalescer =
+                config.isRequestCoalescing() ? new RequestCoalescer<ResponseBase>() : null;
+        this.connectionManager = new PoolingHttpClientConnectionManager(
+                config.getConnectionTimeToLive(), TimeUnit.MILLISECONDS);
+        this.connectionManager.setMaxTotal(config.getMaxTotalConnections());
+        this.connectionManager.setDefaultMaxPerRoute(config.getMaxConnectionsPerRoute());
+        this.connectionManager.setValidateAfterInactivity(config.getValidateAfterInactivity());
+
+        this.requestConfig = RequestConfig.custom()
+                .setConnectTimeout(config.getConnectTimeout())
+                .setSocketTimeout(config.getSocketTimeout())
+                .setConnectionRequestTimeout(config.getConnectionRequestTimeout()).build();
+
+        this.httpClient = HttpClients.custom().setConnectionManager(this.connectionManager)
+                .setDefaultRequestConfig(this.requestConfig)
+                .setKeepAliveStrategy(keepAliveStrategy(config.getKeepAliveDuration()))
+                .disableContentCompression()
+                .evictExpiredConnections()
+                .evictIdleConnections(config.getIdleConnectionTimeout(), TimeUnit.MILLISECONDS)
+                .build();
+    }
+
+    /**
+     * Get the settings of this transport
+     *
+     * @return TransportConfig the settings
+     */
+    public TransportConfig getConfig() {
+        return this.config;
+    }
+
+    /**
+     * Get the counters of response bytes before and after decompression
+     *
+     * @return TransferStatistics the counters
+     */
+    public TransferStatistics getStatistics() {
+        return this.statistics;
+    }
+
+    /**
+     * Get the rate limiters of the accounts and API keys
+     *
+     * @return RateLimits the rate limiters
+     */
+    public RateLimits getRateLimits() {
+        return this.rateLimits;
+    }
+
+    /**
+     * Get the adaptive concurrency limits of the service types, e.g. to monitor them
+     *
+     * @return ConcurrencyLimits the concurrency limits
+     */
+    public ConcurrencyLimits getConcurrencyLimits() {
+        return this.concurrencyLimits;
+    }
+
+    /**
+     * Get the cache of GET responses kept for revalidation, e.g. to read its statistics
+     *
+     * @return ResponseCache the response cache, or null if it is disabled
+     */
+    public ResponseCache<ResponseBase> getResponseCache() {
+        return this.responseCache;
+    }
+
+    /**
+     * Get the cache of resource metadata, e.g. to read its statistics or clear it
+     *
+     * @return MetadataCache the metadata cache, or null if it is disabled
+     */
+    public MetadataCache getMetadataCache() {
+        return this.metadataCache;
+    }
+
+    /**
+     * Get the coalescer of identical concurrent GET requests, e.g. to read its statistics
+     *
+     * @return RequestCoalescer the request coalescer, or null if it is disabled
+     */
+    public RequestCoalescer<ResponseBase> getRequestCoalescer() {
+        return this.requestCoalescer;
+    }
+
+    /**
+     * Get the pooled http client
+     *
+     * @return CloseableHttpClient the shared http client
+     */
+    public CloseableHttpClient getHttpClient() {
+        return this.httpClient;
+    }
+
+    /**
+     * Get the connection manager, e.g. to read the pool statistics
+     *
+     * @return PoolingHttpClientConnectionManager the connection manager
+     */
+    public PoolingHttpClientConnectionManager getConnectionManager() {
+        return this.connectionManager;
+    }
+
+    /**
+     * Get the non-blocking http client, it is started on first use and shares the pool limits of
+     * the blocking client.
+     *
+     * @return CloseableHttpAsyncClient the shared asynchronous http client
+     * @throws IOException Error when the I/O reactor could not be started
+     */
+    public synchronized CloseableHttpAsyncClient getAsyncClient() throws IOException {
+        if (this.closed) {
+            throw new IOException("The http transport has been closed.");
+        }
+        if (this.asyncClient == null) {
+            this.asyncConnectionManager = createAsyncConnectionManager();
+            this.asyncClient = HttpAsyncClients.custom()
+                    .setConnectionManager(this.asyncConnectionManager)
+                    .setDefaultRequestConfig(this.requestConfig)
+                    .setKeepAliveStrategy(keepAliveStrategy(this.config.getKeepAliveDuration()))
+                    .setThreadFactory(daemonThreadFactory("kloudless-async-reactor"))
+                    .build();
+            this.asyncClient.start();
+
+            long idleTimeout = this.config.getIdleConnectionTimeout();
+            PoolingNHttpClientConnectionManager manager = this.asyncConnectionManager;
+            getScheduler().scheduleWithFixedDelay(() -> {
+                manager.closeExpiredConnections();
+                manager.closeIdleConnections(idleTimeout, TimeUnit.MILLISECONDS);
+            }, idleTimeout, idleTimeout, TimeUnit.MILLISECONDS);
+        }
+        return this.asyncClient;
+    }
+
+    /**
+     * Get the daemon scheduler used for the housekeeping of this transport
+     *
+     * @return ScheduledExecutorService the scheduler
+     */
+    public synchronized ScheduledExecutorService getScheduler() {
+        if (this.scheduler == null) {
+            this.scheduler = Executors.newSingleThreadScheduledExecutor(
+                    daemonThreadFactory("kloudless-transport-scheduler"));
+        }
+        return this.scheduler;
+    }
+
+    /**
+     * Take a lease on this transport for one transaction or a group of transactions, e.g. the
+     * parts of a download. It is not closed until every lease has been released.
+     *
+     * @return boolean true if the lease was taken, false if the transport is closed already
+     */
+    public boolean acquire() {
+        while (true) {
+            int current = this.leases.get();
+            if (current < 0) {
+                return false;
+            }
+            if (this.leases.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Release a lease taken with acquire. The last lease of a retired transport closes it.
+     */
+    public void release() {
+        if (this.leases.decrementAndGet() == 0 && this.retired) {
+            closeWhenIdle();
+        }
+    }
+
+    /**
+     * Close this transport once no transaction holds a lease and no pooled connection is in use
+     * any more, e.g. by the body of a ResponseRaw which is still being read. A response which is
+     * never closed keeps the transport open for at most MAX_RETIRE_WAIT milliseconds.
+     *
+     * @throws IOException Error when the transport was closed right away and closing it failed
+     */
+    public void retire() throws IOException {
+        if (!this.retired) {
+            this.retiredAt = System.nanoTime();
+            this.retired = true;
+        }
+        if (tryClose()) {
+            close();
+        }
+    }
+
+    /**
+     * Whether this transport is retired and will be closed once it is idle
+     *
+     * @return boolean true if the transport is retired
+     */
+    public boolean isRetired() {
+        return this.retired;
+    }
+
+    /**
+     * Close all pooled connections and stop the eviction thread
+     *
+     * @throws IOException Error when closing the http client failed
+     */
+    @Override
+    public void close() throws IOException {
+        this.leases.set(-1);
+        CloseableHttpAsyncClient async;
+        synchronized (this) {
+            if (this.closed) {
+                return;
+            }
+            this.closed = true;
+            async = this.asyncClient;
+            if (this.scheduler != null) {
+                this.scheduler.shutdownNow();
+            }
+        }
+        try {
+            this.httpClient.close();
+        } finally {
+            if (async != null) {
+                async.close();
+            }
+        }
+    }
+
+    /**
+     * Close the retired transport if it is idle, otherwise check again later. Errors are ignored
+     * as nobody is waiting for the transport to be closed.
+     */
+    private void closeWhenIdle() {
+        try {
+            if (tryClose()) {
+                close();
+            }
+        } catch (IOException e) {
+            // the connections are dropped with the transport
+        }
+    }
+
+    /**
+     * Mark the transport closed if no transaction holds a lease and none of its connections is
+     * in use, or schedule another check while a released connection is still in use
+     *
+     * @return boolean true if the caller has to close the transport
+     */
+    private boolean tryClose() {
+        if (!this.leases.compareAndSet(0, -1)) {
+            return false;
+        }
+        boolean expired = System.nanoTime() - this.retiredAt > TimeUnit.MILLISECONDS
+                .toNanos(MAX_RETIRE_WAIT);
+        if (expired || !hasLeasedConnections()) {
+            return true;
+        }
+        this.leases.set(0);
+        getScheduler().schedule(this::closeWhenIdle, RETIRE_CHECK_INTERVAL,
+                TimeUnit.MILLISECONDS);
+        return false;
+    }
+
+    /**
+     * Whether any pooled connection is in use, e.g. by a response body which is still being read
+     *
+     * @return boolean true if a connection is leased from either pool
+     */
+    private synchronized boolean hasLeasedConnections() {
+        return this.connectionManager.getTotalStats().getLeased() > 0
+                || this.asyncConnectionManager != null
+                        && this.asyncConnectionManager.getTotalStats().getLeased() > 0;
+    }
+
+    /**
+     * Create the connection manager of the non-blocking http client
+     *
+     * @return PoolingNHttpClientConnectionManager the connection manager
+     * @throws IOReactorException Error when the I/O reactor could not be created
+     */
+    private PoolingNHttpClientConnectionManager createAsyncConnectionManager()
+            throws IOReactorException {
+        IOReactorConfig reactorConfig = IOReactorConfig.custom()
+                .setIoThreadCount(this.config.getIoThreadCount())
+                .setConnectTimeout(Math.max(this.config.getConnectTimeout(), 0))
+                .setSoTimeout(Math.max(this.config.getSocketTimeout(), 0)).build();
+        Registry<SchemeIOSessionStrategy> strategies =
+                RegistryBuilder.<SchemeIOSessionStrategy>create()
+                        .register("http", NoopIOSessionStrategy.INSTANCE)
+                        .register("https", SSLIOSessionStrategy.getDefaultStrategy()).build();
+        PoolingNHttpClientConnectionManager manager = new PoolingNHttpClientConnectionManager(
+                new DefaultConnectingIOReactor(reactorConfig,
+                        daemonThreadFactory("kloudless-async-dispatcher")),
+                null, strategies,
+                (SchemePortResolver) null, (DnsResolver) null,
+                this.config.getConnectionTimeToLive(), TimeUnit.MILLISECONDS);
+        manager.setMaxTotal(this.config.getMaxTotalConnections());
+        manager.setDefaultMaxPerRoute(this.config.getMaxConnectionsPerRoute());
+        return manager;
+    }
+
+    /**
+     * Create a factory of daemon threads, so the threads of the transport never keep the JVM
+     * running when the application did not call Application.shutdown()
+     *
+     * @param name the prefix of the thread names
+     * @return ThreadFactory the thread factory
+     */
+    private static ThreadFactory daemonThreadFactory(String name) {
+        AtomicInteger count = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * Use the Keep-Alive header from the server but never keep a connection longer than the
+     * configured duration
+     *
+     * @param maxKeepAlive the longest keep-alive duration in milliseconds
+     * @return ConnectionKeepAliveStrategy the strategy
+     */
+    private static ConnectionKeepAliveStrategy keepAliveStrategy(long maxKeepAlive) {
+        return (response, context) -> {
+            long keepAlive = DefaultConnectionKeepAliveStrategy.INSTANCE
+                    .getKeepAliveDuration(response, context);
+            if (keepAlive < 0 || keepAlive > maxKeepAlive) {
+                return maxKeepAlive;
+            }
+            return keepAlive;
+        };
+    }
+}
@@ -0,0 +1,58 @@
+package com.kloudless.http;
+
+import java.util.Map;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+/**
+ * JsonCopies makes deep copies of parsed JSON data. The JsonObject of a response can be modified
+ * by the caller, so a response kept in a cache or shared between callers is copied instead of
+ * being handed out. Primitives and null are immutable and shared by the copies.
+ */
+public class JsonCopies {
+
+    private JsonCopies() {
+
+    }
+
+    /**
+     * Copy a JsonObject and everything it contains
+     *
+     * @param object the object to copy
+     * @return JsonObject the copy, or null if the object is null
+     */
+    public static JsonObject deepCopy(JsonObject object) {
+        if (object == null) {
+            return null;
+        }
+        JsonObject copy = new JsonObject();
+        for (Map.Entry<String, JsonElement> entry : object.entrySet()) {
+            copy.add(entry.getKey(), deepCopy(entry.getValue()));
+        }
+        return copy;
+    }
+
+    /**
+     * Copy a JsonElement and everything it contains
+     *
+     * @param element the element to copy
+     * @return JsonElement the copy, the element itself if it is a primitive or null
+     */
+    public static JsonElement deepCopy(JsonElement element) {
+        if (element == null) {
+            return null;
+        }
+        if (element.isJsonObject()) {
+            return deepCopy(element.getAsJsonObject());
+        }
+        if (element.isJsonArray()) {
+            JsonArray copy = new JsonArray();
+            for (JsonElement item : element.getAsJsonArray()) {
+                copy.add(deepCopy(item));
+            }
+            return copy;
+        }
+        return element;
+    }
+}
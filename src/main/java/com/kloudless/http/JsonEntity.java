@@ -0,0 +1,225 @@
+package com.kloudless.http;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import com.google.gson.Gson;
+import com.google.gson.JsonIOException;
+import com.google.gson.stream.JsonWriter;
+import org.apache.http.entity.AbstractHttpEntity;
+import org.apache.http.entity.ContentType;
+
+/**
+ * JsonEntity serializes its content with Gson as UTF-8 bytes, the JSON document is never held as a
+ * String. A body of up to {@link #BUFFER_THRESHOLD} bytes is serialized once into a buffer and
+ * sent with a Content-Length header, a larger body is serialized straight to the output stream of
+ * the connection and sent chunked. The entity is repeatable, a large body is serialized again
+ * every time it is written, and the number of bytes written last time is kept so the size of a
+ * sent request can be reported.
+ */
+public class JsonEntity extends AbstractHttpEntity {
+    /**
+     * The largest body which is buffered and sent with a Content-Length header, in bytes
+     */
+    public static final int BUFFER_THRESHOLD = 64 * 1024;
+
+    private final Object content;
+    private final Gson gson;
+    private volatile long bytesWritten = -1;
+    private byte[] buffered;
+    private boolean large = false;
+
+    /**
+     * Constructor of JsonEntity
+     *
+     * @param content the object to serialize, usually a Map
+     * @param gson    the Gson instance used to serialize the content
+     */
+    public JsonEntity(Object content, Gson gson) {
+        this.content = content;
+        this.gson = gson;
+        setContentType(ContentType.APPLICATION_JSON.toString());
+    }
+
+    @Override
+    public boolean isRepeatable() {
+        return true;
+    }
+
+    /**
+     * The length of a body of up to {@link #BUFFER_THRESHOLD} bytes, the content is serialized
+     * into a buffer on the first call. A larger body is sent chunked.
+     *
+     * @return long the number of bytes of the body, or -1 if it is sent chunked
+     */
+    @Override
+    public long getContentLength() {
+        byte[] bytes;
+        try {
+            bytes = buffer();
+        } catch (IOException e) {
+            // the error is thrown again when the body is written
+            return -1;
+        }
+        return bytes == null ? -1 : bytes.length;
+    }
+
+    /**
+     * Get the serialized content, a large body is serialized into memory, only used by callers
+     * which need an InputStream.
+     *
+     * @return InputStream of the serialized content
+     * @throws IOException Error when serializing the content failed
+     */
+    @Override
+    public InputStream getContent() throws IOException {
+        byte[] bytes = buffer();
+        if (bytes == null) {
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream(BUFFER_THRESHOLD * 2);
+            serialize(buffer);
+            bytes = buffer.toByteArray();
+        }
+        this.bytesWritten = bytes.length;
+        return new ByteArrayInputStream(bytes);
+    }
+
+    @Override
+    public void writeTo(OutputStream outStream) throws IOException {
+        byte[] bytes = buffer();
+        if (bytes != null) {
+            outStream.write(bytes);
+            this.bytesWritten = bytes.length;
+            return;
+        }
+        CountingOutputStream counter = new CountingOutputStream(outStream);
+        serialize(counter);
+        this.bytesWritten = counter.count;
+    }
+
+    /**
+     * Get the number of bytes written by the last call of writeTo
+     *
+     * @return long the number of bytes, -1 if the content was not written yet
+     */
+    public long getBytesWritten() {
+        return this.bytesWritten;
+    }
+
+    @Override
+    public boolean isStreaming() {
+        return false;
+    }
+
+    /**
+     * Serialize the content into a buffer unless it is larger than the threshold
+     *
+     * @return byte[] the serialized content, or null if the content is too large to buffer
+     * @throws IOException Error when serializing the content failed
+     */
+    private synchronized byte[] buffer() throws IOException {
+        if (this.buffered == null && !this.large) {
+            LimitedOutputStream buffer = new LimitedOutputStream(BUFFER_THRESHOLD);
+            try {
+                serialize(buffer);
+                this.buffered = buffer.toByteArray();
+            } catch (LimitExceededException e) {
+                this.large = true;
+            } catch (JsonIOException e) {
+                // Gson wraps the errors of the writer
+                if (!(e.getCause() instanceof LimitExceededException)) {
+                    throw e;
+                }
+                this.large = true;
+            }
+        }
+        return this.buffered;
+    }
+
+    /**
+     * Serialize the content as UTF-8 JSON to the stream
+     *
+     * @param out the stream to write to, it is not closed
+     * @throws IOException Error when serializing the content failed
+     */
+    private void serialize(OutputStream out) throws IOException {
+        JsonWriter writer = new JsonWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        this.gson.toJson(this.content, this.content.getClass(), writer);
+        writer.flush();
+    }
+
+    /**
+     * Thrown when more bytes than the limit are written to a LimitedOutputStream
+     */
+    private static class LimitExceededException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        LimitExceededException() {
+            super("JSON body is larger than " + BUFFER_THRESHOLD + " bytes", null);
+        }
+
+        @Override
+        public synchronized Throwable fillInStackTrace() {
+            return this;
+        }
+    }
+
+    /**
+     * Buffers the bytes written to it up to a limit
+     */
+    private static class LimitedOutputStream extends OutputStream {
+        private final ByteArrayOutputStream buffer = new ByteArrayOutputStream(1024);
+        private final int limit;
+
+        LimitedOutputStream(int limit) {
+            this.limit = limit;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            if (this.buffer.size() >= this.limit) {
+                throw new LimitExceededException();
+            }
+            this.buffer.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (this.buffer.size() + len > this.limit) {
+                throw new LimitExceededException();
+            }
+            this.buffer.write(b, off, len);
+        }
+
+        byte[] toByteArray() {
+            return this.buffer.toByteArray();
+        }
+    }
+
+    /**
+     * Counts the bytes written to the wrapped stream
+     */
+    private static class CountingOutputStream extends FilterOutputStream {
+        private long count = 0;
+
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            this.out.write(b);
+            this.count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            this.out.write(b, off, len);
+            this.count += len;
+        }
+    }
+}
@@ -0,0 +1,204 @@
+package com.kloudless.http;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import com.google.gson.JsonObject;
+
+/**
+ * MetadataCache keeps the metadata of single resources, such as files and folders, for a limited
+ * time. It is keyed by the account, the resource type and the id of a resource, e.g. the file
+ * abc of account 123 is cached under its path storage/files/abc. Unlike the ResponseCache, a
+ * cached resource is returned without asking the server, so it may be outdated by up to the time
+ * to live if it is modified by someone else.
+ * <p>
+ * Resources of an account accessed as "me" are keyed by the Authorization header instead of the
+ * account id, so tokens never see each other's resources.
+ * <p>
+ * The cache keeps its own copy of the stored metadata and hands out a new copy on every hit, so
+ * callers can modify the metadata they get.
+ */
+public class MetadataCache {
+    private static final Pattern RESOURCE_PATTERN =
+            Pattern.compile("^/v\\d+/accounts/([^/]+)/(.+)/([^/]+)$");
+
+    private final int maxEntries;
+    private final long timeToLive;
+    private final Map<String, Entry> entries;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * Constructor of MetadataCache
+     *
+     * @param maxEntries the maximum number of cached resources
+     * @param timeToLive how long a resource is cached in milliseconds
+     */
+    public MetadataCache(int maxEntries, long timeToLive) {
+        this.maxEntries = maxEntries;
+        this.timeToLive = TimeUnit.MILLISECONDS.toNanos(timeToLive);
+        this.entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, MetadataCache.Entry> eldest) {
+                if (size() > MetadataCache.this.maxEntries) {
+                    MetadataCache.this.evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Build the cache key of the resource a URL refers to, e.g.
+     * /v1/accounts/123/storage/files/abc. The query string is ignored.
+     *
+     * @param url           the URL of the resource
+     * @param authorization the Authorization header of the request, or null
+     * @return String the cache key, or null if the URL does not refer to a resource of an account
+     */
+    public static String key(String url, Object authorization) {
+        int query = url.indexOf('?');
+        String path = (query < 0 ? url : url.substring(0, query)).replace("//", "/");
+        Matcher matcher = RESOURCE_PATTERN.matcher(path);
+        if (!matcher.matches()) {
+            return null;
+        }
+        String account = matcher.group(1);
+        return ("me".equals(account) ? "me:" + authorization : "id:" + account) + '\n'
+                + matcher.group(2) + '\n' + matcher.group(3);
+    }
+
+    /**
+     * Build the cache key of the resource the resource of a key belongs to, e.g. the key of
+     * storage/files/abc for storage/files/abc/contents
+     *
+     * @param key the cache key
+     * @return String the cache key of the parent, or null if there is none
+     */
+    public static String parentKey(String key) {
+        int id = key.lastIndexOf('\n');
+        int type = key.lastIndexOf('\n', id - 1);
+        int parent = key.lastIndexOf('/', id);
+        if (type < 0 || parent <= type) {
+            return null;
+        }
+        return key.substring(0, parent) + '\n' + key.substring(parent + 1, id);
+    }
+
+    /**
+     * Get a copy of the metadata of a resource unless it has expired
+     *
+     * @param key the cache key
+     * @return JsonObject the metadata, or null if it is not cached
+     */
+    public JsonObject get(String key) {
+        Entry entry;
+        synchronized (this) {
+            entry = this.entries.get(key);
+            if (entry != null && System.nanoTime() - entry.expiresAt >= 0) {
+                this.entries.remove(key);
+                entry = null;
+            }
+        }
+        if (entry == null) {
+            this.misses.increment();
+            return null;
+        }
+        this.hits.increment();
+        return JsonCopies.deepCopy(entry.data);
+    }
+
+    /**
+     * Store a copy of the metadata of a resource
+     *
+     * @param key  the cache key
+     * @param data the metadata of the resource
+     */
+    public void put(String key, JsonObject data) {
+        Entry entry = new Entry(JsonCopies.deepCopy(data), System.nanoTime() + this.timeToLive);
+        synchronized (this) {
+            this.entries.put(key, entry);
+        }
+    }
+
+    /**
+     * Remove the metadata of a resource, e.g. after it has been modified
+     *
+     * @param key the cache key
+     */
+    public synchronized void invalidate(String key) {
+        this.entries.remove(key);
+    }
+
+    /**
+     * Remove the metadata of all resources, the statistics are kept
+     */
+    public synchronized void clear() {
+        this.entries.clear();
+    }
+
+    /**
+     * Get the number of cached resources, including expired ones which have not been removed yet
+     *
+     * @return int the number of entries
+     */
+    public synchronized int size() {
+        return this.entries.size();
+    }
+
+    /**
+     * Get the number of requests answered from the cache
+     *
+     * @return long the number of cache hits
+     */
+    public long getHitCount() {
+        return this.hits.sum();
+    }
+
+    /**
+     * Get the number of lookups which did not find a resource, or found an expired one
+     *
+     * @return long the number of cache misses
+     */
+    public long getMissCount() {
+        return this.misses.sum();
+    }
+
+    /**
+     * Get the number of entries evicted because the cache was full
+     *
+     * @return long the number of evictions
+     */
+    public long getEvictionCount() {
+        return this.evictions.sum();
+    }
+
+    /**
+     * Reset the statistics to zero
+     */
+    public void resetStatistics() {
+        this.hits.reset();
+        this.misses.reset();
+        this.evictions.reset();
+    }
+
+    /**
+     * Entry is the metadata of a resource with its expiry time
+     */
+    private static final class Entry {
+        private final JsonObject data;
+        private final long expiresAt;
+
+        Entry(JsonObject data, long expiresAt) {
+            this.data = data;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
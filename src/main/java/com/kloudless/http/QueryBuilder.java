@@ -0,0 +1,206 @@
+package com.kloudless.http;
+
+/**
+ * QueryBuilder appends the parameters of a query string. Names and values added with add are
+ * percent-encoded in UTF-8, only the unreserved characters of RFC 3986 are kept as they are, so
+ * e.g. a cursor containing + or = reaches the server unchanged. Parameters added with addEncoded
+ * are taken as they are, e.g. from a query string which was encoded already.
+ */
+public final class QueryBuilder {
+    private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+
+    private final StringBuilder query;
+
+    /**
+     * Constructor of an empty QueryBuilder
+     */
+    public QueryBuilder() {
+        this(64);
+    }
+
+    /**
+     * Constructor of an empty QueryBuilder
+     *
+     * @param capacity the expected length of the query string
+     */
+    public QueryBuilder(int capacity) {
+        this.query = new StringBuilder(capacity);
+    }
+
+    /**
+     * Add a parameter, its name and value are percent-encoded
+     *
+     * @param name  the name of the parameter
+     * @param value the value of the parameter, null to add the name only
+     * @return QueryBuilder this builder
+     */
+    public QueryBuilder add(String name, Object value) {
+        separate();
+        encode(name, this.query);
+        if (value != null) {
+            this.query.append('=');
+            encode(value.toString(), this.query);
+        }
+        return this;
+    }
+
+    /**
+     * Add a parameter whose name and value are encoded already
+     *
+     * @param name  the encoded name of the parameter
+     * @param value the encoded value of the parameter, null to add the name only
+     * @return QueryBuilder this builder
+     */
+    public QueryBuilder addEncoded(String name, String value) {
+        separate();
+        this.query.append(name);
+        if (value != null) {
+            this.query.append('=').append(value);
+        }
+        return this;
+    }
+
+    /**
+     * Add the parameters of a query string which is encoded already, e.g. "page=2&page_size=100"
+     *
+     * @param encodedQuery the query string without the leading question mark
+     * @return QueryBuilder this builder
+     */
+    public QueryBuilder addEncoded(String encodedQuery) {
+        if (!encodedQuery.isEmpty()) {
+            separate();
+            this.query.append(encodedQuery);
+        }
+        return this;
+    }
+
+    /**
+     * Whether the query string has a parameter
+     *
+     * @param name the encoded name of the parameter
+     * @return boolean true if the parameter was added
+     */
+    public boolean contains(String name) {
+        return containsParameter(this.query, 0, name);
+    }
+
+    /**
+     * Whether the query string is empty
+     *
+     * @return boolean true if no parameter was added
+     */
+    public boolean isEmpty() {
+        return this.query.length() == 0;
+    }
+
+    /**
+     * Get the query string without the leading question mark
+     *
+     * @return String the query string
+     */
+    @Override
+    public String toString() {
+        return this.query.toString();
+    }
+
+    private void separate() {
+        if (this.query.length() > 0) {
+            this.query.append('&');
+        }
+    }
+
+    /**
+     * Whether a query string has a parameter, without splitting it
+     *
+     * @param query the text containing the query string
+     * @param start the index of the first character of the query string in the text
+     * @param name  the encoded name of the parameter
+     * @return boolean true if a parameter of the query string has the name
+     */
+    public static boolean containsParameter(CharSequence query, int start, String name) {
+        int length = query.length();
+        int position = start;
+        while (position <= length) {
+            int end = position + name.length();
+            if (end <= length && (end == length || query.charAt(end) == '='
+                    || query.charAt(end) == '&') && regionMatches(query, position, name)) {
+                return true;
+            }
+            while (position < length && query.charAt(position) != '&') {
+                position++;
+            }
+            position++;
+        }
+        return false;
+    }
+
+    private static boolean regionMatches(CharSequence text, int offset, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            if (text.charAt(offset + i) != value.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Percent-encode a name or value of a query string
+     *
+     * @param value the value
+     * @return String the encoded value, the value itself if it needs no encoding
+     */
+    public static String encode(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            if (!isUnreserved(value.charAt(i))) {
+                StringBuilder encoded = new StringBuilder(value.length() + 16);
+                encode(value, encoded);
+                return encoded.toString();
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Percent-encode a name or value of a query string
+     *
+     * @param value the value
+     * @param out   the builder to append the encoded value to
+     */
+    public static void encode(String value, StringBuilder out) {
+        int length = value.length();
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (isUnreserved(c)) {
+                out.append(c);
+            } else if (c < 0x80) {
+                appendByte(out, c);
+            } else if (c < 0x800) {
+                appendByte(out, 0xC0 | c >> 6);
+                appendByte(out, 0x80 | c & 0x3F);
+            } else if (Character.isHighSurrogate(c) && i + 1 < length
+                    && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                appendByte(out, 0xF0 | codePoint >> 18);
+                appendByte(out, 0x80 | codePoint >> 12 & 0x3F);
+                appendByte(out, 0x80 | codePoint >> 6 & 0x3F);
+                appendByte(out, 0x80 | codePoint & 0x3F);
+            } else if (Character.isSurrogate(c)) {
+                // an unpaired surrogate is encoded like String.getBytes does
+                appendByte(out, '?');
+            } else {
+                appendByte(out, 0xE0 | c >> 12);
+                appendByte(out, 0x80 | c >> 6 & 0x3F);
+                appendByte(out, 0x80 | c & 0x3F);
+            }
+        }
+    }
+
+    private static boolean isUnreserved(char c) {
+        return c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z' || c >= '0' && c <= '9' || c == '-'
+                || c == '.' || c == '_' || c == '~';
+    }
+
+    private static void appendByte(StringBuilder out, int b) {
+        out.append('%').append(HEX[b >> 4 & 0xF]).append(HEX[b & 0xF]);
+    }
+}
@@ -0,0 +1,90 @@
+package com.kloudless.http;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * RateLimiter is a lock-free token bucket implemented with the generic cell rate algorithm. The
+ * whole state is the theoretical arrival time of the next request, which is advanced with a
+ * compare-and-set, so callers never block each other.
+ */
+public class RateLimiter {
+    private final long interval;
+    private final long tolerance;
+    private final AtomicLong theoreticalArrival;
+
+    /**
+     * Constructor of RateLimiter
+     *
+     * @param permitsPerSecond the sustained rate
+     * @param burst            the number of permits which may be taken at once after an idle
+     *                         period
+     */
+    public RateLimiter(double permitsPerSecond, int burst) {
+        if (permitsPerSecond <= 0 || burst < 1) {
+            throw new IllegalArgumentException(
+                    "The rate and the burst of a RateLimiter must be positive");
+        }
+        this.interval = (long) (TimeUnit.SECONDS.toNanos(1) / permitsPerSecond);
+        this.tolerance = this.interval * (burst - 1);
+        this.theoreticalArrival = new AtomicLong(System.nanoTime() - this.tolerance);
+    }
+
+    /**
+     * Reserve a permit
+     *
+     * @return long the time in nanoseconds to wait before the permit may be used, 0 if it may be
+     *         used right away
+     */
+    public long reserve() {
+        while (true) {
+            long now = System.nanoTime();
+            long arrival = this.theoreticalArrival.get();
+            long start = arrival - now > 0 ? arrival : now;
+            if (this.theoreticalArrival.compareAndSet(arrival, start + this.interval)) {
+                return Math.max(0, start - this.tolerance - now);
+            }
+        }
+    }
+
+    /**
+     * Take a permit if one is available right away
+     *
+     * @return boolean true if a permit was taken
+     */
+    public boolean tryAcquire() {
+        while (true) {
+            long now = System.nanoTime();
+            long arrival = this.theoreticalArrival.get();
+            long start = arrival - now > 0 ? arrival : now;
+            if (start - this.tolerance - now > 0) {
+                return false;
+            }
+            if (this.theoreticalArrival.compareAndSet(arrival, start + this.interval)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Whether the limiter is idle, that is its whole burst is available again. An idle limiter
+     * behaves like a new one, so it can be dropped and created again when it is needed.
+     *
+     * @return boolean true if the limiter is idle
+     */
+    public boolean isIdle() {
+        return this.theoreticalArrival.get() - (System.nanoTime() - this.tolerance) <= 0;
+    }
+
+    /**
+     * Take a permit, waiting until it may be used
+     *
+     * @throws InterruptedException Error when the thread is interrupted while waiting
+     */
+    public void acquire() throws InterruptedException {
+        long wait = reserve();
+        if (wait > 0) {
+            TimeUnit.NANOSECONDS.sleep(wait);
+        }
+    }
+}
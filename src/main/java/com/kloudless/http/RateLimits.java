@@ -0,0 +1,152 @@
+package com.kloudless.http;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.apache.http.Header;
+import org.apache.http.HttpRequest;
+
+/**
+ * RateLimits keeps one RateLimiter per account and one per API key, as configured in the
+ * TransportConfig. A request is attributed to the account in its URL, or to its bearer token if
+ * the URL refers to the account as "me", and to the API key in its Authorization header.
+ * <p>
+ * Tokens and API keys are only kept as SHA-256 hashes, and limiters which have been idle long
+ * enough to have their whole burst available again are dropped, so the limiters of short-lived
+ * tokens do not accumulate.
+ */
+public class RateLimits {
+    /**
+     * How often idle limiters are dropped, in milliseconds
+     */
+    public static final long EVICTION_INTERVAL = 60 * 1000;
+
+    private static final Pattern ACCOUNT_PATTERN = Pattern.compile("/accounts/([^/?]+)");
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    private final TransportConfig config;
+    private final ConcurrentMap<String, RateLimiter> accountLimiters =
+            new ConcurrentHashMap<String, RateLimiter>();
+    private final ConcurrentMap<String, RateLimiter> apiKeyLimiters =
+            new ConcurrentHashMap<String, RateLimiter>();
+    private final AtomicLong lastEviction = new AtomicLong(System.nanoTime());
+
+    /**
+     * Constructor of RateLimits
+     *
+     * @param config the transport settings with the rates
+     */
+    public RateLimits(TransportConfig config) {
+        this.config = config;
+    }
+
+    /**
+     * Get the limiter of an account
+     *
+     * @param account the key of the account, "id:" followed by the account id, or "token:"
+     *                followed by the hash of the bearer token of the account
+     * @return RateLimiter the limiter, or null if accounts are not limited
+     */
+    public RateLimiter getAccountLimiter(String account) {
+        if (this.config.getAccountRateLimit() <= 0) {
+            return null;
+        }
+        return this.accountLimiters.computeIfAbsent(account,
+                key -> new RateLimiter(this.config.getAccountRateLimit(),
+                        this.config.getAccountBurst()));
+    }
+
+    /**
+     * Get the limiter of an API key
+     *
+     * @param apiKey the hash of the API key
+     * @return RateLimiter the limiter, or null if API keys are not limited
+     */
+    public RateLimiter getApiKeyLimiter(String apiKey) {
+        if (this.config.getApiKeyRateLimit() <= 0) {
+            return null;
+        }
+        return this.apiKeyLimiters.computeIfAbsent(apiKey,
+                key -> new RateLimiter(this.config.getApiKeyRateLimit(),
+                        this.config.getApiKeyBurst()));
+    }
+
+    /**
+     * Reserve the permits of a request from the limiters of its account and its API key
+     *
+     * @param request the request about to be sent
+     * @return long the time in nanoseconds to wait before sending the request
+     */
+    public long reserve(HttpRequest request) {
+        if (this.config.getAccountRateLimit() <= 0 && this.config.getApiKeyRateLimit() <= 0) {
+            return 0;
+        }
+        evictIdleLimiters();
+        Header authorization = request.getFirstHeader("Authorization");
+        String credentials = authorization == null ? "" : authorization.getValue();
+        long wait = 0;
+        String account = null;
+        Matcher matcher = ACCOUNT_PATTERN.matcher(request.getRequestLine().getUri());
+        if (matcher.find() && !"me".equals(matcher.group(1))) {
+            account = "id:" + matcher.group(1);
+        } else if (credentials.startsWith("Bearer ")) {
+            account = "token:" + hash(credentials.substring(7));
+        }
+        if (account != null) {
+            RateLimiter limiter = getAccountLimiter(account);
+            if (limiter != null) {
+                wait = limiter.reserve();
+            }
+        }
+        if (credentials.startsWith("APIKey ")) {
+            RateLimiter limiter = getApiKeyLimiter(hash(credentials.substring(7)));
+            if (limiter != null) {
+                wait = Math.max(wait, limiter.reserve());
+            }
+        }
+        return wait;
+    }
+
+    /**
+     * Drop the limiters which are idle, at most once per eviction interval
+     */
+    private void evictIdleLimiters() {
+        long now = System.nanoTime();
+        long last = this.lastEviction.get();
+        if (now - last < TimeUnit.MILLISECONDS.toNanos(EVICTION_INTERVAL)
+                || !this.lastEviction.compareAndSet(last, now)) {
+            return;
+        }
+        this.accountLimiters.values().removeIf(RateLimiter::isIdle);
+        this.apiKeyLimiters.values().removeIf(RateLimiter::isIdle);
+    }
+
+    /**
+     * Hash a token or an API key, so the credentials are not kept as keys of the limiters
+     *
+     * @param credentials the token or the API key
+     * @return String the hex encoded SHA-256 hash
+     */
+    private static String hash(String credentials) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // every Java platform supports SHA-256
+            throw new IllegalStateException(e);
+        }
+        byte[] bytes = digest.digest(credentials.getBytes(StandardCharsets.UTF_8));
+        char[] hex = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            hex[i * 2] = HEX_DIGITS[(bytes[i] >> 4) & 0xf];
+            hex[i * 2 + 1] = HEX_DIGITS[bytes[i] & 0xf];
+        }
+        return new String(hex);
+    }
+}
@@ -0,0 +1,101 @@
+package com.kloudless.http;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * RequestCoalescer lets concurrent identical GET requests share one http call. The first caller
+ * registers the call and sends the request, callers arriving while it is in flight wait for its
+ * result or error instead of sending the same request again. Requests are only identical if they
+ * have the same URL and the same headers, including the Authorization header, so calls are never
+ * shared between credentials.
+ * <p>
+ * Registering and looking up a call is a single operation on a ConcurrentHashMap, no lock is
+ * held while the request is in flight.
+ *
+ * @param <V> the type of the results
+ */
+public class RequestCoalescer<V> {
+    private final ConcurrentMap<String, CompletableFuture<V>> calls =
+            new ConcurrentHashMap<String, CompletableFuture<V>>();
+    private final LongAdder coalesced = new LongAdder();
+
+    public RequestCoalescer() {
+
+    }
+
+    /**
+     * Build the key of a request from its URL and headers
+     *
+     * @param url     the URL of the request, including the query string
+     * @param headers the headers of the request
+     * @return String the key of the request
+     */
+    public static String key(String url, Map<String, Object> headers) {
+        StringBuilder key = new StringBuilder(url).append('\n');
+        for (Map.Entry<String, Object> header : new TreeMap<String, Object>(headers).entrySet()) {
+            key.append(header.getKey()).append(':').append(header.getValue()).append('\n');
+        }
+        return key.toString();
+    }
+
+    /**
+     * Register a call, unless an identical call is in flight already
+     *
+     * @param key  the key of the request
+     * @param call the future the caller completes with the result of its call
+     * @return CompletableFuture the identical call in flight, or null if the call was registered
+     *         and the caller has to send the request
+     */
+    public CompletableFuture<V> join(String key, CompletableFuture<V> call) {
+        CompletableFuture<V> current = this.calls.putIfAbsent(key, call);
+        if (current != null) {
+            this.coalesced.increment();
+        }
+        return current;
+    }
+
+    /**
+     * Unregister a call once its response has arrived, before its future is completed, so later
+     * callers send a new request
+     *
+     * @param key  the key of the request
+     * @param call the future registered with join
+     */
+    public void leave(String key, CompletableFuture<V> call) {
+        this.calls.remove(key, call);
+    }
+
+    /**
+     * Unregister the calls in flight for a URL, e.g. because the resource is being modified, so
+     * later callers do not get a result read before the modification
+     *
+     * @param url the URL without the query string, calls with any query string are unregistered
+     */
+    public void forget(String url) {
+        this.calls.keySet().removeIf(key -> key.startsWith(url) && key.length() > url.length()
+                && (key.charAt(url.length()) == '\n' || key.charAt(url.length()) == '?'));
+    }
+
+    /**
+     * Get the number of calls in flight
+     *
+     * @return int the number of calls in flight
+     */
+    public int getInFlightCount() {
+        return this.calls.size();
+    }
+
+    /**
+     * Get the number of requests which shared the call of an identical request
+     *
+     * @return long the number of coalesced requests
+     */
+    public long getCoalescedCount() {
+        return this.coalesced.sum();
+    }
+}
@@ -0,0 +1,352 @@
+package com.kloudless.http;
+
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpEntityEnclosingRequest;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpResponse;
+import org.apache.http.protocol.HTTP;
+
+/**
+ * RequestEvent describes one http transaction from the moment it is handed to the transport until
+ * its response is parsed, see {@link RequestListener}. The timestamps are recorded by the client
+ * while the request runs, a listener only reads them. Times are in nanoseconds, retries of a
+ * request belong to the same event. The transaction is also recorded as Java Flight Recorder
+ * events if a recording enables them, see {@link FlightEvents}.
+ */
+public class RequestEvent {
+    private final String method;
+    private final String url;
+    private final String endpoint;
+    private final long startedAt;
+    private HttpEntity requestEntity;
+    private long requestBytes = -1;
+    private long queueTime = 0;
+    private long sentAt = -1;
+    private long firstByteAt = -1;
+    private long receivedAt = -1;
+    private long parseStartedAt = -1;
+    private long finishedAt = -1;
+    private int attempts = 0;
+    private int statusCode = -1;
+    private long responseBytes = -1;
+    private Throwable error;
+    private final Object flightEvent;
+    private Object parseFlightEvent;
+
+    /**
+     * Constructor of RequestEvent, the transaction starts now
+     *
+     * @param method the http method of the request
+     * @param url    the url of the request, relative to the base url
+     */
+    public RequestEvent(String method, String url) {
+        this.method = method;
+        this.url = url;
+        this.endpoint = endpointOf(url);
+        this.startedAt = System.nanoTime();
+        this.flightEvent = FlightEvents.beginRequest();
+    }
+
+    /**
+     * Get the account of a request from its url, e.g. 123 of /v1/accounts/123/storage/files/abc
+     *
+     * @param url the url of the request
+     * @return String the account id, "me" for the account of the bearer token, or null if the
+     *         url does not belong to an account
+     */
+    public static String accountOf(String url) {
+        int start = url.indexOf("/accounts/");
+        if (start < 0) {
+            return null;
+        }
+        start += "/accounts/".length();
+        int end = start;
+        while (end < url.length() && url.charAt(end) != '/' && url.charAt(end) != '?') {
+            end++;
+        }
+        return end > start ? url.substring(start, end) : null;
+    }
+
+    /**
+     * Normalize the url of a request to the endpoint it calls, so all requests of an endpoint form
+     * one series, e.g. /v1/accounts/123/storage/files/Fa1b2C becomes
+     * /v1/accounts/{id}/storage/files/{id}. The query string is dropped, the account segment is
+     * replaced unless it is "me", and so is every other segment which is not a lowercase word
+     * like "files" or "contents", since ids of resources are mixed case or numeric.
+     *
+     * @param url the url of the request
+     * @return String the endpoint template
+     */
+    public static String endpointOf(String url) {
+        int end = url.indexOf('?');
+        if (end < 0) {
+            end = url.length();
+        }
+        StringBuilder endpoint = new StringBuilder(end + 8);
+        boolean accountId = false;
+        int start = 0;
+        while (start < end) {
+            int slash = url.indexOf('/', start);
+            if (slash < 0 || slash > end) {
+                slash = end;
+            }
+            if (slash > start) {
+                endpoint.append('/');
+                if (accountId ? !url.regionMatches(start, "me", 0, 2) || slash - start != 2
+                        : !isWord(url, start, slash)) {
+                    endpoint.append("{id}");
+                } else {
+                    endpoint.append(url, start, slash);
+                }
+                accountId = !accountId && url.regionMatches(start, "accounts", 0, 8)
+                        && slash - start == 8;
+            }
+            start = slash + 1;
+        }
+        return endpoint.length() == 0 ? "/" : endpoint.toString();
+    }
+
+    /**
+     * Whether a path segment is a lowercase word, optionally with digits after the first letter
+     * such as the version v1
+     *
+     * @param url   the url
+     * @param start the index of the first character of the segment
+     * @param end   the index after the last character of the segment
+     * @return boolean true if the segment is a word
+     */
+    private static boolean isWord(String url, int start, int end) {
+        char first = url.charAt(start);
+        if (first < 'a' || first > 'z') {
+            return false;
+        }
+        boolean digits = false;
+        for (int i = start + 1; i < end; i++) {
+            char c = url.charAt(i);
+            if (c >= '0' && c <= '9') {
+                digits = true;
+            } else if (digits || (c < 'a' || c > 'z') && c != '_' && c != '-') {
+                return false;
+            }
+        }
+        return !digits || first == 'v';
+    }
+
+    /**
+     * Record the size of the body of the assembled request
+     *
+     * @param request the request
+     */
+    public void requestAssembled(HttpRequest request) {
+        this.requestEntity = request instanceof HttpEntityEnclosingRequest
+                ? ((HttpEntityEnclosingRequest) request).getEntity()
+                : null;
+        this.requestBytes =
+                this.requestEntity == null ? 0 : this.requestEntity.getContentLength();
+    }
+
+    /**
+     * Record that an attempt of the request is sent, after it waited for the rate limits and the
+     * concurrency limit
+     *
+     * @param queueTime the time the attempt waited in nanoseconds
+     */
+    public void requestSent(long queueTime) {
+        this.queueTime += queueTime;
+        this.sentAt = System.nanoTime();
+        this.attempts++;
+    }
+
+    /**
+     * Record that the status line and headers of a response arrived
+     *
+     * @param response the response
+     */
+    public void responseReceived(HttpResponse response) {
+        this.firstByteAt = System.nanoTime();
+        this.statusCode = response.getStatusLine().getStatusCode();
+        Header contentLength = response.getFirstHeader(HTTP.CONTENT_LEN);
+        try {
+            this.responseBytes =
+                    contentLength == null ? -1 : Long.parseLong(contentLength.getValue().trim());
+        } catch (NumberFormatException e) {
+            this.responseBytes = -1;
+        }
+    }
+
+    /**
+     * Record that the body of a response of the non-blocking client has been received
+     */
+    public void responseCompleted() {
+        this.receivedAt = System.nanoTime();
+    }
+
+    /**
+     * Record that the body of the response is being parsed
+     */
+    public void parseStarted() {
+        this.parseStartedAt = System.nanoTime();
+        this.parseFlightEvent = FlightEvents.beginParse();
+    }
+
+    /**
+     * Record the end of the transaction
+     *
+     * @param response the last response, or null if there is none
+     * @param error    the error the transaction failed with, or null
+     */
+    public void finish(HttpResponse response, Throwable error) {
+        this.finishedAt = System.nanoTime();
+        this.error = error;
+        if (this.requestBytes < 0 && this.requestEntity instanceof JsonEntity) {
+            // the JSON body is streamed, its length is known once it has been written
+            this.requestBytes = ((JsonEntity) this.requestEntity).getBytesWritten();
+        }
+        HttpEntity entity = response == null ? null : response.getEntity();
+        if (entity instanceof DecodingEntity && ((DecodingEntity) entity).getWireBytes() > 0) {
+            this.responseBytes = ((DecodingEntity) entity).getWireBytes();
+        }
+        FlightEvents.commitParse(this.parseFlightEvent, this);
+        FlightEvents.commitRequest(this.flightEvent, this);
+    }
+
+    /**
+     * Get the http method of the request
+     *
+     * @return String the http method
+     */
+    public String getMethod() {
+        return this.method;
+    }
+
+    /**
+     * Get the url of the request, relative to the base url
+     *
+     * @return String the url
+     */
+    public String getUrl() {
+        return this.url;
+    }
+
+    /**
+     * Get the endpoint template of the request, see {@link #endpointOf(String)}
+     *
+     * @return String the endpoint template
+     */
+    public String getEndpoint() {
+        return this.endpoint;
+    }
+
+    /**
+     * Get the account of the request, see {@link #accountOf(String)}
+     *
+     * @return String the account id, or null if the request does not belong to an account
+     */
+    public String getAccount() {
+        return accountOf(this.url);
+    }
+
+    /**
+     * Get the status code of the last response
+     *
+     * @return int the status code, -1 if no response arrived
+     */
+    public int getStatusCode() {
+        return this.statusCode;
+    }
+
+    /**
+     * Get the error the transaction failed with, including error responses
+     *
+     * @return Throwable the error, or null if the transaction succeeded
+     */
+    public Throwable getError() {
+        return this.error;
+    }
+
+    /**
+     * Get the number of attempts sent, more than 1 if the request was retried
+     *
+     * @return int the number of attempts
+     */
+    public int getAttempts() {
+        return this.attempts;
+    }
+
+    /**
+     * Get the size of the request body
+     *
+     * @return long the number of bytes, -1 if it is unknown, e.g. for a stream
+     */
+    public long getRequestBytes() {
+        return this.requestBytes;
+    }
+
+    /**
+     * Get the size of the response body as received on the wire. It is counted while the body is
+     * read, a body which is not read during the transaction, e.g. a download, is reported with
+     * its Content-Length.
+     *
+     * @return long the number of bytes, -1 if it is unknown
+     */
+    public long getResponseBytes() {
+        return this.responseBytes;
+    }
+
+    /**
+     * Get the time the attempts waited for the rate limits and the concurrency limit
+     *
+     * @return long the queue time in nanoseconds
+     */
+    public long getQueueTime() {
+        return this.queueTime;
+    }
+
+    /**
+     * Get the time from sending the last attempt until its status line and headers arrived
+     *
+     * @return long the time to first byte in nanoseconds, -1 if no response arrived
+     */
+    public long getTimeToFirstByte() {
+        return this.sentAt < 0 || this.firstByteAt < 0 ? -1 : this.firstByteAt - this.sentAt;
+    }
+
+    /**
+     * Get the time from the arrival of the response headers until the whole body was received.
+     * Blocking requests read the body while it is parsed, so it is part of the parse time.
+     *
+     * @return long the body time in nanoseconds, -1 if the body was not received before parsing
+     */
+    public long getBodyTime() {
+        return this.firstByteAt < 0 || this.receivedAt < 0 ? -1
+                : this.receivedAt - this.firstByteAt;
+    }
+
+    /**
+     * Get the time spent parsing the response, including reading its body
+     *
+     * @return long the parse time in nanoseconds, -1 if the response was not parsed
+     */
+    public long getParseTime() {
+        return this.parseStartedAt < 0 || this.finishedAt < 0 ? -1
+                : this.finishedAt - this.parseStartedAt;
+    }
+
+    /**
+     * Get the time of the whole transaction, including queueing, retries and parsing
+     *
+     * @return long the total time in nanoseconds, -1 if it has not finished
+     */
+    public long getTotalTime() {
+        return this.finishedAt < 0 ? -1 : this.finishedAt - this.startedAt;
+    }
+
+    @Override
+    public String toString() {
+        return this.method + " " + this.endpoint + " "
+                + (this.error != null && this.statusCode < 0 ? this.error.toString()
+                        : "status " + this.statusCode)
+                + " in " + getTotalTime() / 1000 + " us";
+    }
+}
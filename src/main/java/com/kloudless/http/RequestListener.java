@@ -0,0 +1,18 @@
+package com.kloudless.http;
+
+/**
+ * RequestListener is notified about every http transaction the clients of this library send, e.g.
+ * to record metrics, see {@link RequestMetrics}. Responses answered from the metadata cache or
+ * shared by coalesced requests are not sent and not reported. It is called on the thread which
+ * made the request, or on the callback executor or an I/O thread of the transport for
+ * asynchronous requests, so it must return quickly and be thread-safe.
+ */
+public interface RequestListener {
+
+    /**
+     * Called when a transaction finished, successfully or not
+     *
+     * @param event the timings, sizes and outcome of the transaction
+     */
+    void onRequest(RequestEvent event);
+}
@@ -0,0 +1,322 @@
+package com.kloudless.http;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * RequestMetrics is a RequestListener which keeps counters and latency histograms per http method
+ * and endpoint template, e.g. GET /v1/accounts/{id}/storage/files/{id}. Recording takes no locks,
+ * so it can stay enabled in production. The metrics can be read per endpoint or written in the
+ * Prometheus text format to be scraped.
+ * <p>
+ * The number of endpoints is bounded, requests of further endpoints are counted under the
+ * endpoint "other".
+ */
+public class RequestMetrics implements RequestListener {
+    private static final String OTHER = "other";
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+
+    private final int maxEndpoints;
+    private final ConcurrentMap<String, EndpointMetrics> endpoints =
+            new ConcurrentHashMap<String, EndpointMetrics>();
+
+    /**
+     * Constructor of RequestMetrics for at most 500 endpoints
+     */
+    public RequestMetrics() {
+        this(500);
+    }
+
+    /**
+     * Constructor of RequestMetrics
+     *
+     * @param maxEndpoints the maximum number of method and endpoint combinations kept apart
+     */
+    public RequestMetrics(int maxEndpoints) {
+        this.maxEndpoints = maxEndpoints;
+    }
+
+    @Override
+    public void onRequest(RequestEvent event) {
+        String key = event.getMethod() + ' ' + event.getEndpoint();
+        EndpointMetrics metrics = this.endpoints.get(key);
+        if (metrics == null) {
+            if (this.endpoints.size() >= this.maxEndpoints) {
+                key = event.getMethod() + ' ' + OTHER;
+                metrics = this.endpoints.computeIfAbsent(key,
+                        ignored -> new EndpointMetrics(event.getMethod(), OTHER));
+            } else {
+                metrics = this.endpoints.computeIfAbsent(key,
+                        ignored -> new EndpointMetrics(event.getMethod(), event.getEndpoint()));
+            }
+        }
+        metrics.record(event);
+    }
+
+    /**
+     * Get the metrics of the endpoints requested so far
+     *
+     * @return Map the metrics keyed by the http method and the endpoint template, e.g.
+     *         "GET /v1/accounts/{id}/storage/files/{id}"
+     */
+    public Map<String, EndpointMetrics> getEndpoints() {
+        return new TreeMap<String, EndpointMetrics>(this.endpoints);
+    }
+
+    /**
+     * Get the metrics of an endpoint
+     *
+     * @param method   the http method
+     * @param endpoint the endpoint template, see {@link RequestEvent#endpointOf(String)}
+     * @return EndpointMetrics the metrics, or null if the endpoint was not requested
+     */
+    public EndpointMetrics getEndpoint(String method, String endpoint) {
+        return this.endpoints.get(method + ' ' + endpoint);
+    }
+
+    /**
+     * Remove the metrics of all endpoints
+     */
+    public void reset() {
+        this.endpoints.clear();
+    }
+
+    /**
+     * Write the metrics in the Prometheus text exposition format. Durations are written as
+     * summaries in seconds with the phases queue, first_byte, parse and total.
+     *
+     * @param out the output, e.g. the response of a metrics endpoint
+     * @throws IOException Error when writing to the output failed
+     */
+    public void writeTo(Appendable out) throws IOException {
+        Map<String, EndpointMetrics> snapshot = getEndpoints();
+        out.append("# TYPE kloudless_requests_total counter\n");
+        for (EndpointMetrics metrics : snapshot.values()) {
+            for (int statusClass = 0; statusClass < 6; statusClass++) {
+                long count = metrics.getStatusCount(statusClass);
+                if (count > 0) {
+                    out.append("kloudless_requests_total{").append(metrics.labels())
+                            .append(",status=\"")
+                            .append(statusClass == 0 ? "none" : statusClass + "xx")
+                            .append("\"} ").append(Long.toString(count)).append('\n');
+                }
+            }
+        }
+        out.append("# TYPE kloudless_request_retries_total counter\n");
+        for (EndpointMetrics metrics : snapshot.values()) {
+            out.append("kloudless_request_retries_total{").append(metrics.labels()).append("} ")
+                    .append(Long.toString(metrics.getRetryCount())).append('\n');
+        }
+        out.append("# TYPE kloudless_request_bytes_total counter\n");
+        for (EndpointMetrics metrics : snapshot.values()) {
+            out.append("kloudless_request_bytes_total{").append(metrics.labels()).append("} ")
+                    .append(Long.toString(metrics.getRequestBytes())).append('\n');
+        }
+        out.append("# TYPE kloudless_response_bytes_total counter\n");
+        for (EndpointMetrics metrics : snapshot.values()) {
+            out.append("kloudless_response_bytes_total{").append(metrics.labels()).append("} ")
+                    .append(Long.toString(metrics.getResponseBytes())).append('\n');
+        }
+        out.append("# TYPE kloudless_request_duration_seconds summary\n");
+        for (EndpointMetrics metrics : snapshot.values()) {
+            writeSummary(out, metrics, "queue", metrics.getQueueTime());
+            writeSummary(out, metrics, "first_byte", metrics.getTimeToFirstByte());
+            writeSummary(out, metrics, "parse", metrics.getParseTime());
+            writeSummary(out, metrics, "total", metrics.getTotalTime());
+        }
+    }
+
+    /**
+     * Write a histogram as a Prometheus summary
+     *
+     * @param out       the output
+     * @param metrics   the endpoint of the histogram
+     * @param phase     the phase of the request the histogram measures
+     * @param histogram the histogram in microseconds
+     * @throws IOException Error when writing to the output failed
+     */
+    private static void writeSummary(Appendable out, EndpointMetrics metrics, String phase,
+            LatencyHistogram histogram) throws IOException {
+        String labels = metrics.labels() + ",phase=\"" + phase + "\"";
+        for (double quantile : QUANTILES) {
+            out.append("kloudless_request_duration_seconds{").append(labels)
+                    .append(",quantile=\"").append(Double.toString(quantile)).append("\"} ")
+                    .append(seconds(histogram.getValueAtPercentile(quantile * 100)))
+                    .append('\n');
+        }
+        out.append("kloudless_request_duration_seconds_sum{").append(labels).append("} ")
+                .append(seconds(histogram.getSum())).append('\n');
+        out.append("kloudless_request_duration_seconds_count{").append(labels).append("} ")
+                .append(Long.toString(histogram.getCount())).append('\n');
+    }
+
+    private static String seconds(long micros) {
+        return Double.toString(micros / 1e6);
+    }
+
+    /**
+     * EndpointMetrics holds the counters and histograms of one http method and endpoint template
+     */
+    public static final class EndpointMetrics {
+        private final String method;
+        private final String endpoint;
+        private final AtomicLongArray statusCounts = new AtomicLongArray(6);
+        private final LongAdder errors = new LongAdder();
+        private final LongAdder retries = new LongAdder();
+        private final LongAdder requestBytes = new LongAdder();
+        private final LongAdder responseBytes = new LongAdder();
+        private final LatencyHistogram queueTime = new LatencyHistogram();
+        private final LatencyHistogram timeToFirstByte = new LatencyHistogram();
+        private final LatencyHistogram parseTime = new LatencyHistogram();
+        private final LatencyHistogram totalTime = new LatencyHistogram();
+
+        EndpointMetrics(String method, String endpoint) {
+            this.method = method;
+            this.endpoint = endpoint;
+        }
+
+        void record(RequestEvent event) {
+            int status = event.getStatusCode();
+            this.statusCounts.incrementAndGet(status >= 100 && status < 600 ? status / 100 : 0);
+            if (event.getError() != null) {
+                this.errors.increment();
+            }
+            if (event.getAttempts() > 1) {
+                this.retries.add(event.getAttempts() - 1);
+            }
+            if (event.getRequestBytes() > 0) {
+                this.requestBytes.add(event.getRequestBytes());
+            }
+            if (event.getResponseBytes() > 0) {
+                this.responseBytes.add(event.getResponseBytes());
+            }
+            this.queueTime.record(event.getQueueTime());
+            this.timeToFirstByte.record(event.getTimeToFirstByte());
+            this.parseTime.record(event.getParseTime());
+            this.totalTime.record(event.getTotalTime());
+        }
+
+        /**
+         * Get the http method
+         *
+         * @return String the http method
+         */
+        public String getMethod() {
+            return this.method;
+        }
+
+        /**
+         * Get the endpoint template
+         *
+         * @return String the endpoint template, or "other" for the endpoints over the limit
+         */
+        public String getEndpoint() {
+            return this.endpoint;
+        }
+
+        /**
+         * Get the number of requests
+         *
+         * @return long the number of requests
+         */
+        public long getRequestCount() {
+            return this.totalTime.getCount();
+        }
+
+        /**
+         * Get the number of requests whose last response had a status of the given class
+         *
+         * @param statusClass 2 for 2xx, 4 for 4xx and so on, 0 for requests without response
+         * @return long the number of requests
+         */
+        public long getStatusCount(int statusClass) {
+            return this.statusCounts.get(statusClass);
+        }
+
+        /**
+         * Get the number of failed requests, including error responses
+         *
+         * @return long the number of failed requests
+         */
+        public long getErrorCount() {
+            return this.errors.sum();
+        }
+
+        /**
+         * Get the number of retried attempts
+         *
+         * @return long the number of retries
+         */
+        public long getRetryCount() {
+            return this.retries.sum();
+        }
+
+        /**
+         * Get the number of request body bytes of known size
+         *
+         * @return long the number of bytes sent
+         */
+        public long getRequestBytes() {
+            return this.requestBytes.sum();
+        }
+
+        /**
+         * Get the number of response body bytes received on the wire
+         *
+         * @return long the number of bytes received
+         */
+        public long getResponseBytes() {
+            return this.responseBytes.sum();
+        }
+
+        /**
+         * Get the histogram of the time requests waited for the rate and concurrency limits
+         *
+         * @return LatencyHistogram the queue times in microseconds
+         */
+        public LatencyHistogram getQueueTime() {
+            return this.queueTime;
+        }
+
+        /**
+         * Get the histogram of the time from sending a request until its response headers arrived
+         *
+         * @return LatencyHistogram the times to first byte in microseconds
+         */
+        public LatencyHistogram getTimeToFirstByte() {
+            return this.timeToFirstByte;
+        }
+
+        /**
+         * Get the histogram of the time spent parsing responses
+         *
+         * @return LatencyHistogram the parse times in microseconds
+         */
+        public LatencyHistogram getParseTime() {
+            return this.parseTime;
+        }
+
+        /**
+         * Get the histogram of the time of whole transactions
+         *
+         * @return LatencyHistogram the total times in microseconds
+         */
+        public LatencyHistogram getTotalTime() {
+            return this.totalTime;
+        }
+
+        private String labels() {
+            return "method=\"" + escape(this.method) + "\",endpoint=\"" + escape(this.endpoint)
+                    + "\"";
+        }
+
+        private static String escape(String value) {
+            return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+        }
+    }
+}
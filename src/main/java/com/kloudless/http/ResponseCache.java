@@ -0,0 +1,224 @@
+package com.kloudless.http;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * ResponseCache keeps the parsed responses of GET requests together with their validators, the
+ * ETag and Last-Modified headers. A cached response is revalidated with If-None-Match and
+ * If-Modified-Since, and reused if the server answers 304 Not Modified, so an unchanged body is
+ * neither downloaded nor parsed again. The least recently used entry is evicted once the cache is
+ * full.
+ * <p>
+ * Entries are keyed by the URL of the request and the identity it is authorized with, so
+ * accounts never see each other's responses.
+ *
+ * @param <V> the type of the cached responses
+ */
+public class ResponseCache<V> {
+    private final int maxEntries;
+    private final Map<String, Entry<V>> entries;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * Constructor of ResponseCache
+     *
+     * @param maxEntries the maximum number of cached responses
+     */
+    public ResponseCache(int maxEntries) {
+        this.maxEntries = maxEntries;
+        this.entries = new LinkedHashMap<String, Entry<V>>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(
+                    Map.Entry<String, ResponseCache.Entry<V>> eldest) {
+                if (size() > ResponseCache.this.maxEntries) {
+                    ResponseCache.this.evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Build the cache key of a request
+     *
+     * @param url      the URL of the request, including the query string
+     * @param identity the Authorization header of the request, or null
+     * @return String the cache key
+     */
+    public static String key(String url, Object identity) {
+        return identity == null ? url : url + '\n' + identity;
+    }
+
+    /**
+     * Get the cached response of a request, it becomes the most recently used entry
+     *
+     * @param key the cache key
+     * @return Entry the cached response, or null if there is none
+     */
+    public synchronized Entry<V> get(String key) {
+        return this.entries.get(key);
+    }
+
+    /**
+     * Store the response of a request. A response without ETag and Last-Modified cannot be
+     * revalidated, it replaces an older entry but is not stored itself.
+     *
+     * @param key          the cache key
+     * @param etag         the ETag header of the response, or null
+     * @param lastModified the Last-Modified header of the response, or null
+     * @param value        the parsed response
+     */
+    public synchronized void put(String key, String etag, String lastModified, V value) {
+        if (etag == null && lastModified == null) {
+            this.entries.remove(key);
+        } else {
+            this.entries.put(key, new Entry<V>(etag, lastModified, value));
+        }
+    }
+
+    /**
+     * Remove the cached response of a request
+     *
+     * @param key the cache key
+     */
+    public synchronized void remove(String key) {
+        this.entries.remove(key);
+    }
+
+    /**
+     * Remove all cached responses, the statistics are kept
+     */
+    public synchronized void clear() {
+        this.entries.clear();
+    }
+
+    /**
+     * Get the number of cached responses
+     *
+     * @return int the number of entries
+     */
+    public synchronized int size() {
+        return this.entries.size();
+    }
+
+    /**
+     * Get the maximum number of cached responses
+     *
+     * @return int the maximum number of entries
+     */
+    public int getMaxEntries() {
+        return this.maxEntries;
+    }
+
+    /**
+     * Get the number of requests answered from the cache after a 304 Not Modified
+     *
+     * @return long the number of cache hits
+     */
+    public long getHitCount() {
+        return this.hits.sum();
+    }
+
+    /**
+     * Get the number of cacheable requests which downloaded the full response
+     *
+     * @return long the number of cache misses
+     */
+    public long getMissCount() {
+        return this.misses.sum();
+    }
+
+    /**
+     * Get the number of entries evicted because the cache was full
+     *
+     * @return long the number of evictions
+     */
+    public long getEvictionCount() {
+        return this.evictions.sum();
+    }
+
+    /**
+     * Get the fraction of cacheable requests answered from the cache
+     *
+     * @return double the hit ratio between 0 and 1, 0 if there was no request yet
+     */
+    public double getHitRatio() {
+        long hitCount = getHitCount();
+        long total = hitCount + getMissCount();
+        return total == 0 ? 0 : (double) hitCount / total;
+    }
+
+    /**
+     * Record a request answered from the cache
+     */
+    public void recordHit() {
+        this.hits.increment();
+    }
+
+    /**
+     * Record a cacheable request which downloaded the full response
+     */
+    public void recordMiss() {
+        this.misses.increment();
+    }
+
+    /**
+     * Reset the statistics to zero
+     */
+    public void resetStatistics() {
+        this.hits.reset();
+        this.misses.reset();
+        this.evictions.reset();
+    }
+
+    /**
+     * Entry is a cached response with the validators it is revalidated with
+     *
+     * @param <V> the type of the cached response
+     */
+    public static final class Entry<V> {
+        private final String etag;
+        private final String lastModified;
+        private final V value;
+
+        Entry(String etag, String lastModified, V value) {
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.value = value;
+        }
+
+        /**
+         * Get the ETag, sent as If-None-Match
+         *
+         * @return String the ETag, or null
+         */
+        public String getETag() {
+            return this.etag;
+        }
+
+        /**
+         * Get the Last-Modified date, sent as If-Modified-Since
+         *
+         * @return String the Last-Modified date, or null
+         */
+        public String getLastModified() {
+            return this.lastModified;
+        }
+
+        /**
+         * Get the cached response
+         *
+         * @return V the parsed response
+         */
+        public V getValue() {
+            return this.value;
+        }
+    }
+}
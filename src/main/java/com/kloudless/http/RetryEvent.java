@@ -0,0 +1,108 @@
+package com.kloudless.http;
+
+/**
+ * RetryEvent describes a failed attempt of a request which is retried or given up, see
+ * {@link RetryListener}.
+ */
+public class RetryEvent {
+    private final String method;
+    private final String url;
+    private final int attempt;
+    private final int statusCode;
+    private final Exception error;
+    private final long delay;
+    private final boolean budgetExhausted;
+
+    /**
+     * Constructor of RetryEvent
+     *
+     * @param method          the http method of the request
+     * @param url             the url of the request
+     * @param attempt         the number of the failed attempt, starting from 1
+     * @param statusCode      the status code of the failed attempt, -1 if it failed with an error
+     * @param error           the error of the failed attempt, or null
+     * @param delay           the delay in milliseconds before the next attempt, -1 if given up
+     * @param budgetExhausted whether the request is given up because the retry budget is spent
+     */
+    public RetryEvent(String method, String url, int attempt, int statusCode, Exception error,
+            long delay, boolean budgetExhausted) {
+        this.method = method;
+        this.url = url;
+        this.attempt = attempt;
+        this.statusCode = statusCode;
+        this.error = error;
+        this.delay = delay;
+        this.budgetExhausted = budgetExhausted;
+    }
+
+    /**
+     * Get the http method of the request
+     *
+     * @return String the http method
+     */
+    public String getMethod() {
+        return this.method;
+    }
+
+    /**
+     * Get the url of the request
+     *
+     * @return String the url
+     */
+    public String getUrl() {
+        return this.url;
+    }
+
+    /**
+     * Get the number of the failed attempt, starting from 1
+     *
+     * @return int the number of the attempt
+     */
+    public int getAttempt() {
+        return this.attempt;
+    }
+
+    /**
+     * Get the status code of the failed attempt
+     *
+     * @return int the status code, -1 if the attempt failed with an error
+     */
+    public int getStatusCode() {
+        return this.statusCode;
+    }
+
+    /**
+     * Get the error of the failed attempt
+     *
+     * @return Exception the error, or null if the attempt returned a response
+     */
+    public Exception getError() {
+        return this.error;
+    }
+
+    /**
+     * Get the delay before the next attempt
+     *
+     * @return long the delay in milliseconds, -1 if the request is given up
+     */
+    public long getDelay() {
+        return this.delay;
+    }
+
+    /**
+     * Whether the request is given up because the retry budget is spent
+     *
+     * @return boolean true if the retry budget is spent
+     */
+    public boolean isBudgetExhausted() {
+        return this.budgetExhausted;
+    }
+
+    @Override
+    public String toString() {
+        return this.method + " " + this.url + " attempt " + this.attempt + " failed with "
+                + (this.error != null ? this.error.toString() : "status " + this.statusCode)
+                + (this.delay >= 0 ? ", retry in " + this.delay + " ms"
+                        : this.budgetExhausted ? ", retry budget spent" : ", giving up");
+    }
+}
@@ -0,0 +1,26 @@
+package com.kloudless.http;
+
+/**
+ * RetryListener is notified by a {@link RetryPolicy} about retried requests, e.g. to log them or
+ * to tune the policy. It is called on the thread which made the request, or on the scheduler of
+ * the transport for asynchronous requests, so it must return quickly.
+ */
+public interface RetryListener {
+
+    /**
+     * Called before a failed attempt is retried
+     *
+     * @param event the failed attempt and the delay before the next one
+     */
+    void onRetry(RetryEvent event);
+
+    /**
+     * Called when a retryable failure is not retried any more, because the maximum number of
+     * retries is reached or the retry budget is spent
+     *
+     * @param event the last failed attempt
+     */
+    default void onGiveUp(RetryEvent event) {
+
+    }
+}
@@ -0,0 +1,374 @@
+package com.kloudless.http;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpEntityEnclosingRequest;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.utils.DateUtils;
+
+/**
+ * RetryPolicy decides whether a failed request is sent again and how long to wait before. Only
+ * idempotent requests (GET, PUT and DELETE) are retried unless non-idempotent requests are opted
+ * in, and only if their body can be sent again.
+ * <p>
+ * The delay honors the Retry-After header of the response, otherwise it grows exponentially with
+ * full jitter. Every request earns a fraction of a retry and every retry spends one, so the
+ * retries of all requests sharing this policy stay a bounded fraction of the traffic while the
+ * server is throttling.
+ */
+public class RetryPolicy {
+    private static final long BUDGET_UNIT = 1000;
+
+    private int maxRetries = 3;
+    private long baseDelay = 500;
+    private long maxDelay = 30000;
+    private long maxRetryAfter = 120000;
+    private Set<Integer> retryableStatusCodes =
+            new HashSet<Integer>(Arrays.asList(429, 502, 503, 504));
+    private boolean retryOnIOException = true;
+    private boolean retryNonIdempotent = false;
+    private double budgetRatio = 0.1;
+    private int minBudget = 10;
+    private RetryListener listener;
+    private final AtomicLong budget = new AtomicLong(this.minBudget * BUDGET_UNIT);
+
+    public RetryPolicy() {
+
+    }
+
+    /**
+     * Get a policy which never retries
+     *
+     * @return RetryPolicy a policy without retries
+     */
+    public static RetryPolicy none() {
+        RetryPolicy policy = new RetryPolicy();
+        policy.setMaxRetries(0);
+        return policy;
+    }
+
+    /**
+     * Get the maximum number of retries of a request
+     *
+     * @return int the maximum number of retries
+     */
+    public int getMaxRetries() {
+        return this.maxRetries;
+    }
+
+    /**
+     * Set the maximum number of retries of a request, 0 disables retries. The default is 3.
+     *
+     * @param maxRetries the maximum number of retries
+     */
+    public void setMaxRetries(int maxRetries) {
+        this.maxRetries = maxRetries;
+    }
+
+    /**
+     * Get the upper bound of the delay before the first retry in milliseconds
+     *
+     * @return long the base delay in milliseconds
+     */
+    public long getBaseDelay() {
+        return this.baseDelay;
+    }
+
+    /**
+     * Set the upper bound of the delay before the first retry in milliseconds, it doubles for
+     * every further retry. The actual delay is random between 0 and the bound. The default is 500.
+     *
+     * @param baseDelay the base delay in milliseconds
+     */
+    public void setBaseDelay(long baseDelay) {
+        this.baseDelay = baseDelay;
+    }
+
+    /**
+     * Get the largest upper bound of the delay between retries in milliseconds
+     *
+     * @return long the maximum delay in milliseconds
+     */
+    public long getMaxDelay() {
+        return this.maxDelay;
+    }
+
+    /**
+     * Set the largest upper bound of the delay between retries in milliseconds. The default is
+     * 30000.
+     *
+     * @param maxDelay the maximum delay in milliseconds
+     */
+    public void setMaxDelay(long maxDelay) {
+        this.maxDelay = maxDelay;
+    }
+
+    /**
+     * Get the longest Retry-After delay which is waited for in milliseconds
+     *
+     * @return long the longest Retry-After delay in milliseconds
+     */
+    public long getMaxRetryAfter() {
+        return this.maxRetryAfter;
+    }
+
+    /**
+     * Set the longest Retry-After delay which is waited for in milliseconds, a request asked to
+     * wait longer is given up. The default is 120000.
+     *
+     * @param maxRetryAfter the longest Retry-After delay in milliseconds
+     */
+    public void setMaxRetryAfter(long maxRetryAfter) {
+        this.maxRetryAfter = maxRetryAfter;
+    }
+
+    /**
+     * Get the status codes which are retried
+     *
+     * @return Set the retryable status codes
+     */
+    public Set<Integer> getRetryableStatusCodes() {
+        return Collections.unmodifiableSet(this.retryableStatusCodes);
+    }
+
+    /**
+     * Set the status codes which are retried. The default is 429, 502, 503 and 504.
+     *
+     * @param retryableStatusCodes the retryable status codes
+     */
+    public void setRetryableStatusCodes(Set<Integer> retryableStatusCodes) {
+        this.retryableStatusCodes = new HashSet<Integer>(retryableStatusCodes);
+    }
+
+    /**
+     * Whether requests failing with an I/O error, e.g. a reset connection, are retried
+     *
+     * @return boolean true if I/O errors are retried
+     */
+    public boolean isRetryOnIOException() {
+        return this.retryOnIOException;
+    }
+
+    /**
+     * Set whether requests failing with an I/O error, e.g. a reset connection, are retried. The
+     * default is true.
+     *
+     * @param retryOnIOException true to retry I/O errors
+     */
+    public void setRetryOnIOException(boolean retryOnIOException) {
+        this.retryOnIOException = retryOnIOException;
+    }
+
+    /**
+     * Whether POST and PATCH requests are retried as well
+     *
+     * @return boolean true if non-idempotent requests are retried
+     */
+    public boolean isRetryNonIdempotent() {
+        return this.retryNonIdempotent;
+    }
+
+    /**
+     * Set whether POST and PATCH requests are retried as well. Only opt in if sending such a
+     * request twice is safe, e.g. for a client which only creates resources with fixed ids. The
+     * default is false.
+     *
+     * @param retryNonIdempotent true to retry non-idempotent requests
+     */
+    public void setRetryNonIdempotent(boolean retryNonIdempotent) {
+        this.retryNonIdempotent = retryNonIdempotent;
+    }
+
+    /**
+     * Get the fraction of a retry earned by every request
+     *
+     * @return double the retry budget ratio
+     */
+    public double getBudgetRatio() {
+        return this.budgetRatio;
+    }
+
+    /**
+     * Set the fraction of a retry earned by every request, e.g. 0.1 allows one retry for every
+     * ten requests on top of the minimum budget. The default is 0.1.
+     *
+     * @param budgetRatio the retry budget ratio
+     */
+    public void setBudgetRatio(double budgetRatio) {
+        this.budgetRatio = budgetRatio;
+    }
+
+    /**
+     * Get the number of retries which are allowed before any request has earned a retry
+     *
+     * @return int the minimum retry budget
+     */
+    public int getMinBudget() {
+        return this.minBudget;
+    }
+
+    /**
+     * Set the number of retries which are allowed before any request has earned a retry, it also
+     * resets the current budget. The budget never saves more than this plus the retries earned
+     * by 1000 requests. The default is 10.
+     *
+     * @param minBudget the minimum retry budget
+     */
+    public void setMinBudget(int minBudget) {
+        this.minBudget = minBudget;
+        this.budget.set(minBudget * BUDGET_UNIT);
+    }
+
+    /**
+     * Get the listener notified about retries
+     *
+     * @return RetryListener the listener, or null
+     */
+    public RetryListener getListener() {
+        return this.listener;
+    }
+
+    /**
+     * Set the listener notified about retries and requests which are given up
+     *
+     * @param listener the listener, or null
+     */
+    public void setListener(RetryListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Get the number of retries left in the budget
+     *
+     * @return double the remaining retry budget
+     */
+    public double getRemainingBudget() {
+        return (double) this.budget.get() / BUDGET_UNIT;
+    }
+
+    /**
+     * Record a new request, which earns a fraction of a retry
+     */
+    public void recordRequest() {
+        long deposit = (long) (this.budgetRatio * BUDGET_UNIT);
+        long cap = this.minBudget * BUDGET_UNIT + 1000 * deposit;
+        this.budget.accumulateAndGet(deposit, (balance, amount) -> Math.min(cap, balance + amount));
+    }
+
+    /**
+     * Decide whether a failed attempt is retried, and notify the listener
+     *
+     * @param request  the request
+     * @param attempt  the number of the failed attempt, starting from 1
+     * @param response the response of the failed attempt, or null if it failed with an error
+     * @param error    the error of the failed attempt, or null if it returned a response
+     * @return long the delay in milliseconds before the next attempt, -1 if it is not retried
+     */
+    public long nextRetryDelay(HttpRequest request, int attempt, HttpResponse response,
+            Exception error) {
+        int statusCode = response == null ? -1 : response.getStatusLine().getStatusCode();
+        if (!isRetryable(request, statusCode, error)) {
+            return -1;
+        }
+        String method = request.getRequestLine().getMethod();
+        String url = request.getRequestLine().getUri();
+        long retryAfter = response == null ? -1 : getRetryAfter(response);
+        if (attempt > this.maxRetries || retryAfter > this.maxRetryAfter) {
+            notifyGiveUp(new RetryEvent(method, url, attempt, statusCode, error, -1, false));
+            return -1;
+        }
+        if (this.budget.getAndUpdate(balance -> balance >= BUDGET_UNIT ? balance - BUDGET_UNIT
+                : balance) < BUDGET_UNIT) {
+            notifyGiveUp(new RetryEvent(method, url, attempt, statusCode, error, -1, true));
+            return -1;
+        }
+        long delay = retryAfter >= 0 ? retryAfter : backoff(attempt);
+        if (this.listener != null) {
+            this.listener.onRetry(
+                    new RetryEvent(method, url, attempt, statusCode, error, delay, false));
+        }
+        return delay;
+    }
+
+    /**
+     * Whether the failure is retryable and the request may be sent again
+     *
+     * @param request    the request
+     * @param statusCode the status code, -1 if the attempt failed with an error
+     * @param error      the error, or null
+     * @return boolean true if the request may be retried
+     */
+    private boolean isRetryable(HttpRequest request, int statusCode, Exception error) {
+        if (this.maxRetries <= 0) {
+            return false;
+        }
+        if (error != null ? !(this.retryOnIOException && error instanceof IOException)
+                : !this.retryableStatusCodes.contains(statusCode)) {
+            return false;
+        }
+        String method = request.getRequestLine().getMethod();
+        if (!this.retryNonIdempotent && !"GET".equals(method) && !"PUT".equals(method)
+                && !"DELETE".equals(method)) {
+            return false;
+        }
+        if (request instanceof HttpEntityEnclosingRequest) {
+            HttpEntity entity = ((HttpEntityEnclosingRequest) request).getEntity();
+            return entity == null || entity.isRepeatable();
+        }
+        return true;
+    }
+
+    /**
+     * Full jitter: a random delay between 0 and the exponentially growing bound
+     *
+     * @param attempt the number of the failed attempt, starting from 1
+     * @return long the delay in milliseconds
+     */
+    private long backoff(int attempt) {
+        long bound = this.baseDelay << Math.min(attempt - 1, 30);
+        if (bound <= 0 || bound > this.maxDelay) {
+            bound = this.maxDelay;
+        }
+        return ThreadLocalRandom.current().nextLong(bound + 1);
+    }
+
+    /**
+     * Read the Retry-After header, either in seconds or as a date
+     *
+     * @param response the response
+     * @return long the delay in milliseconds, -1 if the header is missing or invalid
+     */
+    private static long getRetryAfter(HttpResponse response) {
+        Header header = response.getFirstHeader("Retry-After");
+        if (header == null) {
+            return -1;
+        }
+        String value = header.getValue().trim();
+        try {
+            return Math.max(0, Long.parseLong(value) * 1000);
+        } catch (NumberFormatException e) {
+            Date date = DateUtils.parseDate(value);
+            return date == null ? -1 : Math.max(0, date.getTime() - System.currentTimeMillis());
+        }
+    }
+
+    /**
+     * Notify the listener about a request which is given up
+     *
+     * @param event the last failed attempt
+     */
+    private void notifyGiveUp(RetryEvent event) {
+        if (this.listener != null) {
+            this.listener.onGiveUp(event);
+        }
+    }
+}
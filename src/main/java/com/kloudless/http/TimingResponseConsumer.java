@@ -0,0 +1,79 @@
+package com.kloudless.http;
+
+import java.io.IOException;
+import org.apache.http.HttpException;
+import org.apache.http.HttpResponse;
+import org.apache.http.nio.ContentDecoder;
+import org.apache.http.nio.IOControl;
+import org.apache.http.nio.protocol.HttpAsyncResponseConsumer;
+import org.apache.http.protocol.HttpContext;
+
+/**
+ * TimingResponseConsumer hands a response to another consumer and records in a RequestEvent when
+ * its status line and headers arrived, the time to first byte of a non-blocking request, and
+ * when its body was received.
+ *
+ * @param <T> the type of the result of the wrapped consumer
+ */
+public class TimingResponseConsumer<T> implements HttpAsyncResponseConsumer<T> {
+    private final HttpAsyncResponseConsumer<T> consumer;
+    private final RequestEvent event;
+
+    /**
+     * Constructor of TimingResponseConsumer
+     *
+     * @param consumer the consumer of the response
+     * @param event    the event of the request
+     */
+    public TimingResponseConsumer(HttpAsyncResponseConsumer<T> consumer, RequestEvent event) {
+        this.consumer = consumer;
+        this.event = event;
+    }
+
+    @Override
+    public void responseReceived(HttpResponse response) throws IOException, HttpException {
+        this.event.responseReceived(response);
+        this.consumer.responseReceived(response);
+    }
+
+    @Override
+    public void consumeContent(ContentDecoder decoder, IOControl ioControl) throws IOException {
+        this.consumer.consumeContent(decoder, ioControl);
+    }
+
+    @Override
+    public void responseCompleted(HttpContext context) {
+        this.event.responseCompleted();
+        this.consumer.responseCompleted(context);
+    }
+
+    @Override
+    public void failed(Exception e) {
+        this.consumer.failed(e);
+    }
+
+    @Override
+    public Exception getException() {
+        return this.consumer.getException();
+    }
+
+    @Override
+    public T getResult() {
+        return this.consumer.getResult();
+    }
+
+    @Override
+    public boolean isDone() {
+        return this.consumer.isDone();
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.consumer.close();
+    }
+
+    @Override
+    public boolean cancel() {
+        return this.consumer.cancel();
+    }
+}
@@ -0,0 +1,72 @@
+package com.kloudless.http;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+import org.apache.http.HttpEntity;
+import org.apache.http.entity.ContentType;
+
+/**
+ * TransferBuffers hands out one fixed-size buffer per thread for copying response bodies, so
+ * copying a download never allocates memory in proportion to its size.
+ */
+public class TransferBuffers {
+    /**
+     * The size of the buffers
+     */
+    public static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * The number of bytes of an error response body kept for the exception message
+     */
+    public static final int ERROR_BODY_LIMIT = 8192;
+
+    private static final ThreadLocal<byte[]> buffers =
+            ThreadLocal.withInitial(() -> new byte[BUFFER_SIZE]);
+
+    private TransferBuffers() {
+
+    }
+
+    /**
+     * Get the buffer of the current thread. It must not be kept after the copy is done.
+     *
+     * @return byte[] the buffer
+     */
+    public static byte[] get() {
+        return buffers.get();
+    }
+
+    /**
+     * Read the beginning of an error response body. The rest of the body is not read and the
+     * stream is left open, the caller closes the response so a large body is not drained.
+     *
+     * @param entity the entity of the error response
+     * @return String the body, shortened to ERROR_BODY_LIMIT bytes
+     * @throws IOException Error when the body could not be read
+     */
+    public static String readErrorBody(HttpEntity entity) throws IOException {
+        InputStream in = entity.getContent();
+        if (in == null) {
+            return "";
+        }
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        byte[] buffer = get();
+        boolean truncated = false;
+        int read;
+        while ((read = in.read(buffer, 0,
+                Math.min(buffer.length, ERROR_BODY_LIMIT - body.size()))) > 0) {
+            body.write(buffer, 0, read);
+            if (body.size() >= ERROR_BODY_LIMIT) {
+                truncated = in.read() != -1;
+                break;
+            }
+        }
+        Charset charset = Optional.ofNullable(ContentType.get(entity))
+                .map(ContentType::getCharset).orElse(StandardCharsets.UTF_8);
+        return new String(body.toByteArray(), charset) + (truncated ? "..." : "");
+    }
+}
@@ -0,0 +1,61 @@
+package com.kloudless.http;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * TransferStatistics counts the response body bytes received on the wire and the bytes handed
+ * to the caller after decompression, to measure the bandwidth saved by content compression.
+ */
+public class TransferStatistics {
+    private final LongAdder wireBytes = new LongAdder();
+    private final LongAdder decodedBytes = new LongAdder();
+    private final LongAdder compressedResponses = new LongAdder();
+
+    /**
+     * Get the number of response body bytes received on the wire
+     *
+     * @return long number of bytes before decompression
+     */
+    public long getWireBytes() {
+        return this.wireBytes.sum();
+    }
+
+    /**
+     * Get the number of response body bytes read by the caller
+     *
+     * @return long number of bytes after decompression
+     */
+    public long getDecodedBytes() {
+        return this.decodedBytes.sum();
+    }
+
+    /**
+     * Get the number of responses which were sent compressed
+     *
+     * @return long number of compressed responses
+     */
+    public long getCompressedResponses() {
+        return this.compressedResponses.sum();
+    }
+
+    /**
+     * Reset all counters to zero
+     */
+    public void reset() {
+        this.wireBytes.reset();
+        this.decodedBytes.reset();
+        this.compressedResponses.reset();
+    }
+
+    void addWireBytes(long bytes) {
+        this.wireBytes.add(bytes);
+    }
+
+    void addDecodedBytes(long bytes) {
+        this.decodedBytes.add(bytes);
+    }
+
+    void addCompressedResponse() {
+        this.compressedResponses.increment();
+    }
+}
@@ -0,0 +1,560 @@
+package com.kloudless.http;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * TransportConfig holds the settings used to build the shared HttpTransport, such as connection
+ * pool limits, timeouts and keep-alive behaviour.
+ */
+public class TransportConfig {
+    private int maxTotalConnections = 200;
+    private int maxConnectionsPerRoute = 100;
+    private int connectTimeout = -1;
+    private int socketTimeout = -1;
+    private int connectionRequestTimeout = -1;
+    private long keepAliveDuration = 30000;
+    private long idleConnectionTimeout = 30000;
+    private long connectionTimeToLive = -1;
+    private int validateAfterInactivity = 2000;
+    private int ioThreadCount = Runtime.getRuntime().availableProcessors();
+    private Executor callbackExecutor = ForkJoinPool.commonPool();
+    private boolean responseCompression = true;
+    private boolean binaryCompression = false;
+    private RetryPolicy retryPolicy = new RetryPolicy();
+    private double accountRateLimit = 0;
+    private int accountBurst = 10;
+    private double apiKeyRateLimit = 0;
+    private int apiKeyBurst = 10;
+    private boolean adaptiveConcurrency = false;
+    private int initialConcurrencyLimit = 10;
+    private int maxConcurrencyLimit = 100;
+    private double latencyTolerance = 2.0;
+    private int responseCacheSize = 0;
+    private int metadataCacheSize = 0;
+    private long metadataCacheTtl = 60000;
+    private boolean requestCoalescing = false;
+    private RequestListener requestListener;
+
+    public TransportConfig() {
+
+    }
+
+    /**
+     * Get the maximum number of pooled connections
+     *
+     * @return int maximum number of connections in total
+     */
+    public int getMaxTotalConnections() {
+        return this.maxTotalConnections;
+    }
+
+    /**
+     * Set the maximum number of pooled connections
+     *
+     * @param maxTotalConnections maximum number of connections in total
+     */
+    public void setMaxTotalConnections(int maxTotalConnections) {
+        this.maxTotalConnections = maxTotalConnections;
+    }
+
+    /**
+     * Get the maximum number of pooled connections per route
+     *
+     * @return int maximum number of connections per route
+     */
+    public int getMaxConnectionsPerRoute() {
+        return this.maxConnectionsPerRoute;
+    }
+
+    /**
+     * Set the maximum number of pooled connections per route. All API calls go to the same host,
+     * so this is usually close to the total limit.
+     *
+     * @param maxConnectionsPerRoute maximum number of connections per route
+     */
+    public void setMaxConnectionsPerRoute(int maxConnectionsPerRoute) {
+        this.maxConnectionsPerRoute = maxConnectionsPerRoute;
+    }
+
+    /**
+     * Get the connect timeout in milliseconds, -1 means the system default
+     *
+     * @return int connect timeout in milliseconds
+     */
+    public int getConnectTimeout() {
+        return this.connectTimeout;
+    }
+
+    /**
+     * Set the connect timeout in milliseconds, -1 means the system default
+     *
+     * @param connectTimeout connect timeout in milliseconds
+     */
+    public void setConnectTimeout(int connectTimeout) {
+        this.connectTimeout = connectTimeout;
+    }
+
+    /**
+     * Get the socket read timeout in milliseconds, -1 means the system default
+     *
+     * @return int socket timeout in milliseconds
+     */
+    public int getSocketTimeout() {
+        return this.socketTimeout;
+    }
+
+    /**
+     * Set the socket read timeout in milliseconds, -1 means the system default
+     *
+     * @param socketTimeout socket timeout in milliseconds
+     */
+    public void setSocketTimeout(int socketTimeout) {
+        this.socketTimeout = socketTimeout;
+    }
+
+    /**
+     * Get how long to wait for a connection from the pool in milliseconds, -1 means forever
+     *
+     * @return int connection request timeout in milliseconds
+     */
+    public int getConnectionRequestTimeout() {
+        return this.connectionRequestTimeout;
+    }
+
+    /**
+     * Set how long to wait for a connection from the pool in milliseconds, -1 means forever
+     *
+     * @param connectionRequestTimeout connection request timeout in milliseconds
+     */
+    public void setConnectionRequestTimeout(int connectionRequestTimeout) {
+        this.connectionRequestTimeout = connectionRequestTimeout;
+    }
+
+    /**
+     * Get the longest time in milliseconds a connection is kept alive when the server does not
+     * send a shorter Keep-Alive timeout
+     *
+     * @return long keep-alive duration in milliseconds
+     */
+    public long getKeepAliveDuration() {
+        return this.keepAliveDuration;
+    }
+
+    /**
+     * Set the longest time in milliseconds a connection is kept alive when the server does not
+     * send a shorter Keep-Alive timeout
+     *
+     * @param keepAliveDuration keep-alive duration in milliseconds
+     */
+    public void setKeepAliveDuration(long keepAliveDuration) {
+        this.keepAliveDuration = keepAliveDuration;
+    }
+
+    /**
+     * Get the idle time in milliseconds after which pooled connections are evicted
+     *
+     * @return long idle connection timeout in milliseconds
+     */
+    public long getIdleConnectionTimeout() {
+        return this.idleConnectionTimeout;
+    }
+
+    /**
+     * Set the idle time in milliseconds after which pooled connections are evicted
+     *
+     * @param idleConnectionTimeout idle connection timeout in milliseconds
+     */
+    public void setIdleConnectionTimeout(long idleConnectionTimeout) {
+        this.idleConnectionTimeout = idleConnectionTimeout;
+    }
+
+    /**
+     * Get the total time to live of a pooled connection in milliseconds, -1 means no limit
+     *
+     * @return long connection time to live in milliseconds
+     */
+    public long getConnectionTimeToLive() {
+        return this.connectionTimeToLive;
+    }
+
+    /**
+     * Set the total time to live of a pooled connection in milliseconds, -1 means no limit
+     *
+     * @param connectionTimeToLive connection time to live in milliseconds
+     */
+    public void setConnectionTimeToLive(long connectionTimeToLive) {
+        this.connectionTimeToLive = connectionTimeToLive;
+    }
+
+    /**
+     * Get the inactivity period in milliseconds after which a pooled connection is validated
+     * before it is leased again
+     *
+     * @return int inactivity period in milliseconds
+     */
+    public int getValidateAfterInactivity() {
+        return this.validateAfterInactivity;
+    }
+
+    /**
+     * Set the inactivity period in milliseconds after which a pooled connection is validated
+     * before it is leased again
+     *
+     * @param validateAfterInactivity inactivity period in milliseconds
+     */
+    public void setValidateAfterInactivity(int validateAfterInactivity) {
+        this.validateAfterInactivity = validateAfterInactivity;
+    }
+
+    /**
+     * Get the number of I/O dispatch threads used by the asynchronous requests
+     *
+     * @return int number of I/O threads
+     */
+    public int getIoThreadCount() {
+        return this.ioThreadCount;
+    }
+
+    /**
+     * Set the number of I/O dispatch threads used by the asynchronous requests
+     *
+     * @param ioThreadCount number of I/O threads
+     */
+    public void setIoThreadCount(int ioThreadCount) {
+        this.ioThreadCount = ioThreadCount;
+    }
+
+    /**
+     * Get the executor which parses the responses of asynchronous requests
+     *
+     * @return Executor the callback executor
+     */
+    public Executor getCallbackExecutor() {
+        return this.callbackExecutor;
+    }
+
+    /**
+     * Set the executor which parses the responses of asynchronous requests, so the parsing never
+     * runs on the I/O threads. The default is the common ForkJoinPool.
+     *
+     * @param callbackExecutor the callback executor
+     */
+    public void setCallbackExecutor(Executor callbackExecutor) {
+        this.callbackExecutor = callbackExecutor;
+    }
+
+    /**
+     * Whether gzip and deflate compressed responses are requested from JSON endpoints
+     *
+     * @return boolean true if compression is requested
+     */
+    public boolean isResponseCompression() {
+        return this.responseCompression;
+    }
+
+    /**
+     * Request gzip and deflate compressed responses from JSON endpoints, the responses are
+     * decompressed while they are read. The default is true.
+     *
+     * @param responseCompression true to request compression
+     */
+    public void setResponseCompression(boolean responseCompression) {
+        this.responseCompression = responseCompression;
+    }
+
+    /**
+     * Whether compressed responses are requested by getBinary
+     *
+     * @return boolean true if compression is requested for binary downloads
+     */
+    public boolean isBinaryCompression() {
+        return this.binaryCompression;
+    }
+
+    /**
+     * Request compressed responses for binary downloads made with getBinary. The default is false,
+     * as file contents are often compressed already.
+     *
+     * @param binaryCompression true to request compression for binary downloads
+     */
+    public void setBinaryCompression(boolean binaryCompression) {
+        this.binaryCompression = binaryCompression;
+    }
+
+    /**
+     * Get the retry policy used by clients which have no retry policy of their own
+     *
+     * @return RetryPolicy the default retry policy
+     */
+    public RetryPolicy getRetryPolicy() {
+        return this.retryPolicy;
+    }
+
+    /**
+     * Set the retry policy used by clients which have no retry policy of their own. The retry
+     * budget is shared by all those clients. Use RetryPolicy.none() to disable retries.
+     *
+     * @param retryPolicy the default retry policy
+     */
+    public void setRetryPolicy(RetryPolicy retryPolicy) {
+        this.retryPolicy = retryPolicy;
+    }
+
+    /**
+     * Get the number of requests per second allowed for each account, 0 means no limit
+     *
+     * @return double requests per second and account
+     */
+    public double getAccountRateLimit() {
+        return this.accountRateLimit;
+    }
+
+    /**
+     * Set the number of requests per second allowed for each account. Requests beyond the limit
+     * wait until they are allowed instead of being rejected by the server. The default is 0,
+     * which means no limit.
+     *
+     * @param accountRateLimit requests per second and account
+     */
+    public void setAccountRateLimit(double accountRateLimit) {
+        this.accountRateLimit = accountRateLimit;
+    }
+
+    /**
+     * Get the number of requests an account may send at once after an idle period
+     *
+     * @return int the burst size of each account
+     */
+    public int getAccountBurst() {
+        return this.accountBurst;
+    }
+
+    /**
+     * Set the number of requests an account may send at once after an idle period. The default
+     * is 10.
+     *
+     * @param accountBurst the burst size of each account
+     */
+    public void setAccountBurst(int accountBurst) {
+        this.accountBurst = accountBurst;
+    }
+
+    /**
+     * Get the number of requests per second allowed for each API key, 0 means no limit
+     *
+     * @return double requests per second and API key
+     */
+    public double getApiKeyRateLimit() {
+        return this.apiKeyRateLimit;
+    }
+
+    /**
+     * Set the number of requests per second allowed for each API key, shared by all accounts
+     * accessed with the key. Requests beyond the limit wait until they are allowed. The default
+     * is 0, which means no limit.
+     *
+     * @param apiKeyRateLimit requests per second and API key
+     */
+    public void setApiKeyRateLimit(double apiKeyRateLimit) {
+        this.apiKeyRateLimit = apiKeyRateLimit;
+    }
+
+    /**
+     * Get the number of requests an API key may send at once after an idle period
+     *
+     * @return int the burst size of each API key
+     */
+    public int getApiKeyBurst() {
+        return this.apiKeyBurst;
+    }
+
+    /**
+     * Set the number of requests an API key may send at once after an idle period. The default
+     * is 10.
+     *
+     * @param apiKeyBurst the burst size of each API key
+     */
+    public void setApiKeyBurst(int apiKeyBurst) {
+        this.apiKeyBurst = apiKeyBurst;
+    }
+
+    /**
+     * Whether the number of requests in flight is adapted to the observed latency
+     *
+     * @return boolean true if adaptive concurrency is enabled
+     */
+    public boolean isAdaptiveConcurrency() {
+        return this.adaptiveConcurrency;
+    }
+
+    /**
+     * Adapt the number of requests in flight to the observed latency, separately for each
+     * service type such as storage, cal or crm. The limit grows while the latency stays flat and
+     * is cut when the latency rises or the server answers with 429 or 503, requests beyond it wait
+     * for a slot. The default is false.
+     *
+     * @param adaptiveConcurrency true to enable adaptive concurrency
+     */
+    public void setAdaptiveConcurrency(boolean adaptiveConcurrency) {
+        this.adaptiveConcurrency = adaptiveConcurrency;
+    }
+
+    /**
+     * Get the concurrency limit of a service type before any latency has been observed
+     *
+     * @return int the initial concurrency limit
+     */
+    public int getInitialConcurrencyLimit() {
+        return this.initialConcurrencyLimit;
+    }
+
+    /**
+     * Set the concurrency limit of a service type before any latency has been observed. The
+     * default is 10.
+     *
+     * @param initialConcurrencyLimit the initial concurrency limit
+     */
+    public void setInitialConcurrencyLimit(int initialConcurrencyLimit) {
+        this.initialConcurrencyLimit = initialConcurrencyLimit;
+    }
+
+    /**
+     * Get the highest concurrency limit of a service type
+     *
+     * @return int the maximum concurrency limit
+     */
+    public int getMaxConcurrencyLimit() {
+        return this.maxConcurrencyLimit;
+    }
+
+    /**
+     * Set the highest concurrency limit of a service type. The default is 100, the connection
+     * pool limits still apply.
+     *
+     * @param maxConcurrencyLimit the maximum concurrency limit
+     */
+    public void setMaxConcurrencyLimit(int maxConcurrencyLimit) {
+        this.maxConcurrencyLimit = maxConcurrencyLimit;
+    }
+
+    /**
+     * Get the multiple of the baseline latency above which the concurrency limit is cut
+     *
+     * @return double the latency tolerance
+     */
+    public double getLatencyTolerance() {
+        return this.latencyTolerance;
+    }
+
+    /**
+     * Set the multiple of the baseline latency above which the concurrency limit is cut. The
+     * baseline is the lowest average latency observed for the service type. The default is 2.0.
+     *
+     * @param latencyTolerance the latency tolerance
+     */
+    public void setLatencyTolerance(double latencyTolerance) {
+        this.latencyTolerance = latencyTolerance;
+    }
+
+    /**
+     * Get the maximum number of GET responses kept for revalidation, 0 means no cache
+     *
+     * @return int the maximum number of cached responses
+     */
+    public int getResponseCacheSize() {
+        return this.responseCacheSize;
+    }
+
+    /**
+     * Set the maximum number of GET responses kept for revalidation. Cached responses are
+     * requested with If-None-Match and If-Modified-Since, and reused if the server answers 304
+     * Not Modified. The least recently used response is evicted once the cache is full. The
+     * default is 0, which disables the cache.
+     *
+     * @param responseCacheSize the maximum number of cached responses
+     */
+    public void setResponseCacheSize(int responseCacheSize) {
+        this.responseCacheSize = responseCacheSize;
+    }
+
+    /**
+     * Get the maximum number of resources kept in the metadata cache, 0 means no cache
+     *
+     * @return int the maximum number of cached resources
+     */
+    public int getMetadataCacheSize() {
+        return this.metadataCacheSize;
+    }
+
+    /**
+     * Set the maximum number of resources kept in the metadata cache. The metadata of files,
+     * folders and other single resources is cached from GET responses and lists, and returned
+     * without a request until it expires or the resource is modified with PATCH, PUT or DELETE
+     * through this library. The default is 0, which disables the cache.
+     *
+     * @param metadataCacheSize the maximum number of cached resources
+     */
+    public void setMetadataCacheSize(int metadataCacheSize) {
+        this.metadataCacheSize = metadataCacheSize;
+    }
+
+    /**
+     * Get how long a resource is kept in the metadata cache in milliseconds
+     *
+     * @return long the time to live in milliseconds
+     */
+    public long getMetadataCacheTtl() {
+        return this.metadataCacheTtl;
+    }
+
+    /**
+     * Set how long a resource is kept in the metadata cache in milliseconds. Changes made by
+     * others may be seen this much later. The default is 60000.
+     *
+     * @param metadataCacheTtl the time to live in milliseconds
+     */
+    public void setMetadataCacheTtl(long metadataCacheTtl) {
+        this.metadataCacheTtl = metadataCacheTtl;
+    }
+
+    /**
+     * Whether identical concurrent GET requests share one http call
+     *
+     * @return boolean true if requests are coalesced
+     */
+    public boolean isRequestCoalescing() {
+        return this.requestCoalescing;
+    }
+
+    /**
+     * Let identical concurrent GET requests of JSON responses share one http call. A request
+     * sent while an identical one, with the same URL and headers, is in flight gets a copy of its
+     * result or its error. The default is false.
+     *
+     * @param requestCoalescing true to coalesce requests
+     */
+    public void setRequestCoalescing(boolean requestCoalescing) {
+        this.requestCoalescing = requestCoalescing;
+    }
+
+    /**
+     * Get the listener notified about every http transaction
+     *
+     * @return RequestListener the listener, or null
+     */
+    public RequestListener getRequestListener() {
+        return this.requestListener;
+    }
+
+    /**
+     * Set the listener notified about every http transaction with its timings, sizes and
+     * outcome, e.g. a {@link RequestMetrics}. Nothing is measured while it is null, the default,
+     * unless a flight recording enables the events of {@link FlightEvents}.
+     *
+     * @param requestListener the listener, or null
+     */
+    public void setRequestListener(RequestListener requestListener) {
+        this.requestListener = requestListener;
+    }
+}
@@ -0,0 +1,104 @@
+package com.kloudless.models;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import com.kloudless.RequestTemplate;
+
+/**
+ * RequestContext keeps the url, headers and query parameters of one http request. It is shared by
+ * the response object and every Resource parsed from the same response, so the items of a page
+ * do not each carry their own copies.
+ */
+public final class RequestContext {
+    private final String url;
+    private final String path;
+    private final Map<String, Object> headers;
+    private final Map<String, Object> queryParameters;
+    private volatile RequestTemplate requestTemplate;
+
+    /**
+     * Constructor of RequestContext
+     * 
+     * @param url     The url of the request, including the query string
+     * @param headers The headers of the request
+     */
+    public RequestContext(String url, Map<String, Object> headers) {
+        this.url = url;
+        this.headers = headers;
+        int index = url.indexOf('?');
+        if (index != -1) {
+            this.path = url.substring(0, index);
+            this.queryParameters = parseQueryString(url.substring(index + 1));
+        } else {
+            this.path = url;
+            this.queryParameters = Collections.emptyMap();
+        }
+    }
+
+    /**
+     * Get the url of the request, including the query string
+     * 
+     * @return String url
+     */
+    public String getUrl() {
+        return this.url;
+    }
+
+    /**
+     * Get the url of the request without the query string
+     * 
+     * @return String url path
+     */
+    public String getPath() {
+        return this.path;
+    }
+
+    /**
+     * Get the headers of the request
+     * 
+     * @return Map key, value of http headers
+     */
+    public Map<String, Object> getHeaders() {
+        return this.headers;
+    }
+
+    /**
+     * Get the query parameters of the request
+     * 
+     * @return Map, key, value of http query string
+     */
+    public Map<String, Object> getQueryParameters() {
+        return this.queryParameters;
+    }
+
+    /**
+     * Get the template of the requests made by the objects sharing this context, it is prepared
+     * on first use
+     * 
+     * @return RequestTemplate the template prepared from the headers and query parameters
+     */
+    public RequestTemplate getRequestTemplate() {
+        RequestTemplate template = this.requestTemplate;
+        if (template == null) {
+            template = new RequestTemplate(this.headers, this.queryParameters);
+            this.requestTemplate = template;
+        }
+        return template;
+    }
+
+    /**
+     * Parse the query string to key, value pair of query parameters
+     * 
+     * @param queryString the query string without the leading question mark
+     * @return Map the key, value pairs of query parameters
+     */
+    private static Map<String, Object> parseQueryString(String queryString) {
+        Map<String, Object> parameters = new HashMap<String, Object>();
+        for (String param : queryString.split("&")) {
+            String[] pair = param.split("=", 2);
+            parameters.put(pair[0], pair.length > 1 ? pair[1] : "");
+        }
+        return Collections.unmodifiableMap(parameters);
+    }
+}
@@ -15,6 +15,8 @@ public class Resource extends ResponseBase {
 
     private JsonObject data;
     private String id;
+    private String method;
+    private boolean isListUrl;
 
     /**
      * Constructor of Resource
@@ -26,10 +28,45 @@ public class Resource extends ResponseBase {
      */
     public Resource(JsonObject data, String url, Map<String, Object> defaultHeaders)
             throws URISyntaxException {
-        this.url = storeAndRemoveQueryString(url);
+        this.context = new RequestContext(url, defaultHeaders);
+        this.url = this.context.getPath();
         this.data = data;
         this.id = retrieveId(data);
-        this.defaultHeaders = defaultHeaders;
+    }
+
+    /**
+     * Constructor of Resource which shares the context of the request it was parsed from. The url
+     * of this resource is not generated until it is used.
+     * 
+     * @param data      JsonObject is from the Kloudless API Server.
+     * @param context   The context of the request which returned this resource.
+     * @param method    The http method of the request.
+     * @param isListUrl boolean of the request is querying list or object
+     */
+    public Resource(JsonObject data, RequestContext context, String method, boolean isListUrl) {
+        this.context = context;
+        this.data = data;
+        this.id = retrieveId(data);
+        this.method = method;
+        this.isListUrl = isListUrl;
+    }
+
+    /**
+     * Generate the url of this resource from the url of the request and its data
+     * 
+     * @return String url of this resource without any query string
+     * @throws IllegalStateException Error when the url cannot be generated from the data, e.g.
+     *                               an invalid id
+     */
+    @Override
+    protected String resolveUrl() {
+        try {
+            return generateResourceUrl(this.context.getPath(), this.data, this.method,
+                    this.isListUrl);
+        } catch (URISyntaxException e) {
+            throw new IllegalStateException(
+                    "Generate url of resource " + this.id + " failed, " + e.getMessage(), e);
+        }
     }
 
     /**
@@ -65,10 +102,11 @@ public class Resource extends ResponseBase {
      * To refrsh this resource will trigger a new http get and update the data attribute in
      * resource.
      * 
-     * @throws ApiException Error when any error from Kloudless API server.
+     * @throws ApiException Error when any error from Kloudless API server, or the url of this
+     *                      resource cannot be generated from its data.
      */
     public void refresh() throws ApiException {
-        Resource newResource = (Resource) super.get("");
+        Resource newResource = (Resource) getFromServer();
         this.data = newResource.getData();
     }
 }
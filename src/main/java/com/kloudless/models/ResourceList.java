@@ -1,12 +1,21 @@
 package com.kloudless.models;
 
-import java.net.URISyntaxException;
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import com.google.gson.JsonArray;
 import com.google.gson.JsonObject;
 import com.kloudless.exceptions.ApiException;
+import com.kloudless.http.FlightEvents;
+import com.kloudless.http.QueryBuilder;
 
 /**
  * ResourceList Class is extends from ResponseBase, it contains List of Resource Object which is the
@@ -18,6 +27,9 @@ public class ResourceList extends ResponseBase {
     private String cursor;
     private String nextPageCursor;
     private JsonObject data;
+    private boolean nextPageProbed = false;
+    private ResourceList probedNextPage;
+    private AtomicLong pageRequestCount = new AtomicLong();
 
     /**
      * Constructor of Resource
@@ -29,8 +41,18 @@ public class ResourceList extends ResponseBase {
      */
     public ResourceList(String url, Map<String, Object> defaultHeaders, List<Resource> resources,
             JsonObject data) {
-        this.url = this.storeAndRemoveQueryString(url);
-        this.defaultHeaders = defaultHeaders;
+        this(new RequestContext(url, defaultHeaders), resources, data);
+    }
+
+    /**
+     * Constructor of Resource which shares the context of the request it was parsed from.
+     * 
+     * @param context   The context of the request which returned this list.
+     * @param resources List of Resource is from the Kloudless API Server.
+     * @param data      JsonObject from Kloudless API Server.
+     */
+    public ResourceList(RequestContext context, List<Resource> resources, JsonObject data) {
+        this.context = context;
         this.resources = resources;
         this.page = data.get("page") == null || data.get("page").isJsonNull() ? null
                 : data.get("page").getAsString();
@@ -81,8 +103,66 @@ public class ResourceList extends ResponseBase {
      * @throws ApiException Error when get nextCursor failed.
      */
     private ResourceList tryNextPage(String cursor, String nextCursor) throws ApiException {
-        String url = cursor != null ? "?cursor=" + nextCursor : "?page=" + nextCursor;
-        return (ResourceList) super.get(url);
+        String url = (cursor != null ? "?cursor=" : "?page=") + QueryBuilder.encode(nextCursor);
+        this.pageRequestCount.incrementAndGet();
+        Object flightEvent = FlightEvents.beginPageFetch();
+        ResourceList nextPage = null;
+        try {
+            nextPage = (ResourceList) super.get(url);
+        } finally {
+            FlightEvents.commitPageFetch(flightEvent, getUrl(), nextCursor,
+                    nextPage == null ? -1 : nextPage.getResources().size(), false);
+        }
+        nextPage.pageRequestCount = this.pageRequestCount;
+        return nextPage;
+    }
+
+    /**
+     * This method is to get next page data without blocking the calling thread.
+     * 
+     * @param cursor     check cursor is existed
+     * @param nextCursor nextCursor in previous query
+     * @return CompletableFuture completed with the ResourceList of next page
+     */
+    private CompletableFuture<ResourceList> tryNextPageAsync(String cursor, String nextCursor) {
+        String url = (cursor != null ? "?cursor=" : "?page=") + QueryBuilder.encode(nextCursor);
+        this.pageRequestCount.incrementAndGet();
+        Object flightEvent = FlightEvents.beginPageFetch();
+        CompletableFuture<ResponseBase> future = super.getAsync(url);
+        if (flightEvent != null) {
+            future = future.whenComplete((response, e) -> FlightEvents.commitPageFetch(
+                    flightEvent, getUrl(), nextCursor,
+                    response instanceof ResourceList
+                            ? ((ResourceList) response).getResources().size()
+                            : -1,
+                    true));
+        }
+        return future.thenApply(response -> {
+            ResourceList nextPage = (ResourceList) response;
+            nextPage.pageRequestCount = this.pageRequestCount;
+            return nextPage;
+        });
+    }
+
+    /**
+     * Fetch the next page in the background, it follows the same pagination cases as
+     * {@link #getNextPageCursor()}.
+     * 
+     * @return CompletableFuture completed with the next page, or with null if there is no next
+     *         page. It completes exceptionally if the page, or the probe for it, failed.
+     */
+    private CompletableFuture<ResourceList> getNextPageAsync() {
+        if (this.nextPageCursor != null && !this.nextPageCursor.isEmpty()) {
+            return tryNextPageAsync(this.cursor, this.nextPageCursor);
+        } else if (this.nextPageProbed) {
+            return CompletableFuture.completedFuture(
+                    this.probedNextPage != null ? takeProbedNextPage() : null);
+        } else if (this.nextPageCursor == null && this.page != null && toInt(this.page) > 0) {
+            // a failed probe is reported where the page is consumed, not taken as the end
+            return tryNextPageAsync(this.cursor, String.valueOf(toInt(this.page) + 1))
+                    .thenApply(nextPage -> nextPage.getResources().isEmpty() ? null : nextPage);
+        }
+        return CompletableFuture.completedFuture(null);
     }
 
     /**
@@ -128,6 +208,9 @@ public class ResourceList extends ResponseBase {
      * 
      * 5. next_page is not in JsonObject and page is Integer, we could probably try to get next page
      * 
+     * In case 5 the next page is requested once and kept, getNextPage() returns it without another
+     * request. A probe which failed is not kept, it is sent again on the next call.
+     * 
      * @return String of next page cursor or null
      */
     public String getNextPageCursor() {
@@ -138,17 +221,18 @@ public class ResourceList extends ResponseBase {
             return null;
         } else {
             if (this.page != null && toInt(this.page) > 0) {
-                try {
-                    ResourceList nextPage =
-                            this.tryNextPage(this.cursor, String.valueOf(toInt(this.page) + 1));
-                    if (nextPage.getResources().size() > 0) {
-                        return String.valueOf(toInt(this.page) + 1);
-                    } else {
+                if (!this.nextPageProbed) {
+                    try {
+                        ResourceList nextPage = this.tryNextPage(this.cursor,
+                                String.valueOf(toInt(this.page) + 1));
+                        this.probedNextPage = nextPage.getResources().size() > 0 ? nextPage : null;
+                        this.nextPageProbed = true;
+                    } catch (ApiException e) {
+                        // a failed probe is not remembered, the next call probes again
                         return null;
                     }
-                } catch (ApiException e) {
-                    return null;
                 }
+                return this.probedNextPage != null ? String.valueOf(toInt(this.page) + 1) : null;
             } else {
                 return null;
             }
@@ -156,11 +240,42 @@ public class ResourceList extends ResponseBase {
     }
 
     /**
-     * the raw data originally from API server
+     * Hand the probed next page over once, so earlier pages do not keep later ones alive. The
+     * next page is still known to exist and is requested again if asked for a second time.
+     * 
+     * @return ResourceList the probed next page
+     */
+    private ResourceList takeProbedNextPage() {
+        ResourceList nextPage = this.probedNextPage;
+        this.probedNextPage = null;
+        this.nextPageCursor = String.valueOf(toInt(this.page) + 1);
+        return nextPage;
+    }
+
+    /**
+     * Get the number of page requests made by this ResourceList and all the pages retrieved from
+     * it, e.g. to check how many requests a full iteration made.
+     * 
+     * @return long number of page requests
+     */
+    public long getPageRequestCount() {
+        return this.pageRequestCount.get();
+    }
+
+    /**
+     * the raw data originally from API server. The objects array is rebuilt from the resources
+     * on first access when the response was read incrementally.
      * 
      * @return JsonObject raw data
      */
     public JsonObject getData() {
+        if (!this.data.has("objects")) {
+            JsonArray objects = new JsonArray();
+            for (Resource resource : this.resources) {
+                objects.add(resource.getData());
+            }
+            this.data.add("objects", objects);
+        }
         return this.data;
     }
 
@@ -186,6 +301,9 @@ public class ResourceList extends ResponseBase {
             if (!hasNextPage()) {
                 throw new ApiException("There is no next page.", null);
             }
+            if (this.probedNextPage != null) {
+                return takeProbedNextPage();
+            }
             return tryNextPage(this.cursor, this.getNextPageCursor());
         } catch (ApiException e) {
             throw new ApiException("Failed to retrieve next page.", e);
@@ -199,11 +317,36 @@ public class ResourceList extends ResponseBase {
      * @throws ApiException Error when any error from Kloudless API server.
      */
     public void refresh() throws ApiException {
-        ResourceList newResourceList = (ResourceList) super.get("");
-        this.data = newResourceList.getData();
+        ResourceList newResourceList = (ResourceList) getFromServer();
+        this.data = newResourceList.data;
+        this.resources = newResourceList.getResources();
         this.page = newResourceList.getPage();
         this.cursor = newResourceList.getCursor();
-        this.nextPageCursor = newResourceList.getNextPageCursor();
+        this.nextPageCursor = newResourceList.nextPageCursor;
+        this.nextPageProbed = false;
+        this.probedNextPage = null;
+    }
+
+    /**
+     * Create a Stream over the resources of this page and all following pages. Pages are
+     * requested lazily, so short-circuiting operations stop fetching as soon as they are done. A
+     * failed page request is thrown as UncheckedApiException.
+     * 
+     * @return A Stream of Resource objects
+     */
+    public Stream<Resource> stream() {
+        return stream(Long.MAX_VALUE);
+    }
+
+    /**
+     * Create a Stream over the resources of this page and all following pages with maximum
+     * limitaion.
+     * 
+     * @param maxGet specify the maximum number of resources in this stream
+     * @return A Stream of Resource objects
+     */
+    public Stream<Resource> stream(long maxGet) {
+        return StreamSupport.stream(new ResourceSpliterator(this, maxGet), false);
     }
 
     /**
@@ -224,18 +367,32 @@ public class ResourceList extends ResponseBase {
     public Iterator<Resource> getPageIterator(Long maxGet) {
         return new Iterator<Resource>() {
             private int index = 0;
+            private ResourceList localList = ResourceList.this;
             private List<Resource> localResources = resources;
-            private String curPage = page;
-            private String localCursor = cursor;
-            private String localNextPageCursor = getNextPageCursor();
-            private String localUrl = url;
             private long maxResource = maxGet;
             private long curTotal = 0;
+            private ApiException failure;
 
             @Override
             public boolean hasNext() {
-                return (index < localResources.size() || !(localNextPageCursor == null))
-                        && (curTotal < maxResource);
+                if (curTotal >= maxResource) {
+                    return false;
+                }
+                // pages of a cursor may be empty, the page after the last one always is
+                while (failure == null && index >= localResources.size()) {
+                    if (localList.getNextPageCursor() == null) {
+                        return false;
+                    }
+                    try {
+                        ResourceList tempResourceList = localList.getNextPage();
+                        localList = tempResourceList;
+                        localResources = tempResourceList.getResources();
+                        index = 0;
+                    } catch (ApiException e) {
+                        failure = e;
+                    }
+                }
+                return true;
             }
 
             @Override
@@ -243,38 +400,120 @@ public class ResourceList extends ResponseBase {
                 if (!hasNext()) {
                     throw new NoSuchElementException();
                 }
+                if (failure != null) {
+                    // the failure is reported once, the next call requests the page again
+                    ApiException e = failure;
+                    failure = null;
+                    throw new NoSuchElementException(String.format(
+                            "Get next failed, curTotal %s, page %s, index %s, url %s, reason %s",
+                            curTotal, localList.getPage(), index, localList.getUrl(),
+                            e.getMessage()));
+                }
                 curTotal++;
-                if (index < localResources.size()) {
-                    Resource resource = localResources.get(index);
-                    index++;
-                    return resource;
-                } else {
-                    try {
-                        ResourceList tempResourceList = getNextPageData();
-                        curPage = tempResourceList.getPage();
-                        localNextPageCursor = tempResourceList.getNextPageCursor();
-                        localResources = tempResourceList.getResources();
-                        localUrl = tempResourceList.getUrl();
-                        localCursor = tempResourceList.getCursor();
-                        index = 0;
-                        Resource resource = localResources.get(index);
-                        index++;
-                        return resource;
-                    } catch (ApiException | URISyntaxException | IndexOutOfBoundsException e) {
-                        throw new NoSuchElementException(String.format(
-                                "Get next failed, curTotal %s, page %s, index %s, url %s, reason %s",
-                                curTotal, curPage, index, localUrl, e.getMessage()));
+                Resource resource = localResources.get(index);
+                index++;
+                return resource;
+            }
+
+        };
+    }
+
+    /**
+     * Create an Iterator of Resource with maximum limitaion which fetches the following pages in
+     * the background while the current page is being consumed.
+     * 
+     * @param maxGet        specify the maximum number for this iterator
+     * @param prefetchDepth the maximum number of pages fetched ahead, 0 disables prefetching
+     * @return An Iterator of Resource objects
+     */
+    public Iterator<Resource> getPageIterator(Long maxGet, int prefetchDepth) {
+        if (prefetchDepth <= 0) {
+            return getPageIterator(maxGet);
+        }
+        return new PrefetchingIterator(maxGet, prefetchDepth);
+    }
+
+    /**
+     * Iterator of Resource which keeps up to prefetchDepth pages in flight. A page which failed to
+     * load is reported by next() once the iterator reaches it.
+     */
+    private class PrefetchingIterator implements Iterator<Resource> {
+        private final Deque<CompletableFuture<ResourceList>> pending =
+                new ArrayDeque<CompletableFuture<ResourceList>>();
+        private final long maxResource;
+        private final int prefetchDepth;
+        private CompletableFuture<ResourceList> tail;
+        private List<Resource> localResources = resources;
+        private String curPage = page;
+        private String localUrl = getUrl();
+        private int index = 0;
+        private long curTotal = 0;
+        private Throwable failure;
+
+        PrefetchingIterator(long maxResource, int prefetchDepth) {
+            this.maxResource = maxResource;
+            this.prefetchDepth = prefetchDepth;
+            this.tail = CompletableFuture.completedFuture(ResourceList.this);
+            fill();
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (curTotal >= maxResource) {
+                return false;
+            }
+            while (failure == null && index >= localResources.size()) {
+                CompletableFuture<ResourceList> head = pending.poll();
+                if (head == null) {
+                    return false;
+                }
+                try {
+                    ResourceList nextPage = head.join();
+                    if (nextPage == null) {
+                        pending.clear();
+                        return false;
                     }
+                    curPage = nextPage.getPage();
+                    localUrl = nextPage.getUrl();
+                    localResources = nextPage.getResources();
+                    index = 0;
+                    fill();
+                } catch (CompletionException e) {
+                    failure = e.getCause() != null ? e.getCause() : e;
                 }
             }
+            return true;
+        }
 
-            private ResourceList getNextPageData() throws URISyntaxException, ApiException {
-                if (!hasNext()) {
-                    throw new ApiException("There is no next page.", null);
-                }
-                return tryNextPage(localCursor, localNextPageCursor);
+        @Override
+        public Resource next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            if (failure != null) {
+                throw new NoSuchElementException(String.format(
+                        "Get next failed, curTotal %s, page %s, index %s, url %s, reason %s",
+                        curTotal, curPage, index, localUrl, failure.getMessage()));
             }
+            curTotal++;
+            Resource resource = localResources.get(index);
+            index++;
+            return resource;
+        }
 
-        };
+        /**
+         * Chain page requests until prefetchDepth pages are in flight or loaded.
+         */
+        private void fill() {
+            while (pending.size() < prefetchDepth) {
+                if (tail.isDone() && !tail.isCompletedExceptionally() && tail.join() == null) {
+                    return;
+                }
+                tail = tail.thenCompose(previous -> previous == null
+                        ? CompletableFuture.<ResourceList>completedFuture(null)
+                        : previous.getNextPageAsync());
+                pending.add(tail);
+            }
+        }
     }
 }
@@ -0,0 +1,107 @@
+package com.kloudless.models;
+
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import com.kloudless.exceptions.ApiException;
+import com.kloudless.exceptions.UncheckedApiException;
+
+/**
+ * Spliterator of Resource which walks the pages of a ResourceList lazily. A page is only requested
+ * when the resources already fetched are used up, and splitting hands out whole pages so they can
+ * be processed in parallel while the following pages are fetched.
+ */
+class ResourceSpliterator implements Spliterator<Resource> {
+    private static final int CHARACTERISTICS = ORDERED | NONNULL | IMMUTABLE;
+
+    private ResourceList currentPage;
+    private List<Resource> resources;
+    private int index = 0;
+    private long remaining;
+
+    /**
+     * Constructor of ResourceSpliterator
+     *
+     * @param firstPage the first page to traverse
+     * @param maxGet    the maximum number of resources to traverse
+     */
+    ResourceSpliterator(ResourceList firstPage, long maxGet) {
+        this.currentPage = firstPage;
+        this.resources = firstPage.getResources();
+        this.remaining = maxGet;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super Resource> action) {
+        if (this.remaining <= 0 || !ensureResources()) {
+            return false;
+        }
+        this.remaining--;
+        action.accept(this.resources.get(this.index++));
+        return true;
+    }
+
+    @Override
+    public void forEachRemaining(Consumer<? super Resource> action) {
+        while (this.remaining > 0 && ensureResources()) {
+            int end = (int) Math.min(this.resources.size(), this.index + this.remaining);
+            for (int i = this.index; i < end; i++) {
+                action.accept(this.resources.get(i));
+            }
+            this.remaining -= end - this.index;
+            this.index = end;
+        }
+    }
+
+    /**
+     * Split off the rest of the current page, fetching the next page first if the current one is
+     * used up.
+     *
+     * @return Spliterator over a page of resources, or null if there are no more resources
+     */
+    @Override
+    public Spliterator<Resource> trySplit() {
+        if (this.remaining <= 0 || !ensureResources()) {
+            return null;
+        }
+        int end = (int) Math.min(this.resources.size(), this.index + this.remaining);
+        List<Resource> prefix = this.resources.subList(this.index, end);
+        this.remaining -= end - this.index;
+        this.index = end;
+        return Spliterators.spliterator(prefix, CHARACTERISTICS);
+    }
+
+    @Override
+    public long estimateSize() {
+        return this.remaining;
+    }
+
+    @Override
+    public int characteristics() {
+        return CHARACTERISTICS;
+    }
+
+    /**
+     * Make sure there is a resource at the current index, fetching the following pages if needed.
+     *
+     * @return boolean false if there are no more resources
+     */
+    private boolean ensureResources() {
+        while (this.index >= this.resources.size()) {
+            if (this.currentPage.getNextPageCursor() == null) {
+                return false;
+            }
+            try {
+                this.currentPage = this.currentPage.getNextPage();
+            } catch (ApiException e) {
+                throw new UncheckedApiException(String.format(
+                        "Get next page failed, page %s, url %s, reason %s",
+                        this.currentPage.getPage(), this.currentPage.getUrl(), e.getMessage()), e);
+            }
+            this.resources = this.currentPage.getResources();
+            this.index = 0;
+        }
+        return true;
+    }
+}
@@ -1,18 +1,40 @@
 package com.kloudless.models;
 
-import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.stream.Collectors;
 import com.kloudless.BaseHttpClient;
+import com.kloudless.RequestTemplate;
+import com.kloudless.exceptions.ApiException;
 
 /**
  * Base class of Response data
  */
 public class ResponseBase extends BaseHttpClient {
+    private static final Map<String, Object> NO_CACHE_HEADERS =
+            Collections.<String, Object>singletonMap("Cache-Control", "no-cache");
+
     protected String url;
+    protected RequestContext context;
+
+    /**
+     * The headers are kept by the shared {@link RequestContext}, when a subclass sets this field
+     * it is used instead of the headers of the context.
+     * 
+     * @deprecated use {@link #getDefaultHeaders()} or a {@link RequestContext}
+     */
+    @Deprecated
     protected Map<String, Object> defaultHeaders;
-    protected Map<String, Object> defaultQueryParameters = new HashMap<String, Object>();
+
+    /**
+     * The query parameters are kept by the shared {@link RequestContext}, when a subclass sets this
+     * field, e.g. with {@link #storeAndRemoveQueryString(String)}, it is used instead of the query
+     * parameters of the context.
+     * 
+     * @deprecated use {@link #getDefaultQueryParameters()} or a {@link RequestContext}
+     */
+    @Deprecated
+    protected Map<String, Object> defaultQueryParameters;
 
     public ResponseBase() {
 
@@ -25,7 +47,7 @@ public class ResponseBase extends BaseHttpClient {
      */
     @Override
     public String getUrlPrefix() {
-        return this.url;
+        return this.getUrl();
     }
 
     /**
@@ -34,63 +56,112 @@ public class ResponseBase extends BaseHttpClient {
      * @return Map key, value of http headers
      */
     @Override
+    @SuppressWarnings("deprecation")
     public Map<String, Object> getDefaultHeaders() {
-        return this.defaultHeaders;
+        if (this.defaultHeaders != null || this.context == null) {
+            return this.defaultHeaders;
+        }
+        return this.context.getHeaders();
     }
 
     /**
-     * Get default query parameters
+     * Get default query parameters, they are shared with the other objects parsed from the same
+     * response and cannot be modified.
      * 
      * @return Map, key, value of http query string
      */
     @Override
+    @SuppressWarnings("deprecation")
     public Map<String, Object> getDefaultQueryParameters() {
-        return this.defaultQueryParameters;
+        if (this.defaultQueryParameters != null) {
+            return this.defaultQueryParameters;
+        }
+        if (this.context == null) {
+            this.defaultQueryParameters = new HashMap<String, Object>();
+            return this.defaultQueryParameters;
+        }
+        return this.context.getQueryParameters();
+    }
+
+    /**
+     * Get the template of the requests, it is shared with the other objects parsed from the same
+     * response. A subclass which sets the deprecated default fields gets a template prepared from
+     * them.
+     * 
+     * @return RequestTemplate the template of the request context
+     */
+    @Override
+    @SuppressWarnings("deprecation")
+    protected RequestTemplate getRequestTemplate() {
+        if (this.defaultHeaders != null || this.defaultQueryParameters != null
+                || this.context == null) {
+            return super.getRequestTemplate();
+        }
+        return this.context.getRequestTemplate();
     }
 
     /**
-     * Get URL
+     * Get URL, it is resolved on first use
      * 
      * @return String of URL of resource
+     * @throws IllegalStateException Error when the URL of a resource cannot be generated from its
+     *                               data, the http methods of this object throw it as well
      */
     public String getUrl() {
+        if (this.url == null) {
+            this.url = resolveUrl();
+        }
         return this.url;
     }
 
     /**
-     * Will remove query string from the url string and store them to defaultQueryParameters
+     * Resolve the URL of this object when it is used for the first time
      * 
-     * @param url url of http request
-     * @return String url without any query string
+     * @return String URL without any query string
+     * @throws IllegalStateException Error when the URL cannot be generated
      */
-    protected String storeAndRemoveQueryString(String url) {
-        if (url.indexOf("?") != -1) {
-            storeQueryParameters(url);
-            return getRidOfQueryString(url);
-        }
-        return url;
+    protected String resolveUrl() {
+        return this.context.getPath();
     }
 
     /**
-     * To remove query string from url string
+     * Request this object again from the server, which is what refresh does. The metadata cache
+     * is bypassed, while a response cached with validators is still revalidated, so an unchanged
+     * object is answered with 304 Not Modified.
      * 
-     * @param url url the original url string
-     * @return String url without any query string
+     * @return ResponseBase the current state of this object
+     * @throws ApiException Error when any error from Kloudless API server, or the URL of this
+     *                      object cannot be generated.
      */
-    private String getRidOfQueryString(String url) {
-        String[] urls = url.split("\\?");
-        return urls[0];
+    protected ResponseBase getFromServer() throws ApiException {
+        try {
+            getUrl();
+        } catch (IllegalStateException e) {
+            throw new ApiException(e.getMessage(), e);
+        }
+        return get("", NO_CACHE_HEADERS);
     }
 
     /**
-     * Store the query string to class variable named defaultQueryParameters
+     * Will remove query string from the url string and store them to defaultQueryParameters
      * 
-     * @param url url the original url string
+     * @param url url of http request
+     * @return String url without any query string
+     * @deprecated the query parameters are parsed once by {@link RequestContext}, pass the url to
+     *             a RequestContext and use {@link RequestContext#getPath()}
      */
-    private void storeQueryParameters(String url) {
-        String[] urls = url.split("\\?");
-        String[] queryString = urls[1].split("&");
-        this.defaultQueryParameters = Arrays.asList(queryString).stream()
-                .map(param -> param.split("=", 2)).collect(Collectors.toMap(a -> a[0], a -> a[1]));
+    @Deprecated
+    protected String storeAndRemoveQueryString(String url) {
+        int index = url.indexOf('?');
+        if (index == -1) {
+            return url;
+        }
+        Map<String, Object> parameters = new HashMap<String, Object>();
+        for (String param : url.substring(index + 1).split("&")) {
+            String[] pair = param.split("=", 2);
+            parameters.put(pair[0], pair.length > 1 ? pair[1] : "");
+        }
+        this.defaultQueryParameters = parameters;
+        return url.substring(0, index);
     }
 }
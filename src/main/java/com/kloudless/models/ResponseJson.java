@@ -23,9 +23,18 @@ public class ResponseJson extends ResponseBase {
      */
     public ResponseJson(JsonObject data, String url, Map<String, Object> defaultHeaders)
             throws URISyntaxException {
-        this.url = storeAndRemoveQueryString(url);
+        this(data, new RequestContext(url, defaultHeaders));
+    }
+
+    /**
+     * Constructor of ResponseJson which shares the context of the request it was parsed from.
+     * 
+     * @param data    JsonObject is from the Kloudless API Server.
+     * @param context The context of the request which returned this response.
+     */
+    public ResponseJson(JsonObject data, RequestContext context) {
+        this.context = context;
         this.data = data;
-        this.defaultHeaders = defaultHeaders;
     }
 
     /**
@@ -44,7 +53,7 @@ public class ResponseJson extends ResponseBase {
      * @throws ApiException Error when any error from Kloudless API server.
      */
     public void refresh() throws ApiException {
-        ResponseJson newResponse = (ResponseJson) super.get("");
+        ResponseJson newResponse = (ResponseJson) getFromServer();
         this.data = newResponse.getData();
     }
 }
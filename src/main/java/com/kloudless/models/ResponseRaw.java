@@ -1,16 +1,34 @@
 package com.kloudless.models;
 
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
 import java.util.Map;
+import com.kloudless.RequestTemplate;
+import com.kloudless.http.TransferBuffers;
+import org.apache.http.HttpEntity;
 import org.apache.http.HttpResponse;
 
 /**
  * ResourceRaw Class is extends from ResponseBase, it contains pure httpResponse which is the result
  * of any API operation from Kloudless API server. This class is for file downlaod or other types of
  * data other than JsonObject.
+ * <p>
+ * The response holds a pooled connection until its body is read to the end or the response is
+ * closed, so use it in a try-with-resources statement or copy the body with one of the
+ * transferTo methods, which close the response when they are done.
  */
-public class ResponseRaw extends ResponseBase {
+public class ResponseRaw extends ResponseBase implements Closeable {
 
     private HttpResponse data;
+    private RequestTemplate requestTemplate;
 
     /**
      * Constructor of Resource
@@ -20,9 +38,61 @@ public class ResponseRaw extends ResponseBase {
      * @param defaultHeaders Store the original headers for further http operations
      */
     public ResponseRaw(HttpResponse response, String url, Map<String, Object> defaultHeaders) {
+        this(response, new RequestContext(url, defaultHeaders));
+    }
+
+    /**
+     * Constructor of ResponseRaw which shares the context of the request it was returned from.
+     * 
+     * @param response Original httpResponse is from the Kloudless API Server.
+     * @param context  The context of the request which returned this response.
+     */
+    public ResponseRaw(HttpResponse response, RequestContext context) {
         this.data = response;
-        this.url = url;
-        this.defaultHeaders = defaultHeaders;
+        this.context = context;
+        this.url = context.getUrl();
+    }
+
+    /**
+     * Get URL, as before it is the url of the request including its query string
+     * 
+     * @return String of URL of the request
+     */
+    @Override
+    public String getUrl() {
+        return this.url;
+    }
+
+    /**
+     * Get default query parameters, they are part of the url of the response so there are none
+     * 
+     * @return Map, an empty map
+     */
+    @Override
+    @SuppressWarnings("deprecation")
+    public Map<String, Object> getDefaultQueryParameters() {
+        if (this.defaultQueryParameters != null) {
+            return this.defaultQueryParameters;
+        }
+        return Collections.emptyMap();
+    }
+
+    /**
+     * Get the template of the requests, the query parameters of the url are not added to it as
+     * they are part of the url already
+     * 
+     * @return RequestTemplate the template prepared from the headers
+     */
+    @Override
+    protected RequestTemplate getRequestTemplate() {
+        if (this.context == null || this.context.getQueryParameters().isEmpty()) {
+            return super.getRequestTemplate();
+        }
+        if (this.requestTemplate == null) {
+            this.requestTemplate =
+                    new RequestTemplate(getDefaultHeaders(), getDefaultQueryParameters());
+        }
+        return this.requestTemplate;
     }
 
     /**
@@ -34,4 +104,99 @@ public class ResponseRaw extends ResponseBase {
         return this.data;
     }
 
+    /**
+     * Copy the response body to the stream and close the response. The stream is not closed.
+     * 
+     * @param out the stream to write to
+     * @return long the number of bytes copied
+     * @throws IOException Error when reading the body or writing to the stream failed
+     */
+    public long transferTo(OutputStream out) throws IOException {
+        try {
+            InputStream in = getContent();
+            if (in == null) {
+                return 0;
+            }
+            byte[] buffer = TransferBuffers.get();
+            long total = 0;
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+                total += read;
+            }
+            return total;
+        } finally {
+            close();
+        }
+    }
+
+    /**
+     * Copy the response body to the channel and close the response. The channel is not closed.
+     * 
+     * @param out the channel to write to
+     * @return long the number of bytes copied
+     * @throws IOException Error when reading the body or writing to the channel failed
+     */
+    public long transferTo(WritableByteChannel out) throws IOException {
+        try {
+            InputStream in = getContent();
+            if (in == null) {
+                return 0;
+            }
+            byte[] buffer = TransferBuffers.get();
+            long total = 0;
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                ByteBuffer chunk = ByteBuffer.wrap(buffer, 0, read);
+                while (chunk.hasRemaining()) {
+                    out.write(chunk);
+                }
+                total += read;
+            }
+            return total;
+        } finally {
+            close();
+        }
+    }
+
+    /**
+     * Write the response body to a file and close the response. An existing file is overwritten.
+     * 
+     * @param target the path of the file
+     * @return long the number of bytes written
+     * @throws IOException Error when reading the body or writing the file failed
+     */
+    public long transferTo(Path target) throws IOException {
+        try (FileChannel channel = FileChannel.open(target, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            return transferTo(channel);
+        } finally {
+            close();
+        }
+    }
+
+    /**
+     * Release the connection of this response. If the body has been read to the end the
+     * connection is kept for reuse, otherwise it is closed so the rest of the body is never
+     * drained.
+     * 
+     * @throws IOException Error when closing the connection failed
+     */
+    @Override
+    public void close() throws IOException {
+        if (this.data instanceof Closeable) {
+            ((Closeable) this.data).close();
+        }
+    }
+
+    /**
+     * Get the stream of the response body
+     * 
+     * @return InputStream the body, or null if the response has none
+     * @throws IOException Error when the body could not be opened
+     */
+    private InputStream getContent() throws IOException {
+        HttpEntity entity = this.data.getEntity();
+        return entity == null ? null : entity.getContent();
+    }
 }
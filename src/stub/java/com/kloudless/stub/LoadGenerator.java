@@ -0,0 +1,249 @@
+package com.kloudless.stub;
+
+import java.util.Iterator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import com.kloudless.Account;
+import com.kloudless.Application;
+import com.kloudless.http.LatencyHistogram;
+import com.kloudless.models.ResourceList;
+import com.kloudless.models.ResponseBase;
+
+/**
+ * LoadGenerator drives an Account with blocking threads or with asynchronous calls for a while
+ * and reports the throughput and the latency percentiles. Without --base-url it starts a
+ * StubServer and targets it, the stub options set its behaviour.
+ *
+ * Usage: gradle loadtest -PloadArgs="--threads 16 --duration 30 --latency 20"
+ */
+public class LoadGenerator {
+    private static final String USAGE = "Usage: LoadGenerator [options]\n"
+            + "  --base-url URL      API to target, default an embedded stub server\n"
+            + "  --token TOKEN       bearer token of the account, default load-test\n"
+            + "  --threads N         blocking threads, default 8\n"
+            + "  --async N           asynchronous calls in flight instead of threads\n"
+            + "  --duration S        seconds to measure, default 10\n"
+            + "  --warmup S          seconds to run before measuring, default 2\n"
+            + "  --path PATH         path to request, default /storage/files/F1\n"
+            + "  --iterate           iterate all pages of the list at the path per operation\n"
+            + "stub server options:\n"
+            + "  --latency MS        latency of a response, default 0\n"
+            + "  --jitter MS         maximum random latency added, default 0\n"
+            + "  --list-size N       items of a list, default 250\n"
+            + "  --page-size N       items of a page, default 100\n"
+            + "  --pagination STYLE  NEXT_PAGE, CURSOR, PAGE_NUMBER or PAGE_STRING\n"
+            + "  --rate-limited R    share of requests answered with 429, default 0\n"
+            + "  --unavailable R     share of requests answered with 503, default 0\n";
+
+    // every error response is logged by the library, failed operations are counted instead
+    private static final Logger LIBRARY_LOGGER = Logger.getLogger("com.kloudless");
+
+    private final LatencyHistogram latencies = new LatencyHistogram();
+    private final LongAdder errors = new LongAdder();
+    private String baseUrl;
+    private String token = "load-test";
+    private int threads = 8;
+    private int async = 0;
+    private long duration = 10;
+    private long warmup = 2;
+    private String path = "/storage/files/F1";
+    private boolean iterate = false;
+    private volatile long measureFrom;
+    private volatile long measureUntil;
+
+    public static void main(String[] args) throws Exception {
+        LIBRARY_LOGGER.setLevel(Level.WARNING);
+        StubConfig stubConfig = new StubConfig();
+        LoadGenerator generator = new LoadGenerator();
+        try {
+            for (int i = 0; i < args.length; i++) {
+                String option = args[i];
+                if ("--help".equals(option)) {
+                    System.out.print(USAGE);
+                    return;
+                }
+                if ("--iterate".equals(option)) {
+                    generator.iterate = true;
+                    continue;
+                }
+                if (i + 1 >= args.length) {
+                    throw new IllegalArgumentException("Missing value of " + option);
+                }
+                String value = args[++i];
+                switch (option) {
+                    case "--base-url":
+                        generator.baseUrl = value;
+                        break;
+                    case "--token":
+                        generator.token = value;
+                        break;
+                    case "--threads":
+                        generator.threads = Integer.parseInt(value);
+                        break;
+                    case "--async":
+                        generator.async = Integer.parseInt(value);
+                        break;
+                    case "--duration":
+                        generator.duration = Long.parseLong(value);
+                        break;
+                    case "--warmup":
+                        generator.warmup = Long.parseLong(value);
+                        break;
+                    case "--path":
+                        generator.path = value;
+                        break;
+                    case "--latency":
+                        stubConfig.setLatency(Long.parseLong(value));
+                        break;
+                    case "--jitter":
+                        stubConfig.setLatencyJitter(Long.parseLong(value));
+                        break;
+                    case "--list-size":
+                        stubConfig.setListSize(Integer.parseInt(value));
+                        break;
+                    case "--page-size":
+                        stubConfig.setPageSize(Integer.parseInt(value));
+                        break;
+                    case "--pagination":
+                        stubConfig.setPaginationStyle(PaginationStyle.valueOf(value));
+                        break;
+                    case "--rate-limited":
+                        stubConfig.setTooManyRequestsRate(Double.parseDouble(value));
+                        break;
+                    case "--unavailable":
+                        stubConfig.setServiceUnavailableRate(Double.parseDouble(value));
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unknown option " + option);
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.print(USAGE);
+            System.exit(2);
+        }
+
+        StubServer server = null;
+        try {
+            if (generator.baseUrl == null) {
+                server = new StubServer(stubConfig);
+                server.start();
+                generator.baseUrl = server.getBaseUrl();
+            }
+            Application.setBaseUrl(generator.baseUrl);
+            generator.run(new Account(generator.token));
+            if (server != null) {
+                System.out.printf("stub server         %d requests, %d injected errors%n",
+                        server.getRequestCount(), server.getInjectedErrorCount());
+            }
+        } finally {
+            if (server != null) {
+                server.close();
+            }
+            Application.shutdown();
+        }
+    }
+
+    /**
+     * Run the load and print the report
+     *
+     * @param account the account to drive
+     * @throws InterruptedException Error when the calling thread is interrupted
+     */
+    private void run(Account account) throws InterruptedException {
+        this.measureFrom = System.nanoTime() + TimeUnit.SECONDS.toNanos(this.warmup);
+        this.measureUntil = this.measureFrom + TimeUnit.SECONDS.toNanos(this.duration);
+        System.out.printf("target              %s, %s%n", this.baseUrl, this.path);
+        System.out.printf("mode                %s%n", this.async > 0
+                ? this.async + " asynchronous calls in flight"
+                : this.threads + " threads");
+
+        if (this.async > 0) {
+            runAsync(account);
+        } else {
+            Thread[] workers = new Thread[this.threads];
+            for (int i = 0; i < workers.length; i++) {
+                workers[i] = new Thread(() -> runBlocking(account), "load-" + (i + 1));
+                workers[i].start();
+            }
+            for (Thread worker : workers) {
+                worker.join();
+            }
+        }
+        report();
+    }
+
+    private void runBlocking(Account account) {
+        while (System.nanoTime() < this.measureUntil) {
+            long start = System.nanoTime();
+            boolean failed = false;
+            try {
+                ResponseBase response = account.get(this.path);
+                if (this.iterate) {
+                    iterate(response);
+                }
+            } catch (Exception e) {
+                failed = true;
+            }
+            record(start, failed);
+        }
+    }
+
+    private void runAsync(Account account) throws InterruptedException {
+        Semaphore inFlight = new Semaphore(this.async);
+        while (System.nanoTime() < this.measureUntil) {
+            inFlight.acquire();
+            long start = System.nanoTime();
+            CompletableFuture<ResponseBase> future = account.getAsync(this.path);
+            if (this.iterate) {
+                future = future.thenApplyAsync(response -> {
+                    iterate(response);
+                    return response;
+                });
+            }
+            future.whenComplete((response, e) -> {
+                record(start, e != null);
+                inFlight.release();
+            });
+        }
+        inFlight.acquire(this.async);
+    }
+
+    private static void iterate(ResponseBase response) {
+        Iterator<?> iterator = ((ResourceList) response).getPageIterator();
+        while (iterator.hasNext()) {
+            iterator.next();
+        }
+    }
+
+    private void record(long start, boolean failed) {
+        if (start < this.measureFrom || start >= this.measureUntil) {
+            return;
+        }
+        this.latencies.record(System.nanoTime() - start);
+        if (failed) {
+            this.errors.increment();
+        }
+    }
+
+    private void report() {
+        long count = this.latencies.getCount();
+        System.out.printf("operations          %d in %d s, %d failed%n", count, this.duration,
+                this.errors.sum());
+        System.out.printf("throughput          %.1f ops/s%n", count / (double) this.duration);
+        System.out.printf("latency mean        %.3f ms%n", this.latencies.getMean() / 1000);
+        for (double percentile : new double[] {50, 90, 99, 99.9}) {
+            System.out.printf("latency p%-10s %.3f ms%n", percentile == 99.9 ? "99.9" :
+                    Integer.toString((int) percentile),
+                    this.latencies.getValueAtPercentile(percentile) / 1000.0);
+        }
+        System.out.printf("latency max         %.3f ms%n", this.latencies.getMax() / 1000.0);
+    }
+
+    private LoadGenerator() {
+    }
+}
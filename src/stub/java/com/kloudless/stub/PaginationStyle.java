@@ -0,0 +1,31 @@
+package com.kloudless.stub;
+
+/**
+ * PaginationStyle selects how the StubServer paginates lists, covering the cases handled by
+ * {@link com.kloudless.models.ResourceList#getNextPageCursor()}.
+ */
+public enum PaginationStyle {
+    /**
+     * Every page has the attribute next_page, holding the number of the next page, or null on
+     * the last page.
+     */
+    NEXT_PAGE,
+
+    /**
+     * Pages have an opaque cursor for the next page and no next_page, the page after the last
+     * one is empty.
+     */
+    CURSOR,
+
+    /**
+     * Pages have the page number only, the client probes the following page and the page after
+     * the last one is empty.
+     */
+    PAGE_NUMBER,
+
+    /**
+     * Pages have a page string only and no next_page, so the client cannot know a next page
+     * exists. Only the first page is ever retrieved.
+     */
+    PAGE_STRING
+}
@@ -0,0 +1,186 @@
+package com.kloudless.stub;
+
+/**
+ * StubConfig holds the behaviour of a StubServer: the latency of its responses, the size and
+ * pagination of its lists, the size of file contents and the share of requests answered with
+ * injected errors. It is read on every request, so it can be changed while the server runs.
+ */
+public class StubConfig {
+    private volatile long latency = 0;
+    private volatile long latencyJitter = 0;
+    private volatile int listSize = 250;
+    private volatile int pageSize = 100;
+    private volatile PaginationStyle paginationStyle = PaginationStyle.NEXT_PAGE;
+    private volatile long contentSize = 1024 * 1024;
+    private volatile double tooManyRequestsRate = 0;
+    private volatile double serviceUnavailableRate = 0;
+    private volatile int retryAfter = 1;
+
+    public StubConfig() {
+
+    }
+
+    /**
+     * Get the minimum time before a response is sent
+     *
+     * @return long the latency in milliseconds
+     */
+    public long getLatency() {
+        return this.latency;
+    }
+
+    /**
+     * Set the minimum time before a response is sent
+     *
+     * @param latency the latency in milliseconds
+     */
+    public void setLatency(long latency) {
+        this.latency = latency;
+    }
+
+    /**
+     * Get the maximum random time added to the latency of a response
+     *
+     * @return long the jitter in milliseconds
+     */
+    public long getLatencyJitter() {
+        return this.latencyJitter;
+    }
+
+    /**
+     * Set the maximum random time added to the latency of a response, the added time is
+     * uniformly distributed
+     *
+     * @param latencyJitter the jitter in milliseconds
+     */
+    public void setLatencyJitter(long latencyJitter) {
+        this.latencyJitter = latencyJitter;
+    }
+
+    /**
+     * Get the number of items of every list
+     *
+     * @return int the number of items
+     */
+    public int getListSize() {
+        return this.listSize;
+    }
+
+    /**
+     * Set the number of items of every list, across all its pages
+     *
+     * @param listSize the number of items
+     */
+    public void setListSize(int listSize) {
+        this.listSize = listSize;
+    }
+
+    /**
+     * Get the number of items of a page if the request has no page_size parameter
+     *
+     * @return int the page size
+     */
+    public int getPageSize() {
+        return this.pageSize;
+    }
+
+    /**
+     * Set the number of items of a page if the request has no page_size parameter
+     *
+     * @param pageSize the page size
+     */
+    public void setPageSize(int pageSize) {
+        this.pageSize = pageSize;
+    }
+
+    /**
+     * Get how lists are paginated
+     *
+     * @return PaginationStyle the pagination style
+     */
+    public PaginationStyle getPaginationStyle() {
+        return this.paginationStyle;
+    }
+
+    /**
+     * Set how lists are paginated
+     *
+     * @param paginationStyle the pagination style
+     */
+    public void setPaginationStyle(PaginationStyle paginationStyle) {
+        this.paginationStyle = paginationStyle;
+    }
+
+    /**
+     * Get the size of the contents of every file
+     *
+     * @return long the number of bytes
+     */
+    public long getContentSize() {
+        return this.contentSize;
+    }
+
+    /**
+     * Set the size of the contents of every file. The contents are generated while they are
+     * sent, so they may be larger than the heap.
+     *
+     * @param contentSize the number of bytes
+     */
+    public void setContentSize(long contentSize) {
+        this.contentSize = contentSize;
+    }
+
+    /**
+     * Get the share of requests answered with 429 Too Many Requests
+     *
+     * @return double the share between 0 and 1
+     */
+    public double getTooManyRequestsRate() {
+        return this.tooManyRequestsRate;
+    }
+
+    /**
+     * Set the share of requests answered with 429 Too Many Requests and a Retry-After header
+     *
+     * @param tooManyRequestsRate the share between 0 and 1
+     */
+    public void setTooManyRequestsRate(double tooManyRequestsRate) {
+        this.tooManyRequestsRate = tooManyRequestsRate;
+    }
+
+    /**
+     * Get the share of requests answered with 503 Service Unavailable
+     *
+     * @return double the share between 0 and 1
+     */
+    public double getServiceUnavailableRate() {
+        return this.serviceUnavailableRate;
+    }
+
+    /**
+     * Set the share of requests answered with 503 Service Unavailable
+     *
+     * @param serviceUnavailableRate the share between 0 and 1
+     */
+    public void setServiceUnavailableRate(double serviceUnavailableRate) {
+        this.serviceUnavailableRate = serviceUnavailableRate;
+    }
+
+    /**
+     * Get the Retry-After of injected 429 responses
+     *
+     * @return int the delay in seconds
+     */
+    public int getRetryAfter() {
+        return this.retryAfter;
+    }
+
+    /**
+     * Set the Retry-After of injected 429 responses, 0 to send none
+     *
+     * @param retryAfter the delay in seconds
+     */
+    public void setRetryAfter(int retryAfter) {
+        this.retryAfter = retryAfter;
+    }
+}
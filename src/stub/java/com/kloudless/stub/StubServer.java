@@ -0,0 +1,606 @@
+package com.kloudless.stub;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonNull;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.google.gson.JsonPrimitive;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * StubServer is an embeddable stand-in for the Kloudless API, to test and load-test code using
+ * Account without calling the real API. It listens on the loopback interface and answers the
+ * /v1 and /v2 endpoints of accounts, e.g. /v1/accounts/{id}/storage/folders/{id}/contents, with
+ * generated resources:
+ * <ul>
+ * <li>A path ending in a collection, e.g. storage/files or crm/leads, is a list for GET and
+ * creates a resource for POST. The contents of a folder are a list of files.</li>
+ * <li>A path ending in an id is a resource for GET, PATCH and PUT and is deleted for
+ * DELETE.</li>
+ * <li>The contents of a file, storage/files/{id}/contents, are binary and support Range
+ * requests.</li>
+ * <li>The multipart upload endpoints storage/multipart keep their sessions until they are
+ * completed or aborted.</li>
+ * <li>The pass-through endpoint raw answers an empty JSON object.</li>
+ * </ul>
+ * Latency, pagination and injected 429 and 503 errors are set with a StubConfig. Point the
+ * library at the server with {@code Application.setBaseUrl(server.getBaseUrl())}.
+ * <p>
+ * For load tests run the JVM with {@code -Dsun.net.httpserver.nodelay=true}. Without it the
+ * server writes headers and body in separate segments and every response waits for the delayed
+ * acknowledgement of the client.
+ */
+public class StubServer implements Closeable {
+    private static final Pattern ACCOUNT_PATH = Pattern.compile("/v[12]/accounts/([^/]+)(/.*)?");
+    private static final Pattern RANGE = Pattern.compile("bytes=(\\d*)-(\\d*)");
+    private static final String JSON = "application/json";
+    private static final long PART_SIZE = 5 * 1024 * 1024;
+    private static final int MAX_JSON_BODY = 1024 * 1024;
+    private static final byte[] CONTENT = new byte[64 * 1024];
+
+    static {
+        new Random(0).nextBytes(CONTENT);
+    }
+
+    private final StubConfig config;
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder injectedErrors = new LongAdder();
+    private final AtomicLong createdIds = new AtomicLong();
+    private final Map<String, JsonObject> uploadSessions =
+            new ConcurrentHashMap<String, JsonObject>();
+    private HttpServer server;
+    private ExecutorService executor;
+
+    /**
+     * Constructor of StubServer with the default StubConfig
+     */
+    public StubServer() {
+        this(new StubConfig());
+    }
+
+    /**
+     * Constructor of StubServer
+     *
+     * @param config the behaviour of the server
+     */
+    public StubServer(StubConfig config) {
+        this.config = config;
+    }
+
+    /**
+     * Start the server on a free port
+     *
+     * @throws IOException Error when the server could not be started
+     */
+    public void start() throws IOException {
+        start(0);
+    }
+
+    /**
+     * Start the server. Requests are handled on a pool of daemon threads which grows with the
+     * number of concurrent requests, so the latency of a response does not delay others.
+     *
+     * @param port the port to listen on, 0 for a free port
+     * @throws IOException Error when the server could not be started
+     */
+    public synchronized void start(int port) throws IOException {
+        if (this.server != null) {
+            throw new IllegalStateException("The stub server is running already.");
+        }
+        AtomicInteger threads = new AtomicInteger();
+        this.executor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "kloudless-stub-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.server = HttpServer
+                .create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 1024);
+        this.server.setExecutor(this.executor);
+        this.server.createContext("/", this::handle);
+        this.server.start();
+    }
+
+    /**
+     * Stop the server, requests being handled are aborted
+     */
+    @Override
+    public synchronized void close() {
+        if (this.server != null) {
+            this.server.stop(0);
+            this.executor.shutdownNow();
+            this.server = null;
+        }
+    }
+
+    /**
+     * Get the port the server listens on
+     *
+     * @return int the port
+     */
+    public synchronized int getPort() {
+        if (this.server == null) {
+            throw new IllegalStateException("The stub server is not running.");
+        }
+        return this.server.getAddress().getPort();
+    }
+
+    /**
+     * Get the base url of the server, to be set with Application.setBaseUrl
+     *
+     * @return String the base url, e.g. http://127.0.0.1:50123
+     */
+    public String getBaseUrl() {
+        return "http://" + InetAddress.getLoopbackAddress().getHostAddress() + ":" + getPort();
+    }
+
+    /**
+     * Get the behaviour of the server
+     *
+     * @return StubConfig the config
+     */
+    public StubConfig getConfig() {
+        return this.config;
+    }
+
+    /**
+     * Get the number of requests received, including those answered with an injected error
+     *
+     * @return long the number of requests
+     */
+    public long getRequestCount() {
+        return this.requests.sum();
+    }
+
+    /**
+     * Get the number of requests answered with an injected 429 or 503 error
+     *
+     * @return long the number of injected errors
+     */
+    public long getInjectedErrorCount() {
+        return this.injectedErrors.sum();
+    }
+
+    /**
+     * Get a byte of the contents of every file, to verify a download
+     *
+     * @param offset the position in the file
+     * @return byte the byte at the position
+     */
+    public static byte contentAt(long offset) {
+        return CONTENT[(int) (offset % CONTENT.length)];
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        this.requests.increment();
+        try {
+            JsonObject body = readBody(exchange);
+            delay();
+            if (!injectError(exchange)) {
+                route(exchange, body);
+            }
+        } catch (RuntimeException e) {
+            sendError(exchange, 500, "internal_error", e.toString());
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * Read the request body, JSON bodies are parsed and other bodies are discarded
+     *
+     * @param exchange the request
+     * @return JsonObject the JSON body, or an empty object
+     * @throws IOException Error when the body could not be read
+     */
+    private static JsonObject readBody(HttpExchange exchange) throws IOException {
+        String contentType = exchange.getRequestHeaders().getFirst("Content-Type");
+        boolean json = contentType != null && contentType.startsWith(JSON);
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        byte[] chunk = new byte[8192];
+        try (InputStream in = exchange.getRequestBody()) {
+            int read;
+            while ((read = in.read(chunk)) >= 0) {
+                if (json && buffer.size() < MAX_JSON_BODY) {
+                    buffer.write(chunk, 0, read);
+                }
+            }
+        }
+        if (buffer.size() > 0) {
+            try {
+                JsonElement element = new JsonParser()
+                        .parse(new String(buffer.toByteArray(), StandardCharsets.UTF_8));
+                if (element.isJsonObject()) {
+                    return element.getAsJsonObject();
+                }
+            } catch (JsonParseException e) {
+                // answered like a request without body
+            }
+        }
+        return new JsonObject();
+    }
+
+    private void delay() {
+        long latency = this.config.getLatency();
+        long jitter = this.config.getLatencyJitter();
+        if (jitter > 0) {
+            latency += ThreadLocalRandom.current().nextLong(jitter + 1);
+        }
+        if (latency > 0) {
+            try {
+                Thread.sleep(latency);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private boolean injectError(HttpExchange exchange) throws IOException {
+        double tooManyRequests = this.config.getTooManyRequestsRate();
+        double serviceUnavailable = this.config.getServiceUnavailableRate();
+        if (tooManyRequests <= 0 && serviceUnavailable <= 0) {
+            return false;
+        }
+        double random = ThreadLocalRandom.current().nextDouble();
+        if (random < tooManyRequests) {
+            if (this.config.getRetryAfter() > 0) {
+                exchange.getResponseHeaders().add("Retry-After",
+                        Integer.toString(this.config.getRetryAfter()));
+            }
+            sendError(exchange, 429, "too_many_requests", "Rate limit exceeded.");
+        } else if (random < tooManyRequests + serviceUnavailable) {
+            sendError(exchange, 503, "service_unavailable", "Service temporarily unavailable.");
+        } else {
+            return false;
+        }
+        this.injectedErrors.increment();
+        return true;
+    }
+
+    private void route(HttpExchange exchange, JsonObject body) throws IOException {
+        String method = exchange.getRequestMethod();
+        Matcher matcher = ACCOUNT_PATH.matcher(exchange.getRequestURI().getPath());
+        if (!matcher.matches()) {
+            sendError(exchange, 404, "not_found", "Unknown endpoint.");
+            return;
+        }
+        String account = matcher.group(1);
+        String[] path = matcher.group(2) == null || matcher.group(2).length() <= 1 ? new String[0]
+                : matcher.group(2).substring(1).split("/");
+
+        if (path.length == 0) {
+            JsonObject resource = new JsonObject();
+            resource.addProperty("id", account);
+            resource.addProperty("type", "account");
+            resource.addProperty("active", true);
+            sendJson(exchange, 200, resource);
+            return;
+        }
+        if (path.length == 1 && "raw".equals(path[0])) {
+            sendJson(exchange, 200, new JsonObject());
+            return;
+        }
+        String api = path[0];
+        if (path.length < 2
+                || !"storage".equals(api) && !"cal".equals(api) && !"crm".equals(api)) {
+            sendError(exchange, 404, "not_found", "Unknown endpoint.");
+            return;
+        }
+        if ("storage".equals(api) && "multipart".equals(path[1])) {
+            multipart(exchange, method, account, path, body);
+            return;
+        }
+
+        String last = path[path.length - 1];
+        if ("contents".equals(last) && path.length >= 4) {
+            if ("files".equals(path[path.length - 3])) {
+                contents(exchange, method, account, path[path.length - 2]);
+            } else if ("GET".equals(method)) {
+                list(exchange, account, api, "file");
+            } else {
+                sendError(exchange, 405, "method_not_allowed", "Method not allowed.");
+            }
+        } else if (path.length % 2 == 0) {
+            // api, collection, id, ..., collection
+            if ("GET".equals(method)) {
+                list(exchange, account, api, singular(last));
+            } else if ("POST".equals(method)) {
+                String id = idPrefix(singular(last)) + "n" + this.createdIds.incrementAndGet();
+                JsonObject resource = resource(account, api, singular(last), id);
+                merge(resource, body);
+                sendJson(exchange, 201, resource);
+            } else {
+                sendError(exchange, 405, "method_not_allowed", "Method not allowed.");
+            }
+        } else {
+            // api, collection, id
+            String type = singular(path[path.length - 2]);
+            if ("GET".equals(method) || "PATCH".equals(method) || "PUT".equals(method)) {
+                JsonObject resource = resource(account, api, type, last);
+                merge(resource, body);
+                sendJson(exchange, 200, resource);
+            } else if ("DELETE".equals(method)) {
+                exchange.sendResponseHeaders(204, -1);
+            } else {
+                sendError(exchange, 405, "method_not_allowed", "Method not allowed.");
+            }
+        }
+    }
+
+    /**
+     * Answer a page of a list, paginated as set in the config
+     */
+    private void list(HttpExchange exchange, String account, String api, String type)
+            throws IOException {
+        Map<String, String> query = query(exchange.getRequestURI().getRawQuery());
+        PaginationStyle style = this.config.getPaginationStyle();
+        int pageSize = Math.max(1, parseInt(query.get("page_size"), this.config.getPageSize()));
+        int page;
+        if (style == PaginationStyle.CURSOR) {
+            String cursor = query.get("cursor");
+            page = cursor != null && cursor.startsWith("c") ? parseInt(cursor.substring(1), 1)
+                    : 1;
+        } else {
+            String value = query.get("page");
+            page = value != null && value.startsWith("p") ? parseInt(value.substring(1), 1)
+                    : parseInt(value, 1);
+        }
+        page = Math.max(1, page);
+
+        int total = this.config.getListSize();
+        long from = Math.min((long) (page - 1) * pageSize, total);
+        int to = (int) Math.min(from + pageSize, total);
+        JsonArray objects = new JsonArray();
+        for (int i = (int) from; i < to; i++) {
+            objects.add(resource(account, api, type, idPrefix(type) + i));
+        }
+
+        JsonObject data = new JsonObject();
+        data.addProperty("type", "object_list");
+        data.addProperty("count", objects.size());
+        switch (style) {
+            case NEXT_PAGE:
+                data.addProperty("page", page);
+                data.add("next_page",
+                        to < total ? new JsonPrimitive(page + 1) : JsonNull.INSTANCE);
+                break;
+            case CURSOR:
+                data.addProperty("cursor", "c" + (page + 1));
+                break;
+            case PAGE_NUMBER:
+                data.addProperty("page", page);
+                break;
+            default:
+                data.addProperty("page", "p" + page);
+                break;
+        }
+        data.add("objects", objects);
+        sendJson(exchange, 200, data);
+    }
+
+    /**
+     * Answer the contents of a file, or a range of them
+     */
+    private void contents(HttpExchange exchange, String method, String account, String id)
+            throws IOException {
+        if ("PUT".equals(method)) {
+            sendJson(exchange, 200, resource(account, "storage", "file", id));
+            return;
+        }
+        if (!"GET".equals(method)) {
+            sendError(exchange, 405, "method_not_allowed", "Method not allowed.");
+            return;
+        }
+        long size = this.config.getContentSize();
+        String etag = "\"" + id + "-" + size + "\"";
+        exchange.getResponseHeaders().add("Content-Type", "application/octet-stream");
+        exchange.getResponseHeaders().add("Accept-Ranges", "bytes");
+        exchange.getResponseHeaders().add("ETag", etag);
+
+        long start = 0;
+        long length = size;
+        int status = 200;
+        String range = exchange.getRequestHeaders().getFirst("Range");
+        String ifRange = exchange.getRequestHeaders().getFirst("If-Range");
+        Matcher matcher = range == null ? null : RANGE.matcher(range.trim());
+        if (matcher != null && matcher.matches() && (ifRange == null || ifRange.equals(etag))) {
+            long end;
+            if (matcher.group(1).isEmpty()) {
+                // the last n bytes
+                start = Math.max(0, size - parseLong(matcher.group(2), 0));
+                end = size - 1;
+            } else {
+                start = parseLong(matcher.group(1), 0);
+                end = matcher.group(2).isEmpty() ? size - 1
+                        : Math.min(parseLong(matcher.group(2), size - 1), size - 1);
+            }
+            if (start >= size || end < start) {
+                exchange.getResponseHeaders().add("Content-Range", "bytes */" + size);
+                exchange.sendResponseHeaders(416, -1);
+                return;
+            }
+            status = 206;
+            length = end - start + 1;
+            exchange.getResponseHeaders().add("Content-Range",
+                    "bytes " + start + "-" + end + "/" + size);
+        }
+
+        exchange.sendResponseHeaders(status, length > 0 ? length : -1);
+        try (OutputStream out = exchange.getResponseBody()) {
+            long position = start;
+            long remaining = length;
+            while (remaining > 0) {
+                int offset = (int) (position % CONTENT.length);
+                int count = (int) Math.min(remaining, CONTENT.length - offset);
+                out.write(CONTENT, offset, count);
+                position += count;
+                remaining -= count;
+            }
+        }
+    }
+
+    /**
+     * Answer the multipart upload endpoints: storage/multipart,
+     * storage/multipart/{id}?part_number=n, storage/multipart/{id}/complete
+     */
+    private void multipart(HttpExchange exchange, String method, String account, String[] path,
+            JsonObject body) throws IOException {
+        if (path.length == 2 && "POST".equals(method)) {
+            String id = "Mn" + this.createdIds.incrementAndGet();
+            JsonObject session = new JsonObject();
+            session.addProperty("id", id);
+            session.addProperty("part_size", PART_SIZE);
+            session.addProperty("parallel_uploads", true);
+            merge(session, body);
+            this.uploadSessions.put(id, session);
+            sendJson(exchange, 200, session);
+            return;
+        }
+        JsonObject session = path.length >= 3 ? this.uploadSessions.get(path[2]) : null;
+        if (session == null) {
+            sendError(exchange, 404, "not_found", "Unknown upload session.");
+        } else if (path.length == 3 && "PUT".equals(method)) {
+            JsonObject part = new JsonObject();
+            part.addProperty("part_number",
+                    parseInt(query(exchange.getRequestURI().getRawQuery()).get("part_number"), 1));
+            sendJson(exchange, 200, part);
+        } else if (path.length == 3 && "DELETE".equals(method)) {
+            this.uploadSessions.remove(path[2]);
+            exchange.sendResponseHeaders(204, -1);
+        } else if (path.length == 4 && "complete".equals(path[3]) && "POST".equals(method)) {
+            this.uploadSessions.remove(path[2]);
+            JsonObject file = resource(account, "storage", "file",
+                    "Fn" + this.createdIds.incrementAndGet());
+            for (String key : new String[] {"name", "size"}) {
+                if (session.has(key)) {
+                    file.add(key, session.get(key));
+                }
+            }
+            if (session.has("parent_id")) {
+                file.getAsJsonObject("parent").add("id", session.get("parent_id"));
+            }
+            sendJson(exchange, 200, file);
+        } else {
+            sendError(exchange, 405, "method_not_allowed", "Method not allowed.");
+        }
+    }
+
+    private JsonObject resource(String account, String api, String type, String id) {
+        JsonObject resource = new JsonObject();
+        resource.addProperty("id", id);
+        resource.addProperty("name", type + "-" + id);
+        resource.addProperty("type", type);
+        resource.addProperty("api", api);
+        resource.addProperty("account", account);
+        resource.addProperty("created", "2019-03-01T10:00:00Z");
+        resource.addProperty("modified", "2019-03-01T10:00:00Z");
+        if ("file".equals(type) || "folder".equals(type)) {
+            if ("file".equals(type)) {
+                resource.addProperty("size", this.config.getContentSize());
+                resource.addProperty("mime_type", "application/octet-stream");
+            }
+            JsonObject parent = new JsonObject();
+            parent.addProperty("id", "root");
+            parent.addProperty("name", "");
+            resource.add("parent", parent);
+        }
+        return resource;
+    }
+
+    private static void merge(JsonObject resource, JsonObject body) {
+        for (Map.Entry<String, JsonElement> entry : body.entrySet()) {
+            if (!"id".equals(entry.getKey())) {
+                resource.add(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    private static String singular(String collection) {
+        return collection.endsWith("s") ? collection.substring(0, collection.length() - 1)
+                : collection;
+    }
+
+    private static String idPrefix(String type) {
+        return type.isEmpty() ? "X" : type.substring(0, 1).toUpperCase();
+    }
+
+    private static void sendJson(HttpExchange exchange, int status, JsonElement data)
+            throws IOException {
+        byte[] body = data.toString().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", JSON);
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private static void sendError(HttpExchange exchange, int status, String errorCode,
+            String message) throws IOException {
+        JsonObject error = new JsonObject();
+        error.addProperty("status_code", status);
+        error.addProperty("error_code", errorCode);
+        error.addProperty("message", message);
+        error.addProperty("id", UUID.randomUUID().toString());
+        sendJson(exchange, status, error);
+    }
+
+    private static Map<String, String> query(String rawQuery) {
+        Map<String, String> query = new HashMap<String, String>();
+        if (rawQuery == null || rawQuery.isEmpty()) {
+            return query;
+        }
+        try {
+            for (String parameter : rawQuery.split("&")) {
+                int equals = parameter.indexOf('=');
+                if (equals > 0) {
+                    query.put(URLDecoder.decode(parameter.substring(0, equals), "UTF-8"),
+                            URLDecoder.decode(parameter.substring(equals + 1), "UTF-8"));
+                }
+            }
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+        return query;
+    }
+
+    private static int parseInt(String value, int defaultValue) {
+        try {
+            return value == null ? defaultValue : Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+
+    private static long parseLong(String value, long defaultValue) {
+        try {
+            return value == null || value.isEmpty() ? defaultValue : Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+}